@@ -0,0 +1,79 @@
+package com.example.analysis_api.bench;
+
+import com.example.analysis_api.service.MarketAnalysisService;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.SortedIndex;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.core.io.FileSystemResource;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+
+/**
+ * A started {@link MarketAnalysisService} over a synthetic dataset of {@code rows} rows.
+ *
+ * The service is built by hand, like in the unit tests, and started with its production
+ * defaults (parallel scans, data cube) except that the snapshot and the row-id cache are off:
+ * each benchmark then measures the query itself, not a cache hit. Methods are called on the
+ * service directly, so Spring's result caches are not involved either.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+
+    static final long SEED = 42;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    Path csv;
+    MarketAnalysisService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        csv = SyntheticHousing.csv(rows, SEED);
+        service = newService(csv);
+        invoke(service, "start");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        invoke(service, "stop");
+    }
+
+    PropertyTable table() {
+        return service.getTable();
+    }
+
+    /** The price below which {@code fraction} of the rows lie, for filters of known selectivity. */
+    double priceAtFraction(double fraction) {
+        SortedIndex prices = table().priceIndex();
+        int position = (int) Math.min(prices.size() - 1, Math.max(0, Math.round(fraction * prices.size()) - 1));
+        return prices.valueAt(position);
+    }
+
+    static MarketAnalysisService newService(Path csv) throws Exception {
+        MarketAnalysisService service = new MarketAnalysisService();
+        set(service, "housingDataResource", new FileSystemResource(csv));
+        set(service, "snapshotPath", "");
+        set(service, "segmentRowCacheIds", 0L);
+        return service;
+    }
+
+    private static void set(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+
+    static void invoke(Object target, String method) throws Exception {
+        Method m = target.getClass().getDeclaredMethod(method);
+        m.setAccessible(true);
+        m.invoke(target);
+    }
+}
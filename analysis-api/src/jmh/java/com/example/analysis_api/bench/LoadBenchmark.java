@@ -0,0 +1,61 @@
+package com.example.analysis_api.bench;
+
+import com.example.analysis_api.service.DatasetVersion;
+import com.example.analysis_api.service.MarketAnalysisService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code loadData}: parse the CSV (or map the columnar snapshot), build the indexes, fit the
+ * local price model and the data cube.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class LoadBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    // csv = parse every time; snapshot = map the binary copy written by the first load
+    @Param({"csv", "snapshot"})
+    public String source;
+
+    private MarketAnalysisService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        service = Dataset.newService(SyntheticHousing.csv(rows, Dataset.SEED));
+        if (source.equals("snapshot")) {
+            Path snapshot = Files.createTempDirectory("jmh-snapshot").resolve("housing.snapshot");
+            Field f = MarketAnalysisService.class.getDeclaredField("snapshotPath");
+            f.setAccessible(true);
+            f.set(service, snapshot.toString());
+            service.loadData();
+        }
+    }
+
+    @Benchmark
+    public DatasetVersion loadData() {
+        service.loadData();
+        return service.getDataset();
+    }
+}
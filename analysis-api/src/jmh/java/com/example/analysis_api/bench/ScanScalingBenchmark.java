@@ -0,0 +1,68 @@
+package com.example.analysis_api.bench;
+
+import com.example.analysis_api.store.Aggregation;
+import com.example.analysis_api.store.Bucketing;
+import com.example.analysis_api.store.Metric;
+import com.example.analysis_api.store.ParallelScan;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full-column scan and a two-measure group-by with 1 to N scan workers, on the same rows.
+ * Compare the {@code workers} results to see how far a query scales on the machine at hand.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class ScanScalingBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    private ParallelScan scan;
+    private PropertyTable table;
+
+    // bounds that no index narrows much, so the planner picks a scan
+    private final RowFilter wide = RowFilter.of(null, null, 2, 5, null, null);
+    private final List<Metric> measures = List.of(Metric.PRICE, Metric.PRICE_PER_SQFT);
+
+    @Setup(Level.Trial)
+    public void setUp(Dataset data) {
+        scan = workers == 1 ? ParallelScan.SEQUENTIAL : ParallelScan.create(ParallelScan.DEFAULT_THRESHOLD, workers);
+        table = new PropertyTable(data.table().columns(), scan);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scan.close();
+    }
+
+    @Benchmark
+    public int[] scan() {
+        return table.select(wide);
+    }
+
+    @Benchmark
+    public Aggregation groupByDecade() {
+        return table.aggregate(null, Metric.YEAR_BUILT, Bucketing.width(10, 0), measures);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.analysis_api.bench;
+
+import com.example.analysis_api.export.ArrowExporter;
+import com.example.analysis_api.export.CborExporter;
+import com.example.analysis_api.export.CsvExporter;
+import com.example.analysis_api.model.PropertyRecord;
+import com.example.analysis_api.store.RowFilter;
+import com.example.analysis_api.store.RowOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Segment queries at several selectivities (the fraction of rows the price filter keeps):
+ * row selection alone, {@code filterProperties} (selection plus records), and the segment encoded
+ * as JSON, CSV, CBOR and Arrow. Every encoding starts from the same filter, so each includes its
+ * own scan, as the endpoints do. Output goes to a counting stream; the bytes of one encoding are
+ * reported alongside its time as the {@code bytes} secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class SegmentBenchmark {
+
+    @Param({"0.001", "0.01", "0.1", "0.5"})
+    public double selectivity;
+
+    private double maxPrice;
+    private RowFilter filter;
+
+    private final ObjectWriter json = new ObjectMapper().writerFor(List.class);
+    private final CsvExporter csv = new CsvExporter(64 * 1024);
+    private final CborExporter cbor = new CborExporter(64 * 1024);
+    private final ArrowExporter arrow = new ArrowExporter(ArrowExporter.DEFAULT_BATCH_ROWS);
+
+    @Setup(Level.Trial)
+    public void setUp(Dataset data) {
+        maxPrice = data.priceAtFraction(selectivity);
+        filter = RowFilter.of(null, maxPrice, null, null, null, null);
+    }
+
+    @Benchmark
+    public int[] selectRows(Dataset data) {
+        return data.table().select(filter);
+    }
+
+    @Benchmark
+    public List<PropertyRecord> filterProperties(Dataset data) {
+        return data.service.filterProperties(null, maxPrice, null, null, null, null);
+    }
+
+    @Benchmark
+    public void exportJson(Dataset data, EncodedSize size) throws IOException {
+        json.writeValue(size.start(), data.service.filterProperties(null, maxPrice, null, null, null, null));
+        size.finish();
+    }
+
+    @Benchmark
+    public void exportCsv(Dataset data, EncodedSize size) throws IOException {
+        csv.write(data.table(), filter, size.start());
+        size.finish();
+    }
+
+    @Benchmark
+    public void exportCbor(Dataset data, EncodedSize size) throws IOException {
+        cbor.write(data.table(), filter, RowOrder.DATASET, Long.MAX_VALUE, size.start());
+        size.finish();
+    }
+
+    @Benchmark
+    public void exportArrow(Dataset data, EncodedSize size) throws IOException {
+        arrow.write(data.table(), filter, RowOrder.DATASET, Long.MAX_VALUE, size.start());
+        size.finish();
+    }
+
+    /**
+     * Bytes of the last encoding. Assigned rather than accumulated, so the EVENTS counter reads
+     * as the size of one response, not a total over the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long bytes;
+
+        private final ByteCount out = new ByteCount();
+
+        OutputStream start() {
+            out.bytes = 0;
+            return out;
+        }
+
+        void finish() {
+            bytes = out.bytes;
+        }
+    }
+
+    // counts what an encoder writes and drops the bytes
+    private static final class ByteCount extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.analysis_api.bench;
+
+import com.example.analysis_api.model.DistributionBucket;
+import com.example.analysis_api.model.GroupedStatistics;
+import com.example.analysis_api.model.MarketSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-market and grouped statistics. The bedroom distribution is measured both with a filter
+ * on cube band edges (summed from the cube) and with one that is not (bitmaps and a price pass).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class SummaryBenchmark {
+
+    @Benchmark
+    public MarketSummary marketSummary(Dataset data) {
+        return data.service.getMarketSummary();
+    }
+
+    @Benchmark
+    public List<GroupedStatistics> averagePriceByBedroomsFromCube(Dataset data) {
+        return data.service.getAveragePriceByBedrooms(null, null, 2, null, 5.0, null);
+    }
+
+    @Benchmark
+    public List<GroupedStatistics> averagePriceByBedroomsScanned(Dataset data) {
+        return data.service.getAveragePriceByBedrooms(123_456.0, null, 2, null, 5.05, null);
+    }
+
+    @Benchmark
+    public List<DistributionBucket> distributionByDecade(Dataset data) {
+        return data.service.getDistribution("yearBuilt", 10.0, null, null, List.of("price", "pricePerSqft"),
+                null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.analysis_api.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Housing CSVs of any size in the layout of {@code data/housing.csv}, for benchmarks.
+ *
+ * Features are drawn independently over the ranges of the sample data and the price follows
+ * them linearly plus noise, so price-correlated queries (price bands, the local price model)
+ * see realistic shapes. The same size and seed always give the same file; files are kept under
+ * {@code target/jmh-data} and reused, since writing 10M rows takes a while.
+ */
+public final class SyntheticHousing {
+
+    static final String HEADER =
+            "id,square_footage,bedrooms,bathrooms,year_built,lot_size,distance_to_city_center,school_rating,price";
+
+    private static final Path DATA_DIR = Path.of("target", "jmh-data");
+
+    private SyntheticHousing() {
+    }
+
+    /** The CSV for {@code rows} rows, written on first use. */
+    public static Path csv(int rows, long seed) throws IOException {
+        Path file = DATA_DIR.resolve("housing-" + rows + "-" + seed + ".csv");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Files.createDirectories(DATA_DIR);
+        Path partial = Files.createTempFile(DATA_DIR, "housing-", ".part");
+        try (BufferedWriter out = Files.newBufferedWriter(partial, StandardCharsets.US_ASCII)) {
+            write(rows, seed, out);
+        }
+        // concurrent forks may race to write the same file; either copy is identical
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    static void write(int rows, long seed, Appendable out) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        out.append(HEADER).append('\n');
+        StringBuilder line = new StringBuilder(96);
+        for (int id = 0; id < rows; id++) {
+            int bedrooms = 1 + rnd.nextInt(6);
+            int squareFootage = 500 + bedrooms * 350 + rnd.nextInt(1200);
+            int bathrooms = Math.max(1, bedrooms - 1 - rnd.nextInt(2));
+            int yearBuilt = 1950 + rnd.nextInt(74);
+            int lotSize = 1500 + rnd.nextInt(12_000);
+            double distance = rnd.nextInt(300) / 10.0;
+            double schoolRating = rnd.nextInt(101) / 10.0;
+            double price = 40_000
+                    + 140.0 * squareFootage
+                    + 12_000.0 * bedrooms
+                    + 9_000.0 * bathrooms
+                    + 900.0 * (yearBuilt - 1950)
+                    + 4.0 * lotSize
+                    - 5_500.0 * distance
+                    + 14_000.0 * schoolRating
+                    + rnd.nextInt(-60_000, 60_000);
+            long rounded = Math.max(50_000, Math.round(price / 1000.0) * 1000);
+
+            line.setLength(0);
+            line.append(id).append(',')
+                    .append(squareFootage).append(',')
+                    .append(bedrooms).append(',')
+                    .append(bathrooms).append(',')
+                    .append(yearBuilt).append(',')
+                    .append(lotSize).append(',')
+                    .append(distance).append(',')
+                    .append(schoolRating).append(',')
+                    .append(rounded).append('\n');
+            out.append(line);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.analysis_api.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Bounded Caffeine caches for the dataset queries, in place of the unbounded default.
+ *
+ * The result caches are bounded by weight, where an entry weighs one plus the number of rows it
+ * holds. A filter matching half the dataset therefore costs as much as thousands of small
+ * segments. Eviction is Caffeine's W-TinyLFU: a burst of one-off slider positions cannot push
+ * out the segments that keep being requested. Keys carry the dataset version (see
+ * {@code DatasetKeyGenerator}), so a reload turns old entries into misses; the TTL only
+ * bounds how long an entry lingers after it was last read.
+ *
+ * Every cache records statistics; actuator publishes them as {@code cache.gets},
+ * {@code cache.puts} and {@code cache.evictions} tagged with the cache name.
+ */
+@Configuration
+public class CacheConfig {
+
+    // caches created on the fly for any other name
+    private static final long DEFAULT_MAX_ENTRIES = 1_000;
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${analysis.cache.segments.max-rows:250000}") long segmentsMaxRows,
+            @Value("${analysis.cache.avg-price-by-bedrooms.max-groups:50000}") long groupsMaxRows,
+            @Value("${analysis.cache.distributions.max-buckets:100000}") long bucketsMax,
+            @Value("${analysis.cache.ttl:30m}") Duration ttl) {
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        manager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(DEFAULT_MAX_ENTRIES)
+                .expireAfterAccess(ttl)
+                .recordStats());
+
+        manager.registerCustomCache("segments", byRowCount(segmentsMaxRows, ttl).build());
+        manager.registerCustomCache("avgPriceByBedrooms", byRowCount(groupsMaxRows, ttl).build());
+        manager.registerCustomCache("distributions", byRowCount(bucketsMax, ttl).build());
+        // a single entry per dataset version
+        manager.registerCustomCache("marketSummary", Caffeine.newBuilder()
+                .maximumSize(4)
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build());
+        return manager;
+    }
+
+    private static Caffeine<Object, Object> byRowCount(long maxRows, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher(ROW_COUNT)
+                .expireAfterAccess(ttl)
+                .recordStats();
+    }
+
+    // one for the entry itself plus one per row of a list result
+    static final Weigher<Object, Object> ROW_COUNT =
+            (key, value) -> 1 + (value instanceof Collection<?> rows ? rows.size() : 0);
+}
@@ -0,0 +1,35 @@
+package com.example.analysis_api.config;
+
+import com.example.analysis_api.controller.DatasetETagInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Conditional GET for the dataset-backed market endpoints; see {@link DatasetETagInterceptor}.
+ * Quantiles are left out, since above the exact threshold they come from a randomized sketch
+ * and are not byte-stable for a dataset version.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final DatasetETagInterceptor etags;
+
+    public WebConfig(DatasetETagInterceptor etags) {
+        this.etags = etags;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(etags)
+                .addPathPatterns("/market/summary", "/market/segments", "/market/distribution/**");
+    }
+
+    @Override
+    public void extendHandlerExceptionResolvers(List<HandlerExceptionResolver> resolvers) {
+        resolvers.add(0, etags);
+    }
+}
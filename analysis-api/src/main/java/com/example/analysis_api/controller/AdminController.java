@@ -0,0 +1,29 @@
+package com.example.analysis_api.controller;
+
+import com.example.analysis_api.model.DatasetInfo;
+import com.example.analysis_api.service.DatasetVersion;
+import com.example.analysis_api.service.MarketAnalysisService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final MarketAnalysisService analysisService;
+
+    public AdminController(MarketAnalysisService analysisService) {
+        this.analysisService = analysisService;
+    }
+
+    @GetMapping("/dataset")
+    public DatasetInfo getDataset() {
+        return toInfo(analysisService.getDataset());
+    }
+
+    // reloads go through POST /actuator/dataset (DatasetReloadEndpoint), on the management port
+    static DatasetInfo toInfo(DatasetVersion dataset) {
+        return new DatasetInfo(dataset.version(), dataset.table().size(), dataset.source(), dataset.loadedAt());
+    }
+}
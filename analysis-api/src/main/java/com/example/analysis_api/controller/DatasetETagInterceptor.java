@@ -0,0 +1,176 @@
+package com.example.analysis_api.controller;
+
+import com.example.analysis_api.service.DatasetVersion;
+import com.example.analysis_api.service.MarketAnalysisService;
+import com.example.analysis_api.store.RowFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Strong ETags and {@code Cache-Control} for the dataset-backed GET endpoints, answering
+ * {@code If-None-Match} with 304 before the controller (and so the service) runs.
+ *
+ * A response only depends on the dataset version, the path, the handler and the query
+ * parameters the handler declares, with the six segment filters counting through their
+ * canonical form: two filters selecting the same rows get the same tag. The tag is an MD5 of
+ * those, prefixed with the version. A request whose filters do not parse gets no tag and falls
+ * through to the usual 400.
+ *
+ * The headers go out before the handler runs, so it also resolves exceptions first in line:
+ * an error response is marked {@code no-store}, so a cache never revalidates its way back to it.
+ */
+@Component
+public class DatasetETagInterceptor implements HandlerInterceptor, HandlerExceptionResolver {
+
+    /** Request attribute holding the {@link Tag} of a tagged request, for {@link ResponseBodyCache}. */
+    static final String TAG_ATTRIBUTE = DatasetETagInterceptor.class.getName() + ".tag";
+
+    record Tag(long version, String etag) {
+    }
+
+    private static final Set<String> FILTER_PARAMS = Set.of(
+            "minPrice", "maxPrice", "minBedrooms", "maxBedrooms", "minSchoolRating", "maxSchoolRating");
+
+    private static final ParameterNameDiscoverer PARAMETER_NAMES = new DefaultParameterNameDiscoverer();
+
+    private final MarketAnalysisService analysisService;
+    private final String cacheControl;
+
+    // query parameter names each handler declares, sorted; worked out once per method
+    private final Map<Method, List<String>> queryParams = new ConcurrentHashMap<>();
+
+    public DatasetETagInterceptor(MarketAnalysisService analysisService,
+                                  @Value("${analysis.http.cache.max-age:0s}") Duration maxAge) {
+        this.analysisService = analysisService;
+        // shared caches may store it, but must check back once it is older than max-age
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic().mustRevalidate().getHeaderValue();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method)
+                || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            return true;
+        }
+        DatasetVersion dataset = analysisService.getDataset();
+        String etag;
+        try {
+            etag = etag(dataset, request, method);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        request.setAttribute(TAG_ATTRIBUTE, new Tag(dataset.version(), etag));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT); // /segments also streams NDJSON
+
+        // a client holding the gzip form revalidates with its tag, as long as it still takes gzip
+        String gzipTag = ResponseBodyCache.gzipTag(etag);
+        if (MarketController.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))
+                && ifNoneMatch(request, gzipTag)) {
+            etag = gzipTag;
+        }
+        // sets the ETag header, and a 304 when If-None-Match matches it
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+
+    private static boolean ifNoneMatch(HttpServletRequest request, String etag) {
+        for (Enumeration<String> headers = request.getHeaders(HttpHeaders.IF_NONE_MATCH); headers.hasMoreElements(); ) {
+            for (String candidate : headers.nextElement().split(",")) {
+                candidate = candidate.trim();
+                if (candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response,
+                                         Object handler, Exception ex) {
+        if (response.containsHeader(HttpHeaders.ETAG) && !response.isCommitted()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        }
+        return null; // let the usual resolvers write the error
+    }
+
+    private String etag(DatasetVersion dataset, HttpServletRequest request, HandlerMethod method) {
+        List<String> names = queryParams.computeIfAbsent(method.getMethod(), m -> queryParams(method));
+        StringBuilder key = new StringBuilder()
+                .append(request.getRequestURI()).append('\n')
+                .append(method.getMethod().getName()).append('\n');
+        boolean filtered = false;
+        for (String name : names) {
+            if (FILTER_PARAMS.contains(name)) {
+                filtered = true;
+            } else {
+                String[] values = request.getParameterValues(name);
+                key.append(name).append('=').append(values == null ? "" : String.join(",", values)).append('\n');
+            }
+        }
+        if (filtered) {
+            RowFilter filter = RowFilter.of(
+                    decimal(request, "minPrice"), decimal(request, "maxPrice"),
+                    integer(request, "minBedrooms"), integer(request, "maxBedrooms"),
+                    decimal(request, "minSchoolRating"), decimal(request, "maxSchoolRating"));
+            key.append(dataset.table().canonical(filter));
+        }
+        String digest = DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8));
+        return "\"" + dataset.version() + "-" + digest + "\"";
+    }
+
+    private static List<String> queryParams(HandlerMethod method) {
+        List<String> names = new ArrayList<>();
+        for (MethodParameter parameter : method.getMethodParameters()) {
+            RequestParam annotation = parameter.getParameterAnnotation(RequestParam.class);
+            if (annotation == null) {
+                continue;
+            }
+            String name = annotation.name();
+            if (name.isEmpty()) {
+                parameter.initParameterNameDiscovery(PARAMETER_NAMES);
+                name = parameter.getParameterName();
+            }
+            names.add(name);
+        }
+        names.sort(null);
+        return names;
+    }
+
+    // parsed like Spring binds the handler's Double / Integer parameters; NumberFormatException
+    // (an IllegalArgumentException) for anything it would reject
+    private static Double decimal(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        return StringUtils.hasText(value) ? Double.valueOf(value.trim()) : null;
+    }
+
+    private static Integer integer(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        return StringUtils.hasText(value) ? Integer.valueOf(value.trim()) : null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.analysis_api.controller;
+
+import com.example.analysis_api.model.DatasetInfo;
+import com.example.analysis_api.service.MarketAnalysisService;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@code POST /actuator/dataset}: reloads the dataset from its CSV and answers with the version
+ * that was swapped in. Queries keep being served from the current version while the reload runs;
+ * the request waits for it.
+ *
+ * Not in the default web exposure: a reload parses the CSV, rebuilds the indexes, the price model
+ * and the cube, and empties every result cache, so it must not be open to whoever can reach
+ * {@code /market}. Expose it only on a separate {@code management.server.port}.
+ */
+@Component
+@WebEndpoint(id = "dataset")
+public class DatasetReloadEndpoint {
+
+    private final MarketAnalysisService analysisService;
+
+    public DatasetReloadEndpoint(MarketAnalysisService analysisService) {
+        this.analysisService = analysisService;
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<DatasetInfo> reload() {
+        try {
+            return new WebEndpointResponse<>(AdminController.toInfo(analysisService.reload().join()));
+        } catch (CompletionException e) {
+            // the service has logged it and kept serving the current version
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
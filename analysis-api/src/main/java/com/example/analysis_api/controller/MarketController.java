@@ -1,31 +1,81 @@
 package com.example.analysis_api.controller;
 
-import com.example.analysis_api.model.MarketSummary;
+import com.example.analysis_api.model.AggregationResult;
+import com.example.analysis_api.model.DistributionBucket;
+import com.example.analysis_api.model.PriceQuantiles;
 import com.example.analysis_api.model.PropertyRecord;
+import com.example.analysis_api.model.SegmentPage;
+import com.example.analysis_api.model.WhatIfBatchResult;
 import com.example.analysis_api.model.WhatIfRequest;
 import com.example.analysis_api.model.WhatIfResponse;
+import com.example.analysis_api.diagnostics.SerializationEvent;
+import com.example.analysis_api.export.ArrowExporter;
+import com.example.analysis_api.export.CborExporter;
+import com.example.analysis_api.export.CsvExporter;
 import com.example.analysis_api.service.MarketAnalysisService;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import com.example.analysis_api.store.RowOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.example.analysis_api.model.GroupedStatistics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
-
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/market")
-@CrossOrigin(origins = "http://localhost:3000")
+@CrossOrigin(origins = "http://localhost:3000",
+        exposedHeaders = {MarketController.AGGREGATION_PATH_HEADER, HttpHeaders.ETAG})
 public class MarketController {
 
+    // formats of the streamed row exports
+    private static final String FORMAT_CSV = "csv";
+    private static final String FORMAT_CBOR = "cbor";
+    private static final String FORMAT_ARROW = "arrow";
+
+    // rows are flushed to the client in batches while streaming NDJSON
+    private static final int NDJSON_FLUSH_ROWS = 512;
+
+    // CSV and CBOR export buffer; the only per-request allocation besides the gzip deflater
+    private static final int EXPORT_BUFFER_BYTES = 64 * 1024;
+
+    // binary exports chosen by an explicit Accept when /export has no type
+    private static final MediaType CBOR = MediaType.parseMediaType(CborExporter.MEDIA_TYPE);
+    private static final MediaType ARROW = MediaType.parseMediaType(ArrowExporter.MEDIA_TYPE);
+
+    // "cube" or "scan" on distribution responses
+    static final String AGGREGATION_PATH_HEADER = "X-Aggregation-Path";
+
     private final MarketAnalysisService analysisService;
+    private final ResponseBodyCache responseBodies;
+    private final ObjectWriter rowWriter;
 
-    public MarketController(MarketAnalysisService analysisService) {
+    public MarketController(MarketAnalysisService analysisService, ResponseBodyCache responseBodies,
+                            ObjectMapper objectMapper) {
         this.analysisService = analysisService;
+        this.responseBodies = responseBodies;
+        this.rowWriter = objectMapper.writerFor(PropertyRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @GetMapping("/health")
@@ -33,13 +83,228 @@ public class MarketController {
         return "ok";
     }
 
+    // encoded bytes reused from the response body cache while the dataset is unchanged
     @GetMapping("/summary")
-    public MarketSummary getSummary() {
-        return analysisService.getMarketSummary();
+    public ResponseEntity<?> getSummary(HttpServletRequest request, HttpServletResponse response) {
+        return responseBodies.json(request, response, analysisService::getMarketSummary);
+    }
+
+    /**
+     * Price quantiles of a segment, e.g. {@code ?quantiles=0.05,0.5,0.95}; p10/p25/p50/p75/p90/p99
+     * by default. Large segments are estimated from a sketch, as reported in {@code method}.
+     */
+    @GetMapping("/summary/quantiles")
+    public PriceQuantiles getPriceQuantiles(
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer minBedrooms,
+            @RequestParam(required = false) Integer maxBedrooms,
+            @RequestParam(required = false, name = "minSchoolRating") Double minSchoolRating,
+            @RequestParam(required = false, name = "maxSchoolRating") Double maxSchoolRating,
+            @RequestParam(required = false) List<Double> quantiles
+    ) {
+        return analysisService.getPriceQuantiles(
+                minPrice,
+                maxPrice,
+                minBedrooms,
+                maxBedrooms,
+                minSchoolRating,
+                maxSchoolRating,
+                quantiles
+        );
     }
 
+    /**
+     * Segment rows for a filter.
+     *
+     * Without paging parameters this returns the full list, as before. With any of
+     * {@code limit}, {@code sort} or {@code cursor} it returns one {@link SegmentPage}, whose
+     * {@code nextCursor} fetches the following page. Either way the encoded body is kept in the
+     * response body cache, so a repeat request skips the service and Jackson; a list too large
+     * for the cache is streamed by the JSON converter instead.
+     */
     @GetMapping("/segments")
-    public List<PropertyRecord> getSegments(
+    public ResponseEntity<?> getSegments(
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer minBedrooms,
+            @RequestParam(required = false) Integer maxBedrooms,
+            @RequestParam(required = false, name = "minSchoolRating") Double minSchoolRating,
+            @RequestParam(required = false, name = "maxSchoolRating") Double maxSchoolRating,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        if (limit != null || sort != null || cursor != null) {
+            return responseBodies.json(request, response, () -> analysisService.getSegmentPage(
+                    minPrice,
+                    maxPrice,
+                    minBedrooms,
+                    maxBedrooms,
+                    minSchoolRating,
+                    maxSchoolRating,
+                    sort,
+                    cursor,
+                    limit
+            ));
+        }
+
+        return responseBodies.json(request, response, () -> analysisService.filterProperties(
+                minPrice,
+                maxPrice,
+                minBedrooms,
+                maxBedrooms,
+                minSchoolRating,
+                maxSchoolRating
+        ));
+    }
+
+    /**
+     * Same segment, streamed one JSON object per line as the scan produces rows
+     * (selected with {@code Accept: application/x-ndjson}). Memory per request stays bounded
+     * however many rows match.
+     */
+    @GetMapping(value = "/segments", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSegments(
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer minBedrooms,
+            @RequestParam(required = false) Integer maxBedrooms,
+            @RequestParam(required = false, name = "minSchoolRating") Double minSchoolRating,
+            @RequestParam(required = false, name = "maxSchoolRating") Double maxSchoolRating,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort
+    ) {
+        rowFilter(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+        sortOrder(sort);
+
+        StreamingResponseBody body = out -> streamSegment(out,
+                minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating, sort, limit);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Same segment in a compact binary form, streamed straight from the columns: CBOR rows
+     * ({@code Accept: application/cbor}) or an Arrow IPC stream of column batches
+     * ({@code Accept: application/vnd.apache.arrow.stream}). Filters, {@code sort} and
+     * {@code limit} work as for NDJSON; the column layout is described on {@link CborExporter}
+     * and {@link ArrowExporter}.
+     */
+    @GetMapping(value = "/segments", produces = CborExporter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamSegmentsCbor(
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer minBedrooms,
+            @RequestParam(required = false) Integer maxBedrooms,
+            @RequestParam(required = false, name = "minSchoolRating") Double minSchoolRating,
+            @RequestParam(required = false, name = "maxSchoolRating") Double maxSchoolRating,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort
+    ) {
+        RowFilter filter = rowFilter(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+        return streamBinary(FORMAT_CBOR, filter, sortOrder(sort), limit);
+    }
+
+    @GetMapping(value = "/segments", produces = ArrowExporter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamSegmentsArrow(
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer minBedrooms,
+            @RequestParam(required = false) Integer maxBedrooms,
+            @RequestParam(required = false, name = "minSchoolRating") Double minSchoolRating,
+            @RequestParam(required = false, name = "maxSchoolRating") Double maxSchoolRating,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort
+    ) {
+        RowFilter filter = rowFilter(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+        return streamBinary(FORMAT_ARROW, filter, sortOrder(sort), limit);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamBinary(String format, RowFilter filter, RowOrder order,
+                                                               Integer limit) {
+        // pin the current table so the whole stream comes from one dataset
+        PropertyTable table = analysisService.getTable();
+        long max = limit == null ? Long.MAX_VALUE : Math.max(0, limit);
+
+        StreamingResponseBody body = out -> {
+            SerializationEvent event = new SerializationEvent();
+            event.begin();
+            long written = -1;
+            try {
+                written = writeRows(format, table, filter, order, max, out);
+            } finally {
+                commit(event, format, false, written);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(mediaType(format)))
+                .body(body);
+    }
+
+    // reject a bad filter or sort key before the response is committed
+    private static RowFilter rowFilter(Double minPrice, Double maxPrice, Integer minBedrooms, Integer maxBedrooms,
+                                       Double minSchoolRating, Double maxSchoolRating) {
+        try {
+            return RowFilter.of(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+
+    private static RowOrder sortOrder(String sort) {
+        try {
+            return RowOrder.parse(sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private void streamSegment(OutputStream out,
+                               Double minPrice,
+                               Double maxPrice,
+                               Integer minBedrooms,
+                               Integer maxBedrooms,
+                               Double minSchoolRating,
+                               Double maxSchoolRating,
+                               String sort,
+                               Integer limit) throws IOException {
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        long[] written = {0};
+        // one generator for the whole stream; Jackson's own buffer bounds memory per request
+        try (JsonGenerator gen = rowWriter.getFactory().createGenerator(out)) {
+            gen.setRootValueSeparator(null); // lines are separated explicitly
+            int[] pending = {0};
+            analysisService.forEachInSegment(
+                    minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating, sort, limit,
+                    record -> {
+                        try {
+                            rowWriter.writeValue(gen, record);
+                            gen.writeRaw('\n');
+                            written[0]++;
+                            if (++pending[0] == NDJSON_FLUSH_ROWS) {
+                                gen.flush();
+                                pending[0] = 0;
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            commit(event, "ndjson", false, written[0]);
+        }
+    }
+
+    // Grouped statistics: avg price by bedrooms; X-Aggregation-Path says whether the cube or a scan answered
+    @GetMapping("/distribution/bedrooms")
+    public ResponseEntity<List<GroupedStatistics>> getDistributionByBedrooms(
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
             @RequestParam(required = false) Integer minBedrooms,
@@ -47,7 +312,7 @@ public class MarketController {
             @RequestParam(required = false, name = "minSchoolRating") Double minSchoolRating,
             @RequestParam(required = false, name = "maxSchoolRating") Double maxSchoolRating
     ) {
-        return analysisService.filterProperties(
+        AggregationResult<GroupedStatistics> groups = analysisService.getAveragePriceByBedrooms(
                 minPrice,
                 maxPrice,
                 minBedrooms,
@@ -55,11 +320,26 @@ public class MarketController {
                 minSchoolRating,
                 maxSchoolRating
         );
+        return ResponseEntity.ok()
+                .header(AGGREGATION_PATH_HEADER, groups.getPath())
+                .body(groups);
     }
 
-    // Grouped statistics: avg price by bedrooms
-    @GetMapping("/distribution/bedrooms")
-    public List<GroupedStatistics> getDistributionByBedrooms(
+    /**
+     * Distribution over any numeric column (price, squareFootage, bedrooms, bathrooms, yearBuilt,
+     * lotSize, distanceToCityCenter, schoolRating, pricePerSqft):
+     *  GET /market/distribution/yearBuilt?bucketWidth=10&measures=price,pricePerSqft
+     *  GET /market/distribution/schoolRating?boundaries=4,7
+     * Without bucketWidth or boundaries every distinct value is its own bucket.
+     * X-Aggregation-Path tells whether the pre-aggregated cube ("cube") or the rows ("scan") answered.
+     */
+    @GetMapping("/distribution/{dimension}")
+    public ResponseEntity<List<DistributionBucket>> getDistribution(
+            @PathVariable String dimension,
+            @RequestParam(required = false) Double bucketWidth,
+            @RequestParam(required = false) Double origin,
+            @RequestParam(required = false) List<Double> boundaries,
+            @RequestParam(required = false) List<String> measures,
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
             @RequestParam(required = false) Integer minBedrooms,
@@ -67,7 +347,12 @@ public class MarketController {
             @RequestParam(required = false, name = "minSchoolRating") Double minSchoolRating,
             @RequestParam(required = false, name = "maxSchoolRating") Double maxSchoolRating
     ) {
-        return analysisService.getAveragePriceByBedrooms(
+        AggregationResult<DistributionBucket> buckets = analysisService.getDistribution(
+                dimension,
+                bucketWidth,
+                origin,
+                boundaries,
+                measures,
                 minPrice,
                 maxPrice,
                 minBedrooms,
@@ -75,61 +360,184 @@ public class MarketController {
                 minSchoolRating,
                 maxSchoolRating
         );
+        return ResponseEntity.ok()
+                .header(AGGREGATION_PATH_HEADER, buckets.getPath())
+                .body(buckets);
     }
 
+    // completes off the servlet thread, so a slow estimator cannot starve the analytics endpoints
     @PostMapping("/what-if")
-    public WhatIfResponse runWhatIf(@Valid @RequestBody WhatIfRequest request) {
-        return analysisService.runWhatIf(request);
+    public CompletableFuture<WhatIfResponse> runWhatIf(@Valid @RequestBody WhatIfRequest request) {
+        return analysisService.runWhatIfAsync(request);
+    }
+
+    /**
+     * Many what-if scenarios in one request, answered in submission order. Invalid scenarios
+     * and estimator failures are reported per item instead of failing the whole batch.
+     */
+    @PostMapping("/what-if/batch")
+    public CompletableFuture<List<WhatIfBatchResult>> runWhatIfBatch(@RequestBody List<WhatIfRequest> requests) {
+        return analysisService.runWhatIfBatchAsync(requests);
     }
 
     /**
      * Export endpoint:
-     *  GET /market/export?type=csv
+     *  GET /market/export?type=csv  (accepts the segment filters; gzip when the client accepts it)
+     *  GET /market/export?type=cbor|arrow  (same, in the binary forms of /segments)
      *  GET /market/export?type=pdf
+     * Without {@code type}, an explicit {@code Accept: application/cbor} or
+     * {@code application/vnd.apache.arrow.stream} picks the binary form; anything else,
+     * wildcards included, is a 400 as before.
      */
     @GetMapping("/export")
-    public ResponseEntity<byte[]> export(@RequestParam String type) {
-        if ("csv".equalsIgnoreCase(type)) {
-            return exportCsv();
-        } else if ("pdf".equalsIgnoreCase(type)) {
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer minBedrooms,
+            @RequestParam(required = false) Integer maxBedrooms,
+            @RequestParam(required = false, name = "minSchoolRating") Double minSchoolRating,
+            @RequestParam(required = false, name = "maxSchoolRating") Double maxSchoolRating,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        String format = type != null ? type : binaryExportFormat(accept);
+        if (FORMAT_CSV.equalsIgnoreCase(format) || FORMAT_CBOR.equalsIgnoreCase(format)
+                || FORMAT_ARROW.equalsIgnoreCase(format)) {
+            RowFilter filter = rowFilter(
+                    minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+            return exportRows(format.toLowerCase(Locale.ROOT), filter, acceptsGzip(acceptEncoding));
+        } else if ("pdf".equalsIgnoreCase(format)) {
             return exportPdf();
         } else {
-            byte[] body = ("Unsupported export format: " + type)
+            byte[] body = (format == null
+                    ? "Missing export format: pass type=csv|cbor|arrow|pdf or a binary Accept type"
+                    : "Unsupported export format: " + format)
                     .getBytes(StandardCharsets.UTF_8);
             return ResponseEntity
                     .status(HttpStatus.BAD_REQUEST)
-                    .body(body);
+                    .body(out -> out.write(body));
         }
     }
 
-    private ResponseEntity<byte[]> exportCsv() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("price,squareFootage,bedrooms,bathrooms,yearBuilt,lotSize,distanceToCityCenter,schoolRating\n");
-
-        List<PropertyRecord> records = analysisService.getAllProperties();
-        for (PropertyRecord p : records) {
-            sb.append(String.format(
-                    "%f,%d,%d,%f,%d,%d,%f,%d%n",
-                    p.getPrice(),
-                    p.getSquareFootage(),
-                    p.getBedrooms(),
-                    p.getBathrooms(),
-                    p.getYearBuilt(),
-                    p.getLotSize(),
-                    p.getDistanceToCityCenter(),
-                    p.getSchoolRating()
-            ));
+    /**
+     * cbor or arrow when the Accept header names that media type explicitly (the higher q wins,
+     * then the first listed); null for wildcards, other types or no header.
+     */
+    static String binaryExportFormat(String accept) {
+        if (accept == null) {
+            return null;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        String format = null;
+        double quality = 0;
+        for (MediaType mediaType : types) {
+            String candidate = mediaType.equalsTypeAndSubtype(CBOR) ? FORMAT_CBOR
+                    : mediaType.equalsTypeAndSubtype(ARROW) ? FORMAT_ARROW
+                    : null;
+            if (candidate != null && mediaType.getQualityValue() > quality) {
+                format = candidate;
+                quality = mediaType.getQualityValue();
+            }
         }
+        return format;
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportRows(String format, RowFilter filter, boolean gzip) {
+        // pin the current table so the whole file comes from one dataset
+        PropertyTable table = analysisService.getTable();
+
+        StreamingResponseBody body = out -> {
+            SerializationEvent event = new SerializationEvent();
+            event.begin();
+            long written = -1;
+            try {
+                if (gzip) {
+                    GZIPOutputStream zip = new GZIPOutputStream(out, EXPORT_BUFFER_BYTES);
+                    written = writeRows(format, table, filter, RowOrder.DATASET, Long.MAX_VALUE, zip);
+                    zip.finish();
+                } else {
+                    written = writeRows(format, table, filter, RowOrder.DATASET, Long.MAX_VALUE, out);
+                }
+            } finally {
+                commit(event, format, gzip, written);
+            }
+        };
 
-        byte[] csvBytes = sb.toString().getBytes(StandardCharsets.UTF_8);
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.TEXT_PLAIN);
-        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=market_data.csv");
+        headers.setContentType(MediaType.parseMediaType(mediaType(format)));
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=market_data." + extension(format));
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    // rows written, or -1 for CSV, which does not count them
+    private static long writeRows(String format, PropertyTable table, RowFilter filter, RowOrder order,
+                                  long limit, OutputStream out) throws IOException {
+        return switch (format) {
+            case FORMAT_CBOR -> new CborExporter(EXPORT_BUFFER_BYTES).write(table, filter, order, limit, out);
+            case FORMAT_ARROW -> new ArrowExporter(ArrowExporter.DEFAULT_BATCH_ROWS).write(table, filter, order, limit, out);
+            default -> {
+                new CsvExporter(EXPORT_BUFFER_BYTES).write(table, filter, out);
+                yield -1;
+            }
+        };
+    }
+
+    private static String mediaType(String format) {
+        return switch (format) {
+            case FORMAT_CBOR -> CborExporter.MEDIA_TYPE;
+            case FORMAT_ARROW -> ArrowExporter.MEDIA_TYPE;
+            default -> MediaType.TEXT_PLAIN_VALUE;
+        };
+    }
 
-        return new ResponseEntity<>(csvBytes, headers, HttpStatus.OK);
+    // .arrows is the conventional extension of the Arrow stream (as opposed to file) format
+    private static String extension(String format) {
+        return FORMAT_ARROW.equals(format) ? "arrows" : format;
     }
 
-    private ResponseEntity<byte[]> exportPdf() {
+    private static void commit(SerializationEvent event, String format, boolean gzip, long rows) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.format = format;
+            event.gzip = gzip;
+            event.rows = rows;
+            event.commit();
+        }
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            if (!tokens[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            // "gzip;q=0" explicitly refuses it
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=") && param.substring(2).matches("0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportPdf() {
         // Minimal valid PDF – just a stub for the assignment.
         String pdf = "%PDF-1.4\n" +
                 "1 0 obj <<>> endobj\n" +
@@ -153,6 +561,8 @@ public class MarketController {
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=market_analysis.pdf");
 
-        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+        headers.setContentLength(pdfBytes.length);
+
+        return new ResponseEntity<>(out -> out.write(pdfBytes), headers, HttpStatus.OK);
     }
 }
\ No newline at end of file
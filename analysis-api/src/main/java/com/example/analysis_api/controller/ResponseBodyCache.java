@@ -0,0 +1,205 @@
+package com.example.analysis_api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded JSON bodies of hot responses, so a repeat request is answered with stored bytes: no
+ * service call, no Jackson, and for gzip clients no deflate.
+ *
+ * Entries are keyed by the request's dataset ETag (see {@link DatasetETagInterceptor}), which
+ * already covers the dataset version, handler, parameters and canonical filter, plus whether
+ * the bytes are gzipped. The gzip form is made from the identity bytes on the first request
+ * that accepts it, for bodies of at least {@link #GZIP_MIN_BYTES}; it is a different
+ * representation, so it goes out with its own ETag ({@code "...-gzip"}). Memory is bounded by
+ * total bytes; entries of older dataset versions are dropped as soon as a newer one is stored.
+ * A request without a dataset ETag, or whose body turns out larger than the whole cache, is
+ * handed to the usual message converter, which streams it to the client, and is not cached.
+ */
+@Component
+public class ResponseBodyCache {
+
+    // smaller bodies gain little from gzip and cost the deflater setup
+    static final int GZIP_MIN_BYTES = 1024;
+
+    // key, array header and map entry, in bytes, so tiny bodies still count against the bound
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final ObjectMapper objectMapper;
+    private final boolean gzip;
+    private final int maxEntryBytes;
+    private final Cache<Key, byte[]> bodies;
+    private final AtomicLong newestVersion = new AtomicLong();
+    private final AtomicLong purgedVersion = new AtomicLong();
+
+    private record Key(long version, String etag, boolean gzip) {
+    }
+
+    // the encoded body, or the value itself when it is too large to keep
+    private record Body(byte[] encoded, Object value) {
+    }
+
+    public ResponseBodyCache(ObjectMapper objectMapper,
+                             @Value("${analysis.http.response-cache.max-bytes:64MB}") DataSize maxBytes,
+                             @Value("${analysis.http.response-cache.gzip:true}") boolean gzip,
+                             ObjectProvider<MeterRegistry> registry) {
+        this.objectMapper = objectMapper;
+        this.gzip = gzip;
+        // a larger entry would be evicted as soon as it is stored
+        this.maxEntryBytes = (int) Math.max(0, Math.min(maxBytes.toBytes() - ENTRY_OVERHEAD, Integer.MAX_VALUE - 8));
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(maxBytes.toBytes())
+                .weigher((Key key, byte[] body) -> ENTRY_OVERHEAD + body.length)
+                .recordStats()
+                .build();
+        // same tag keys as the Spring caches' cache.* meters, which Prometheus requires
+        registry.ifAvailable(r -> CaffeineCacheMetrics.monitor(r, bodies, "responseBodies",
+                "cache.manager", "responseBodyCache", "name", "responseBodies"));
+    }
+
+    /** The ETag of the gzip representation of a response tagged {@code etag}. */
+    static String gzipTag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * A 200 with the JSON of {@code body}, from the stored bytes when this response has been
+     * encoded before; {@code body} is only called on a miss.
+     */
+    ResponseEntity<?> json(HttpServletRequest request, HttpServletResponse response, Supplier<?> body) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (!(request.getAttribute(DatasetETagInterceptor.TAG_ATTRIBUTE) instanceof DatasetETagInterceptor.Tag tag)) {
+            return ok.body(body.get());
+        }
+        Key identity = new Key(tag.version(), tag.etag(), false);
+        if (gzip) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (gzip && MarketController.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            Key gzipped = new Key(tag.version(), tag.etag(), true);
+            byte[] compressed = bodies.getIfPresent(gzipped);
+            if (compressed == null) {
+                Body plain = lookup(identity, body);
+                if (plain.encoded() == null) {
+                    return ok.body(plain.value());
+                }
+                if (plain.encoded().length < GZIP_MIN_BYTES) {
+                    return ok.body(plain.encoded());
+                }
+                compressed = gzip(plain.encoded());
+                store(gzipped, compressed);
+            }
+            response.setHeader(HttpHeaders.ETAG, gzipTag(tag.etag()));
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return ok.body(compressed);
+        }
+        Body plain = lookup(identity, body);
+        return ok.body(plain.encoded() != null ? plain.encoded() : plain.value());
+    }
+
+    private Body lookup(Key key, Supplier<?> body) {
+        byte[] cached = bodies.getIfPresent(key);
+        if (cached != null) {
+            return new Body(cached, null);
+        }
+        // not computed under the cache's lock: two racing misses both encode, the last one stays
+        Object value = body.get();
+        byte[] encoded = encode(value);
+        if (encoded == null) {
+            return new Body(null, value);
+        }
+        store(key, encoded);
+        return new Body(encoded, value);
+    }
+
+    private void store(Key key, byte[] encoded) {
+        long newest = newestVersion.accumulateAndGet(key.version(), Math::max);
+        if (key.version() < newest) {
+            return; // a reload landed while this was being computed
+        }
+        long purged = purgedVersion.get();
+        if (purged < newest && purgedVersion.compareAndSet(purged, newest)) {
+            bodies.asMap().keySet().removeIf(k -> k.version() < newest); // once per dataset version
+        }
+        bodies.put(key, encoded);
+    }
+
+    // the JSON of value, or null as soon as it outgrows a cache entry
+    private byte[] encode(Object value) {
+        BoundedBuffer out = new BoundedBuffer(maxEntryBytes);
+        try {
+            objectMapper.writeValue(out, value);
+        } catch (IOException e) {
+            if (out.overflowed) {
+                return null; // Jackson may have wrapped the overflow; the flag is what counts
+            }
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // gives up with an IOException once more than limit bytes are written
+    private static final class BoundedBuffer extends OutputStream {
+        private final int limit;
+        private final ByteArrayOutputStream bytes;
+        boolean overflowed;
+
+        BoundedBuffer(int limit) {
+            this.limit = limit;
+            this.bytes = new ByteArrayOutputStream(Math.min(limit, 8192));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensure(1);
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensure(len);
+            bytes.write(b, off, len);
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+
+        private void ensure(int len) throws IOException {
+            if (len > limit - bytes.size()) {
+                overflowed = true;
+                throw new IOException("Body exceeds " + limit + " bytes");
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] plain) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 4 + 64);
+        try (GZIPOutputStream zip = new GZIPOutputStream(out, 8192)) {
+            zip.write(plain);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.analysis_api.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A grouped aggregation, answered from the data cube or by reading rows. */
+@Name("com.example.analysis.Aggregation")
+@Label("Aggregation")
+@Category({"Analysis API", "Query"})
+@Description("Group-by over a segment")
+@StackTrace(false)
+public final class AggregationEvent extends Event {
+
+    @Label("Dimension")
+    public String dimension;
+
+    @Label("Filter")
+    public String filter;
+
+    @Label("Path")
+    @Description("cube = summed from pre-aggregated cells, scan = read from the rows")
+    public String path;
+
+    @Label("Rows")
+    @Description("Rows aggregated; 0 when answered from the cube")
+    public long rows;
+
+    @Label("Groups")
+    public int groups;
+}
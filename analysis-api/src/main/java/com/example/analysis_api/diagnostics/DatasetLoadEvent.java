@@ -0,0 +1,46 @@
+package com.example.analysis_api.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of loading a dataset version: read-snapshot, parse-csv, write-snapshot, index,
+ * fit-model or build-cube.
+ */
+@Name("com.example.analysis.DatasetLoad")
+@Label("Dataset Load Phase")
+@Category({"Analysis API", "Dataset"})
+@Description("A phase of loading and indexing a dataset version")
+@StackTrace(false)
+public final class DatasetLoadEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Dataset Version")
+    public long version;
+
+    @Label("Rows")
+    public long rows;
+
+    /** Starts timing {@code phase}; {@link #end(long)} commits it. */
+    public static DatasetLoadEvent start(String phase, long version) {
+        DatasetLoadEvent event = new DatasetLoadEvent();
+        event.phase = phase;
+        event.version = version;
+        event.begin();
+        return event;
+    }
+
+    public void end(long rows) {
+        end();
+        if (shouldCommit()) {
+            this.rows = rows;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.analysis_api.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A prediction round trip to the estimator service. */
+@Name("com.example.analysis.EstimatorCall")
+@Label("Estimator Call")
+@Category({"Analysis API", "Estimator"})
+@Description("POST to the estimator's predict endpoint, from send to parsed response")
+@StackTrace(false)
+public final class EstimatorCallEvent extends Event {
+
+    @Label("Instances")
+    public int instances;
+
+    @Label("Outcome")
+    @Description("success, or the failure type: timeout, connect, http, invalid-response, other")
+    public String outcome;
+}
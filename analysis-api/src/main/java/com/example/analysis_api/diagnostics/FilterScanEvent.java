@@ -0,0 +1,35 @@
+package com.example.analysis_api.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+
+/** Selecting the row ids of a segment: from the row-id cache, a cached wider segment, or the table. */
+@Name("com.example.analysis.FilterScan")
+@Label("Filter Scan")
+@Category({"Analysis API", "Query"})
+@Description("Row ids selected for a segment filter")
+@StackTrace(false)
+public final class FilterScanEvent extends Event {
+
+    @Label("Filter")
+    public String filter;
+
+    @Label("Outcome")
+    @Description("exact = cached, subsumed = refined from a cached wider segment, miss = selected from the table")
+    public String outcome;
+
+    @Label("Matched Rows")
+    public long matchedRows;
+
+    @Label("Table Rows")
+    public long tableRows;
+
+    @Label("Selectivity")
+    @Percentage
+    public double selectivity;
+}
@@ -0,0 +1,87 @@
+package com.example.analysis_api.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code POST /actuator/jfr}: records a Java Flight Recording for a while and returns the file.
+ *
+ * Takes a JSON body with {@code duration} (default 30s, at most
+ * {@code analysis.profiling.max-duration}) and {@code settings} ({@code default}, about 1%
+ * overhead, or {@code profile}). The request blocks for the duration; one recording runs at a time,
+ * others get 429. The recording includes the {@code com.example.analysis.*} events, which cost
+ * nothing while no recording is running.
+ *
+ * Not in the default web exposure: a recording carries the process's environment variables and
+ * system properties. Expose it only on a separate {@code management.server.port}.
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class FlightRecordingEndpoint {
+
+    static final Duration DEFAULT_DURATION = Duration.ofSeconds(30);
+
+    private final Duration maxDuration;
+    private final AtomicBoolean recording = new AtomicBoolean();
+
+    public FlightRecordingEndpoint(@Value("${analysis.profiling.max-duration:5m}") Duration maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    @WriteOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> record(@Nullable Duration duration, @Nullable String settings) {
+        Duration length = duration == null ? DEFAULT_DURATION : duration;
+        if (length.isNegative() || length.isZero() || length.compareTo(maxDuration) > 0) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings == null ? "default" : settings);
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        if (!recording.compareAndSet(false, true)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        try {
+            return new WebEndpointResponse<>(new ByteArrayResource(record(configuration, length)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        } catch (IOException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        } finally {
+            recording.set(false);
+        }
+    }
+
+    private static byte[] record(Configuration configuration, Duration length)
+            throws IOException, InterruptedException {
+        Path file = Files.createTempFile("analysis-api-", ".jfr");
+        try (Recording recording = new Recording(configuration)) {
+            recording.setName("analysis-api on demand");
+            recording.start();
+            Thread.sleep(length.toMillis());
+            recording.stop();
+            recording.dump(file);
+            return Files.readAllBytes(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.analysis_api.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Writing a streamed segment response (NDJSON or CSV export) to the client. */
+@Name("com.example.analysis.Serialization")
+@Label("Segment Serialization")
+@Category({"Analysis API", "Query"})
+@Description("Streaming a segment to the response, including time blocked on the client")
+@StackTrace(false)
+public final class SerializationEvent extends Event {
+
+    @Label("Format")
+    public String format;
+
+    @Label("Gzip")
+    public boolean gzip;
+
+    @Label("Rows")
+    @Description("Rows written; -1 when not counted")
+    public long rows;
+}
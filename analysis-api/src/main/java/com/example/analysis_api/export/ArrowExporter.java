@@ -0,0 +1,213 @@
+package com.example.analysis_api.export;
+
+import com.example.analysis_api.store.PropertyColumns;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import com.example.analysis_api.store.RowOrder;
+import com.google.flatbuffers.FlatBufferBuilder;
+import org.apache.arrow.flatbuf.Buffer;
+import org.apache.arrow.flatbuf.Endianness;
+import org.apache.arrow.flatbuf.Field;
+import org.apache.arrow.flatbuf.FieldNode;
+import org.apache.arrow.flatbuf.FloatingPoint;
+import org.apache.arrow.flatbuf.Int;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.MetadataVersion;
+import org.apache.arrow.flatbuf.Precision;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.arrow.flatbuf.Type;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes a segment as an Arrow IPC stream (the format {@code pyarrow.ipc.open_stream} and
+ * {@code ArrowStreamReader} read): a schema message, record batches of up to
+ * {@link #DEFAULT_BATCH_ROWS} rows and the end-of-stream marker.
+ *
+ * The columns are those of {@link CsvExporter#HEADER}, non-nullable float64 except bedrooms and
+ * yearBuilt (int32). Each batch gathers its row ids from the walk, then copies every column
+ * into one reused little-endian buffer and writes it as is, so the body is the column arrays
+ * themselves with no per-value encoding. Only the message metadata goes through flatbuffers;
+ * the framing is written here rather than through arrow-vector, which needs off-heap buffers.
+ */
+public final class ArrowExporter {
+
+    public static final String MEDIA_TYPE = "application/vnd.apache.arrow.stream";
+
+    public static final int DEFAULT_BATCH_ROWS = 64 * 1024;
+
+    private static final String[] NAMES = CsvExporter.HEADER.strip().split(",");
+
+    // bedrooms and yearBuilt; every other column is a double
+    private static final boolean[] INT_COLUMN = {false, false, true, false, true, false, false, false};
+
+    private static final int CONTINUATION = 0xFFFFFFFF;
+
+    private final int batchRows;
+    private final int[] rows;
+    private final ByteBuffer column;
+    private final FlatBufferBuilder metadata = new FlatBufferBuilder(1024);
+    private final ByteBuffer prefix = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+
+    public ArrowExporter(int batchRows) {
+        this.batchRows = Math.max(1, batchRows);
+        this.rows = new int[this.batchRows];
+        this.column = ByteBuffer.allocate(this.batchRows * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes the rows matching the filter in the given order, at most {@code limit} of them.
+     *
+     * @return the number of rows written
+     */
+    public long write(PropertyTable table, RowFilter filter, RowOrder order, long limit, OutputStream out)
+            throws IOException {
+        PropertyColumns cols = table.columns();
+        writeMessage(out, schema(), 0);
+
+        long[] written = {0};
+        int[] pending = {0};
+        try {
+            table.walk(filter, order, 0, row -> {
+                if (written[0] == limit) {
+                    return false;
+                }
+                rows[pending[0]++] = row;
+                written[0]++;
+                if (pending[0] == batchRows) {
+                    writeBatch(cols, pending[0], out);
+                    pending[0] = 0;
+                }
+                return true;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (pending[0] > 0) {
+            writeBatch(cols, pending[0], out);
+        }
+        // end of stream: a continuation marker followed by a zero metadata length
+        prefix.clear();
+        prefix.putInt(CONTINUATION).putInt(0);
+        out.write(prefix.array(), 0, 8);
+        out.flush();
+        return written[0];
+    }
+
+    private void writeBatch(PropertyColumns cols, int n, OutputStream out) {
+        try {
+            writeMessage(out, recordBatch(n), bodyLength(n));
+            writeDoubles(out, cols.price(), n);
+            writeDoubles(out, cols.squareFootage(), n);
+            writeInts(out, cols.bedrooms(), n);
+            writeDoubles(out, cols.bathrooms(), n);
+            writeInts(out, cols.yearBuilt(), n);
+            writeDoubles(out, cols.lotSize(), n);
+            writeDoubles(out, cols.distanceToCityCenter(), n);
+            writeDoubles(out, cols.schoolRating(), n);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeDoubles(OutputStream out, double[] values, int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            column.putDouble(i * Double.BYTES, values[rows[i]]);
+        }
+        out.write(column.array(), 0, n * Double.BYTES);
+    }
+
+    private void writeInts(OutputStream out, int[] values, int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            column.putInt(i * Integer.BYTES, values[rows[i]]);
+        }
+        int length = n * Integer.BYTES;
+        int padded = padded(length);
+        for (int i = length; i < padded; i++) {
+            column.put(i, (byte) 0);
+        }
+        out.write(column.array(), 0, padded);
+    }
+
+    // the encapsulated message: continuation, metadata length, metadata padded to 8 bytes; the body follows
+    private void writeMessage(OutputStream out, int message, long bodyLength) throws IOException {
+        metadata.finish(message);
+        ByteBuffer bytes = metadata.dataBuffer();
+        int length = bytes.remaining();
+        int padded = padded(8 + length) - 8;
+        prefix.clear();
+        prefix.putInt(CONTINUATION).putInt(padded);
+        out.write(prefix.array(), 0, 8);
+        out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), length);
+        for (int i = length; i < padded; i++) {
+            out.write(0);
+        }
+        metadata.clear();
+    }
+
+    private int schema() {
+        int[] fields = new int[NAMES.length];
+        for (int i = 0; i < NAMES.length; i++) {
+            int name = metadata.createString(NAMES[i]);
+            byte typeType = INT_COLUMN[i] ? Type.Int : Type.FloatingPoint;
+            int type = INT_COLUMN[i]
+                    ? Int.createInt(metadata, 32, true)
+                    : FloatingPoint.createFloatingPoint(metadata, Precision.DOUBLE);
+            // readers expect the children vector even on primitive fields
+            int children = Field.createChildrenVector(metadata, new int[0]);
+            fields[i] = Field.createField(metadata, name, false, typeType, type, 0, children, 0);
+        }
+        int schema = Schema.createSchema(metadata, Endianness.Little,
+                Schema.createFieldsVector(metadata, fields), 0, 0);
+        return Message.createMessage(metadata, MetadataVersion.V5, MessageHeader.Schema, schema, 0, 0);
+    }
+
+    private int recordBatch(int n) {
+        // flatbuffer struct vectors are built back to front
+        RecordBatch.startNodesVector(metadata, NAMES.length);
+        for (int i = NAMES.length - 1; i >= 0; i--) {
+            FieldNode.createFieldNode(metadata, n, 0);
+        }
+        int nodes = metadata.endVector();
+
+        // per column a validity buffer (empty: nothing is null) and the values
+        RecordBatch.startBuffersVector(metadata, NAMES.length * 2);
+        long end = bodyLength(n);
+        for (int i = NAMES.length - 1; i >= 0; i--) {
+            long length = padded(n * (long) width(i));
+            end -= length;
+            Buffer.createBuffer(metadata, end, length);
+            Buffer.createBuffer(metadata, end, 0);
+        }
+        int buffers = metadata.endVector();
+
+        int batch = RecordBatch.createRecordBatch(metadata, n, nodes, buffers, 0, 0);
+        return Message.createMessage(metadata, MetadataVersion.V5, MessageHeader.RecordBatch, batch, bodyLength(n), 0);
+    }
+
+    private static long bodyLength(int n) {
+        long length = 0;
+        for (int i = 0; i < NAMES.length; i++) {
+            length += padded(n * (long) width(i));
+        }
+        return length;
+    }
+
+    private static int width(int column) {
+        return INT_COLUMN[column] ? Integer.BYTES : Double.BYTES;
+    }
+
+    private static int padded(int length) {
+        return (length + 7) & ~7;
+    }
+
+    private static long padded(long length) {
+        return (length + 7) & ~7L;
+    }
+}
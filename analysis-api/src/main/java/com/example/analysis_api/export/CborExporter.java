@@ -0,0 +1,194 @@
+package com.example.analysis_api.export;
+
+import com.example.analysis_api.store.PropertyColumns;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import com.example.analysis_api.store.RowOrder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes a segment as CBOR (RFC 8949), row by row, straight from the column arrays into a fixed
+ * byte buffer like {@link CsvExporter}.
+ *
+ * The document is {@code {"columns": [8 names], "rows": [[8 values], ...]}}: field names go out
+ * once instead of per row, and the rows array is indefinite-length so it can be streamed without
+ * counting first. Values are in {@link CsvExporter#HEADER} order; bedrooms and yearBuilt are
+ * integers, the rest floats in the shortest width that holds them exactly (half, single or
+ * double, CBOR's preferred serialization), so prices and ratings like 2.5 take 3 to 5 bytes.
+ */
+public final class CborExporter {
+
+    public static final String MEDIA_TYPE = "application/cbor";
+
+    // widest row: array header plus 8 values of at most 9 bytes each
+    private static final int MAX_ROW_BYTES = 1 + 8 * 9;
+
+    // room for the preamble (about 100 bytes) and a row
+    private static final int MIN_BUFFER_BYTES = 256;
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1 << 5;
+    private static final int MAJOR_TEXT = 3 << 5;
+    private static final int MAJOR_ARRAY = 4 << 5;
+    private static final int MAJOR_MAP = 5 << 5;
+    private static final int FLOAT16 = 0xF9;
+    private static final int FLOAT32 = 0xFA;
+    private static final int FLOAT64 = 0xFB;
+    private static final int INDEFINITE_ARRAY = 0x9F;
+    private static final int BREAK = 0xFF;
+
+    private static final byte[] PREAMBLE = preamble();
+
+    private final byte[] buf;
+    private int pos;
+
+    public CborExporter(int bufferSize) {
+        this.buf = new byte[Math.max(bufferSize, MIN_BUFFER_BYTES)];
+    }
+
+    /**
+     * Writes the rows matching the filter in the given order, at most {@code limit} of them.
+     *
+     * @return the number of rows written
+     */
+    public long write(PropertyTable table, RowFilter filter, RowOrder order, long limit, OutputStream out)
+            throws IOException {
+        PropertyColumns cols = table.columns();
+        double[] price = cols.price();
+        double[] squareFootage = cols.squareFootage();
+        int[] bedrooms = cols.bedrooms();
+        double[] bathrooms = cols.bathrooms();
+        int[] yearBuilt = cols.yearBuilt();
+        double[] lotSize = cols.lotSize();
+        double[] distanceToCityCenter = cols.distanceToCityCenter();
+        double[] schoolRating = cols.schoolRating();
+
+        System.arraycopy(PREAMBLE, 0, buf, 0, PREAMBLE.length);
+        pos = PREAMBLE.length;
+
+        long[] written = {0};
+        try {
+            table.walk(filter, order, 0, row -> {
+                if (written[0] == limit) {
+                    return false;
+                }
+                if (buf.length - pos < MAX_ROW_BYTES) {
+                    drain(out);
+                }
+                buf[pos++] = (byte) (MAJOR_ARRAY | 8);
+                appendDouble(price[row]);
+                appendDouble(squareFootage[row]);
+                appendLong(bedrooms[row]);
+                appendDouble(bathrooms[row]);
+                appendLong(yearBuilt[row]);
+                appendDouble(lotSize[row]);
+                appendDouble(distanceToCityCenter[row]);
+                appendDouble(schoolRating[row]);
+                written[0]++;
+                return true;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buf[pos++] = (byte) BREAK;
+        out.write(buf, 0, pos);
+        pos = 0;
+        out.flush();
+        return written[0];
+    }
+
+    private void drain(OutputStream out) {
+        try {
+            out.write(buf, 0, pos);
+            pos = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void appendDouble(double value) {
+        float single = (float) value;
+        if (single == value || Double.isNaN(value)) {
+            short half = Float.floatToFloat16(single);
+            if (Float.float16ToFloat(half) == single || Float.isNaN(single)) {
+                buf[pos++] = (byte) FLOAT16;
+                buf[pos++] = (byte) (half >> 8);
+                buf[pos++] = (byte) half;
+                return;
+            }
+            int bits = Float.floatToRawIntBits(single);
+            buf[pos++] = (byte) FLOAT32;
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (bits >> shift);
+            }
+            return;
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        buf[pos++] = (byte) FLOAT64;
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buf[pos++] = (byte) (bits >> shift);
+        }
+    }
+
+    void appendLong(long value) {
+        // negative n is encoded as -1 - n under its own major type
+        appendHead(value < 0 ? MAJOR_NEGATIVE : MAJOR_UNSIGNED, value < 0 ? -1 - value : value);
+    }
+
+    private void appendHead(int major, long argument) {
+        if (argument < 24) {
+            buf[pos++] = (byte) (major | argument);
+        } else if (argument < 1 << 8) {
+            buf[pos++] = (byte) (major | 24);
+            buf[pos++] = (byte) argument;
+        } else if (argument < 1 << 16) {
+            buf[pos++] = (byte) (major | 25);
+            buf[pos++] = (byte) (argument >> 8);
+            buf[pos++] = (byte) argument;
+        } else if (argument < 1L << 32) {
+            buf[pos++] = (byte) (major | 26);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (argument >> shift);
+            }
+        } else {
+            buf[pos++] = (byte) (major | 27);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (argument >> shift);
+            }
+        }
+    }
+
+    private void appendText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        appendHead(MAJOR_TEXT, bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    // {"columns": [...], "rows": [_ — everything before the first row
+    private static byte[] preamble() {
+        String[] columns = CsvExporter.HEADER.strip().split(",");
+        CborExporter encoder = new CborExporter(0);
+        encoder.appendHead(MAJOR_MAP, 2);
+        encoder.appendText("columns");
+        encoder.appendHead(MAJOR_ARRAY, columns.length);
+        for (String column : columns) {
+            encoder.appendText(column);
+        }
+        encoder.appendText("rows");
+        encoder.buf[encoder.pos++] = (byte) INDEFINITE_ARRAY;
+        return encoder.drainToBytes();
+    }
+
+    // the bytes encoded since the last reset; builds the preamble and serves as a test hook
+    byte[] drainToBytes() {
+        byte[] bytes = Arrays.copyOf(buf, pos);
+        pos = 0;
+        return bytes;
+    }
+}
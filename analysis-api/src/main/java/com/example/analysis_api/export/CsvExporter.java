@@ -0,0 +1,162 @@
+package com.example.analysis_api.export;
+
+import com.example.analysis_api.store.PropertyColumns;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import com.example.analysis_api.store.RowOrder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a segment as CSV straight from the column arrays into a fixed byte buffer.
+ *
+ * Numbers are formatted by hand ({@link #appendDouble}) so a row costs no String, formatter
+ * or boxing allocation; the buffer is handed to the output stream whenever it fills up.
+ */
+public final class CsvExporter {
+
+    public static final String HEADER =
+            "price,squareFootage,bedrooms,bathrooms,yearBuilt,lotSize,distanceToCityCenter,schoolRating\n";
+
+    private static final byte[] HEADER_BYTES = HEADER.getBytes(StandardCharsets.US_ASCII);
+
+    // widest row: 8 fields of at most 32 chars each plus separators
+    private static final int MAX_ROW_BYTES = 8 * 33;
+
+    // decimals kept for fractional values, same precision %f used to give
+    private static final int FRACTION_DIGITS = 6;
+    private static final long FRACTION_SCALE = 1_000_000L;
+
+    // above this the scaled value no longer fits in a long
+    private static final double MAX_FAST_VALUE = 9.0e12;
+
+    private final byte[] buf;
+    private int pos;
+
+    public CsvExporter(int bufferSize) {
+        this.buf = new byte[Math.max(bufferSize, MAX_ROW_BYTES * 2)];
+    }
+
+    /** Writes the header and every row matching the filter, in dataset order. */
+    public void write(PropertyTable table, RowFilter filter, OutputStream out) throws IOException {
+        PropertyColumns cols = table.columns();
+        double[] price = cols.price();
+        double[] squareFootage = cols.squareFootage();
+        int[] bedrooms = cols.bedrooms();
+        double[] bathrooms = cols.bathrooms();
+        int[] yearBuilt = cols.yearBuilt();
+        double[] lotSize = cols.lotSize();
+        double[] distanceToCityCenter = cols.distanceToCityCenter();
+        double[] schoolRating = cols.schoolRating();
+
+        pos = 0;
+        System.arraycopy(HEADER_BYTES, 0, buf, 0, HEADER_BYTES.length);
+        pos = HEADER_BYTES.length;
+
+        try {
+            table.walk(filter, RowOrder.DATASET, 0, row -> {
+                if (buf.length - pos < MAX_ROW_BYTES) {
+                    drain(out);
+                }
+                appendDouble(price[row]);
+                buf[pos++] = ',';
+                appendDouble(squareFootage[row]);
+                buf[pos++] = ',';
+                appendLong(bedrooms[row]);
+                buf[pos++] = ',';
+                appendDouble(bathrooms[row]);
+                buf[pos++] = ',';
+                appendLong(yearBuilt[row]);
+                buf[pos++] = ',';
+                appendDouble(lotSize[row]);
+                buf[pos++] = ',';
+                appendDouble(distanceToCityCenter[row]);
+                buf[pos++] = ',';
+                appendDouble(schoolRating[row]);
+                buf[pos++] = '\n';
+                return true;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.write(buf, 0, pos);
+        pos = 0;
+        out.flush();
+    }
+
+    private void drain(OutputStream out) {
+        try {
+            out.write(buf, 0, pos);
+            pos = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Integral values print without a fraction ("185000"); others keep up to six decimals with
+     * trailing zeros dropped ("3.2"). Very large or non-finite values fall back to Double.toString.
+     */
+    void appendDouble(double value) {
+        if (!Double.isFinite(value) || Math.abs(value) >= MAX_FAST_VALUE) {
+            byte[] text = Double.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(text, 0, buf, pos, text.length);
+            pos += text.length;
+            return;
+        }
+        long scaled = Math.round(value * FRACTION_SCALE);
+        if (scaled < 0) {
+            buf[pos++] = '-';
+            scaled = -scaled;
+        }
+        appendLong(scaled / FRACTION_SCALE);
+
+        long fraction = scaled % FRACTION_SCALE;
+        if (fraction == 0) {
+            return;
+        }
+        int digits = FRACTION_DIGITS;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        buf[pos++] = '.';
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        pos = end;
+    }
+
+    void appendLong(long value) {
+        if (value < 0) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+        if (value == 0) {
+            buf[pos++] = '0';
+            return;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos = end;
+    }
+
+    // test hook: the bytes formatted since the last reset
+    String drainToString() {
+        String s = new String(buf, 0, pos, StandardCharsets.US_ASCII);
+        pos = 0;
+        return s;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.analysis_api.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses numbers directly out of ASCII bytes, without creating a String per field.
+ *
+ * Plain decimals with up to 18 significant digits (everything in the housing CSV) take the
+ * exact fast path: an integer mantissa scaled by a power of ten that is itself exactly
+ * representable. Anything else falls back to {@link Double#parseDouble}.
+ */
+final class AsciiNumbers {
+
+    /** Returned by {@link #parseLong} for text that is not an integer. */
+    static final long INVALID_LONG = Long.MIN_VALUE;
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // 2^53: larger mantissas are not exact doubles
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private AsciiNumbers() {
+    }
+
+    /**
+     * Parses {@code [from, to)} as a decimal number.
+     *
+     * @return the value, or NaN when the text is not a finite number
+     */
+    static double parseDouble(ByteBuffer buf, int from, int to) {
+        while (from < to && buf.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buf.get(to - 1) == ' ') {
+            to--;
+        }
+        int pos = from;
+        boolean negative = false;
+        if (pos < to && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+            negative = buf.get(pos) == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean sawDigit = false;
+        boolean exact = true;
+
+        // integer part
+        while (pos < to) {
+            int d = buf.get(pos) - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            sawDigit = true;
+            if (digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + d;
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                exact &= d == 0;
+            }
+            pos++;
+        }
+        // fraction
+        if (pos < to && buf.get(pos) == '.') {
+            pos++;
+            while (pos < to) {
+                int d = buf.get(pos) - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                sawDigit = true;
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + d;
+                    exponent--;
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    exact &= d == 0;
+                }
+                pos++;
+            }
+        }
+        if (!sawDigit) {
+            return Double.NaN;
+        }
+        // exponent
+        if (pos < to && (buf.get(pos) == 'e' || buf.get(pos) == 'E')) {
+            pos++;
+            boolean negativeExp = false;
+            if (pos < to && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+                negativeExp = buf.get(pos) == '-';
+                pos++;
+            }
+            int exp = 0;
+            int expDigits = 0;
+            while (pos < to) {
+                int d = buf.get(pos) - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                exp = Math.min(exp * 10 + d, 10_000);
+                expDigits++;
+                pos++;
+            }
+            if (expDigits == 0) {
+                return Double.NaN;
+            }
+            exponent += negativeExp ? -exp : exp;
+        }
+        if (pos != to) {
+            return Double.NaN;
+        }
+
+        if (exact && mantissa < MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            double value = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+            return negative ? -value : value;
+        }
+        return slowParse(buf, from, to);
+    }
+
+    /**
+     * Parses {@code [from, to)} as a signed integer.
+     *
+     * @return the value, or {@link #INVALID_LONG} when the text is not an integer
+     */
+    static long parseLong(ByteBuffer buf, int from, int to) {
+        while (from < to && buf.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buf.get(to - 1) == ' ') {
+            to--;
+        }
+        int pos = from;
+        boolean negative = false;
+        if (pos < to && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+            negative = buf.get(pos) == '-';
+            pos++;
+        }
+        if (pos == to || to - pos > MAX_MANTISSA_DIGITS) {
+            return INVALID_LONG;
+        }
+        long value = 0;
+        for (; pos < to; pos++) {
+            int d = buf.get(pos) - '0';
+            if (d < 0 || d > 9) {
+                return INVALID_LONG;
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    private static double slowParse(ByteBuffer buf, int from, int to) {
+        byte[] text = new byte[to - from];
+        buf.get(from, text);
+        try {
+            double value = Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+            return Double.isFinite(value) ? value : Double.NaN;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.analysis_api.ingest;
+
+import com.example.analysis_api.store.PropertyColumns;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the housing CSV by splitting it into newline-aligned byte ranges and parsing each
+ * range on its own thread.
+ *
+ * Each chunk is parsed straight from bytes ({@link AsciiNumbers}) into its own column
+ * builder; the chunks are concatenated in file order at the end. Malformed rows are skipped
+ * and reported with their 1-based line number (the header is line 1). The header line, and
+ * with it any UTF-8 byte order mark, is skipped.
+ *
+ * Expected columns: id, square_footage, bedrooms, bathrooms, year_built, lot_size,
+ * distance_to_city_center, school_rating, price. Extra trailing columns are ignored.
+ */
+public final class ParallelCsvLoader {
+
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    // malformed rows kept for the report; the total is always counted
+    static final int MAX_REPORTED_ROWS = 100;
+
+    private static final int FIELDS = 9;
+    private static final int BOUNDARY_WINDOW = 64 * 1024;
+
+    private final int threads;
+    private final int chunkBytes;
+
+    /**
+     * @param threads    parser threads; zero or less means one per available processor
+     * @param chunkBytes nominal chunk size, rounded up to the next line break
+     */
+    public ParallelCsvLoader(int threads, int chunkBytes) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.chunkBytes = Math.max(1, chunkBytes);
+    }
+
+    /** A rejected line and why it was rejected. */
+    public record MalformedRow(long line, String reason) {
+    }
+
+    /**
+     * Outcome of a load.
+     *
+     * @param malformedRows total number of rejected lines
+     * @param samples       the first {@value #MAX_REPORTED_ROWS} rejected lines, in file order
+     */
+    public record Result(PropertyColumns columns, long bytes, long malformedRows, List<MalformedRow> samples) {
+    }
+
+    /** Maps the file chunk by chunk; works for files larger than one 2 GB mapping. */
+    public Result load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return load(new Source() {
+                @Override
+                public long size() throws IOException {
+                    return channel.size();
+                }
+
+                @Override
+                public ByteBuffer slice(long from, int length) throws IOException {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+                }
+            });
+        }
+    }
+
+    /** Parses an in-memory copy, e.g. a classpath resource packed inside the jar. */
+    public Result load(byte[] data) throws IOException {
+        return load(new Source() {
+            @Override
+            public long size() {
+                return data.length;
+            }
+
+            @Override
+            public ByteBuffer slice(long from, int length) {
+                return ByteBuffer.wrap(data, (int) from, length).slice();
+            }
+        });
+    }
+
+    private Result load(Source source) throws IOException {
+        long size = source.size();
+        long[] starts = chunkStarts(source, size);
+        int chunks = starts.length - 1;
+
+        List<ChunkResult> results = new ArrayList<>(chunks);
+        if (chunks == 1 || threads == 1) {
+            for (int i = 0; i < chunks; i++) {
+                results.add(parseChunk(source, starts[i], starts[i + 1], i == 0));
+            }
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, chunks), daemonThreads());
+            try {
+                List<Future<ChunkResult>> futures = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    long from = starts[i];
+                    long to = starts[i + 1];
+                    boolean first = i == 0;
+                    futures.add(pool.submit(() -> parseChunk(source, from, to, first)));
+                }
+                for (Future<ChunkResult> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading CSV", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                throw new IOException("Failed to parse CSV chunk", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        // stitch chunks together in file order and turn chunk-local line numbers into file lines
+        List<PropertyColumns> parts = new ArrayList<>(chunks);
+        List<MalformedRow> samples = new ArrayList<>();
+        long malformed = 0;
+        long lineOffset = 0;
+        for (ChunkResult chunk : results) {
+            parts.add(chunk.columns);
+            malformed += chunk.malformed;
+            for (int i = 0; i < chunk.sampleLines.size() && samples.size() < MAX_REPORTED_ROWS; i++) {
+                samples.add(new MalformedRow(lineOffset + chunk.sampleLines.get(i), chunk.sampleReasons.get(i)));
+            }
+            lineOffset += chunk.lines;
+        }
+        return new Result(PropertyColumns.concat(parts), size, malformed, List.copyOf(samples));
+    }
+
+    /** Chunk boundaries, each moved forward to the start of a line; last entry is {@code size}. */
+    private long[] chunkStarts(Source source, long size) throws IOException {
+        List<Long> starts = new ArrayList<>();
+        starts.add(0L);
+        long nominal = chunkBytes;
+        while (nominal < size) {
+            long lineStart = nextLineStart(source, nominal, size);
+            if (lineStart >= size) {
+                break;
+            }
+            if (lineStart > starts.get(starts.size() - 1)) {
+                starts.add(lineStart);
+            }
+            nominal = Math.max(lineStart, nominal) + chunkBytes;
+        }
+        starts.add(size);
+        return starts.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /** First line start at or after {@code pos}. */
+    private static long nextLineStart(Source source, long pos, long size) throws IOException {
+        long scan = pos - 1; // a newline right before pos means pos already starts a line
+        while (scan < size) {
+            int len = (int) Math.min(BOUNDARY_WINDOW, size - scan);
+            ByteBuffer window = source.slice(scan, len);
+            for (int i = 0; i < len; i++) {
+                if (window.get(i) == '\n') {
+                    return scan + i + 1;
+                }
+            }
+            scan += len;
+        }
+        return size;
+    }
+
+    private static ChunkResult parseChunk(Source source, long from, long to, boolean first) {
+        try {
+            return new ChunkParser(source.slice(from, Math.toIntExact(to - from))).parse(first);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "csv-loader-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private interface Source {
+        long size() throws IOException;
+
+        ByteBuffer slice(long from, int length) throws IOException;
+    }
+
+    private static final class ChunkResult {
+        PropertyColumns columns;
+        long lines;
+        long malformed;
+        final List<Long> sampleLines = new ArrayList<>();
+        final List<String> sampleReasons = new ArrayList<>();
+    }
+
+    /**
+     * Parses one newline-aligned chunk. Field boundaries are tracked as offsets into the buffer,
+     * so a well-formed row allocates nothing.
+     */
+    private static final class ChunkParser {
+
+        private final ByteBuffer buf;
+        private final int[] fieldStart = new int[FIELDS];
+        private final int[] fieldEnd = new int[FIELDS];
+
+        ChunkParser(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        ChunkResult parse(boolean first) {
+            ChunkResult result = new ChunkResult();
+            int n = buf.limit();
+            PropertyColumns.Builder builder = new PropertyColumns.Builder(Math.max(16, n / 48));
+
+            int pos = 0;
+            long line = 0;
+            if (first) {
+                pos = lineEnd(0, n) + 1; // header
+                line = 1;
+            }
+            while (pos < n) {
+                int end = lineEnd(pos, n);
+                int contentEnd = end > pos && buf.get(end - 1) == '\r' ? end - 1 : end;
+                line++;
+                if (contentEnd > pos) {
+                    String error = parseRow(pos, contentEnd, builder);
+                    if (error != null) {
+                        result.malformed++;
+                        if (result.sampleLines.size() < MAX_REPORTED_ROWS) {
+                            result.sampleLines.add(line);
+                            result.sampleReasons.add(error);
+                        }
+                    }
+                }
+                pos = end + 1;
+            }
+            result.lines = line;
+            result.columns = builder.build();
+            return result;
+        }
+
+        private int lineEnd(int pos, int n) {
+            while (pos < n && buf.get(pos) != '\n') {
+                pos++;
+            }
+            return pos;
+        }
+
+        /** Adds the row to the builder; returns why it was rejected, or null. */
+        private String parseRow(int from, int to, PropertyColumns.Builder builder) {
+            int fields = 0;
+            int start = from;
+            for (int i = from; i <= to && fields < FIELDS; i++) {
+                if (i == to || buf.get(i) == ',') {
+                    fieldStart[fields] = start;
+                    fieldEnd[fields] = i;
+                    fields++;
+                    start = i + 1;
+                }
+            }
+            if (fields < FIELDS) {
+                return "expected " + FIELDS + " columns, found " + fields;
+            }
+
+            double squareFootage = number(1);
+            long bedrooms = integer(2);
+            double bathrooms = number(3);
+            long yearBuilt = integer(4);
+            double lotSize = number(5);
+            double distanceToCityCenter = number(6);
+            double schoolRating = number(7);
+            double price = number(8);
+
+            if (Double.isNaN(squareFootage)) return "invalid square_footage";
+            if (bedrooms == AsciiNumbers.INVALID_LONG || bedrooms != (int) bedrooms) return "invalid bedrooms";
+            if (Double.isNaN(bathrooms)) return "invalid bathrooms";
+            if (yearBuilt == AsciiNumbers.INVALID_LONG || yearBuilt != (int) yearBuilt) return "invalid year_built";
+            if (Double.isNaN(lotSize)) return "invalid lot_size";
+            if (Double.isNaN(distanceToCityCenter)) return "invalid distance_to_city_center";
+            if (Double.isNaN(schoolRating)) return "invalid school_rating";
+            if (Double.isNaN(price)) return "invalid price";
+
+            builder.add(price, squareFootage, (int) bedrooms, bathrooms, (int) yearBuilt,
+                    lotSize, distanceToCityCenter, schoolRating);
+            return null;
+        }
+
+        private double number(int field) {
+            return AsciiNumbers.parseDouble(buf, fieldStart[field], fieldEnd[field]);
+        }
+
+        private long integer(int field) {
+            return AsciiNumbers.parseLong(buf, fieldStart[field], fieldEnd[field]);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.analysis_api.model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Groups of a distribution together with the path that computed them: "cube" when summed from
+ * the pre-aggregated cube, "scan" when aggregated from the rows.
+ *
+ * It is the list of groups itself, so it serializes as a plain JSON array and is cached as one
+ * value; the path travels with it, also out of a cache.
+ */
+public class AggregationResult<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<T> groups;
+
+    // "cube" or "scan"
+    private final String path;
+
+    public AggregationResult(List<T> groups, String path) {
+        this.groups = List.copyOf(groups);
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public T get(int index) {
+        return groups.get(index);
+    }
+
+    @Override
+    public int size() {
+        return groups.size();
+    }
+}
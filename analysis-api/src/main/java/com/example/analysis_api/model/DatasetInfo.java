@@ -0,0 +1,39 @@
+package com.example.analysis_api.model;
+
+import java.time.Instant;
+
+public class DatasetInfo {
+
+    // increases by one on every successful (re)load
+    private long version;
+
+    private long rows;
+
+    // where the rows were loaded from: the CSV, or its columnar snapshot
+    private String source;
+
+    private Instant loadedAt;
+
+    public DatasetInfo(long version, long rows, String source, Instant loadedAt) {
+        this.version = version;
+        this.rows = rows;
+        this.source = source;
+        this.loadedAt = loadedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.analysis_api.model;
+
+import java.util.Map;
+
+public class DistributionBucket {
+
+    // e.g. "3" for an exact value, "[1990, 2000)" for a width bucket, "< 5" / ">= 8" for open ends
+    private String label;
+
+    // inclusive lower edge; null for an open-ended first bucket
+    private Double lower;
+
+    // exclusive upper edge (equal to lower for exact values); null for an open-ended last bucket
+    private Double upper;
+
+    // properties in the bucket
+    private long count;
+
+    // measure name -> statistics, in the order requested, e.g. "price", "pricePerSqft"
+    private Map<String, MeasureStats> measures;
+
+    public DistributionBucket(String label, Double lower, Double upper, long count,
+                              Map<String, MeasureStats> measures) {
+        this.label = label;
+        this.lower = lower;
+        this.upper = upper;
+        this.count = count;
+        this.measures = measures;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Double getLower() {
+        return lower;
+    }
+
+    public Double getUpper() {
+        return upper;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Map<String, MeasureStats> getMeasures() {
+        return measures;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.analysis_api.model;
+
+public class MeasureStats {
+
+    // rows in the group with a value for this measure
+    private long count;
+
+    private double sum;
+
+    // null when count is 0
+    private Double min;
+    private Double max;
+    private Double average;
+
+    public MeasureStats(long count, double sum, Double min, Double max, Double average) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.average = average;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public Double getAverage() {
+        return average;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.analysis_api.model;
+
+import java.util.Map;
+
+public class PriceQuantiles {
+    public static final String EXACT = "exact";
+    public static final String SKETCH = "sketch";
+
+    // properties in the segment
+    private long count;
+
+    // "exact", or "sketch" when estimated from a KLL sketch
+    private String method;
+
+    // approximate rank error of each quantile as a fraction of count; 0 when exact
+    private double rankError;
+
+    // label -> price, e.g. "p10" -> 182000.0, in the order requested
+    private Map<String, Double> quantiles;
+
+    public PriceQuantiles(long count, String method, double rankError, Map<String, Double> quantiles) {
+        this.count = count;
+        this.method = method;
+        this.rankError = rankError;
+        this.quantiles = quantiles;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public double getRankError() {
+        return rankError;
+    }
+
+    public Map<String, Double> getQuantiles() {
+        return quantiles;
+    }
+}
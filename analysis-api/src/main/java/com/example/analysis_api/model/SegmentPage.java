@@ -0,0 +1,33 @@
+package com.example.analysis_api.model;
+
+import java.util.List;
+
+public class SegmentPage {
+
+    // rows on this page, in the requested sort order
+    private List<PropertyRecord> items;
+
+    // the sort key the page was produced with, e.g. "id" or "-price"
+    private String sort;
+
+    // opaque token for the next page; null on the last page
+    private String nextCursor;
+
+    public SegmentPage(List<PropertyRecord> items, String sort, String nextCursor) {
+        this.items = items;
+        this.sort = sort;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PropertyRecord> getItems() {
+        return items;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.analysis_api.model;
+
+public class WhatIfBatchResult {
+
+    // position of the scenario in the submitted batch
+    private int index;
+
+    // the estimate; null when this scenario failed
+    private WhatIfResponse result;
+
+    // why this scenario has no estimate (validation or estimator failure); null on success
+    private String error;
+
+    private WhatIfBatchResult(int index, WhatIfResponse result, String error) {
+        this.index = index;
+        this.result = result;
+        this.error = error;
+    }
+
+    public static WhatIfBatchResult success(int index, WhatIfResponse result) {
+        return new WhatIfBatchResult(index, result, null);
+    }
+
+    public static WhatIfBatchResult failure(int index, String error) {
+        return new WhatIfBatchResult(index, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public WhatIfResponse getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
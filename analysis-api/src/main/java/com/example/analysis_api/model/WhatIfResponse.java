@@ -1,14 +1,24 @@
 package com.example.analysis_api.model;
 
 public class WhatIfResponse {
+    // which model produced predictedPrice
+    public static final String ESTIMATOR = "estimator";
+    public static final String LOCAL = "local";
+
     private double predictedPrice;
     private double marketAverage;
     private double differenceFromAverage;
+    private String modelSource;
 
     public WhatIfResponse(double predictedPrice, double marketAverage) {
+        this(predictedPrice, marketAverage, ESTIMATOR);
+    }
+
+    public WhatIfResponse(double predictedPrice, double marketAverage, String modelSource) {
         this.predictedPrice = predictedPrice;
         this.marketAverage = marketAverage;
         this.differenceFromAverage = predictedPrice - marketAverage;
+        this.modelSource = modelSource;
     }
 
     public double getPredictedPrice() {
@@ -22,4 +32,8 @@ public class WhatIfResponse {
     public double getDifferenceFromAverage() {
         return differenceFromAverage;
     }
+
+    public String getModelSource() {
+        return modelSource;
+    }
 }
@@ -0,0 +1,177 @@
+package com.example.analysis_api.service;
+
+import com.example.analysis_api.store.PropertyTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Service-level meters: rows examined and returned per query, which path distributions took,
+ * estimator calls and the loaded dataset. Endpoint latencies come from Spring's own
+ * {@code http.server.requests} and the result caches from {@code cache.gets}.
+ *
+ * Every meter is registered up front and looked up by enum ordinal, so recording on the query
+ * path is an add to an existing meter and allocates nothing. Until bound, recording is a no-op.
+ */
+final class AnalysisMetrics implements MeterBinder, PropertyTable.QueryListener {
+
+    /** Why an estimator call failed. */
+    enum EstimatorError {
+        TIMEOUT, CONNECT, HTTP, INVALID_RESPONSE, BULKHEAD_FULL, OTHER
+    }
+
+    private static final PropertyTable.AccessPath[] PATHS = PropertyTable.AccessPath.values();
+    private static final EstimatorError[] ERRORS = EstimatorError.values();
+
+    private final Supplier<DatasetVersion> dataset;
+    private final AtomicInteger estimatorInFlight = new AtomicInteger();
+
+    private volatile DistributionSummary[] rowsExamined;
+    private volatile DistributionSummary[] rowsReturned;
+    private volatile Counter cubeAnswers;
+    private volatile Counter scanAnswers;
+    private volatile Timer estimatorSuccesses;
+    private volatile Timer estimatorFailures;
+    private volatile Counter[] estimatorErrors;
+    private volatile Timer loads;
+    private volatile Timer failedLoads;
+
+    AnalysisMetrics(Supplier<DatasetVersion> dataset) {
+        this.dataset = dataset;
+    }
+
+    @Override
+    public void queried(PropertyTable.AccessPath path, long examined, long returned) {
+        DistributionSummary[] examinedByPath = rowsExamined;
+        DistributionSummary[] returnedByPath = rowsReturned;
+        if (examinedByPath != null) {
+            examinedByPath[path.ordinal()].record(examined);
+            returnedByPath[path.ordinal()].record(returned);
+        }
+    }
+
+    /** A distribution or bedroom average answered from the cube ({@code true}) or by scanning. */
+    void distributionAnswered(boolean fromCube) {
+        Counter counter = fromCube ? cubeAnswers : scanAnswers;
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /** Marks an estimator call as started; returns its start time for {@link #estimatorCallEnded}. */
+    long estimatorCallStarted() {
+        estimatorInFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /** Ends a call begun with {@link #estimatorCallStarted}; {@code error} is null on success. */
+    void estimatorCallEnded(long started, EstimatorError error) {
+        estimatorInFlight.decrementAndGet();
+        long elapsed = System.nanoTime() - started;
+        Timer timer = error == null ? estimatorSuccesses : estimatorFailures;
+        if (timer != null) {
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+        }
+        if (error != null) {
+            estimatorRejected(error);
+        }
+    }
+
+    /** An estimator call that never went out, e.g. because the bulkhead was full. */
+    void estimatorRejected(EstimatorError error) {
+        Counter[] counters = estimatorErrors;
+        if (counters != null) {
+            counters[error.ordinal()].increment();
+        }
+    }
+
+    void datasetLoaded(long elapsedNanos, boolean succeeded) {
+        Timer timer = succeeded ? loads : failedLoads;
+        if (timer != null) {
+            timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        DistributionSummary[] examined = new DistributionSummary[PATHS.length];
+        DistributionSummary[] returned = new DistributionSummary[PATHS.length];
+        for (PropertyTable.AccessPath path : PATHS) {
+            examined[path.ordinal()] = DistributionSummary.builder("analysis.query.rows.examined")
+                    .description("Rows read per selection or aggregation, by access path")
+                    .baseUnit("rows")
+                    .tag("path", tagValue(path))
+                    .publishPercentiles(0.5, 0.9, 0.99)
+                    .register(registry);
+            returned[path.ordinal()] = DistributionSummary.builder("analysis.query.rows.returned")
+                    .description("Rows matched per selection (groups per aggregation), by access path")
+                    .baseUnit("rows")
+                    .tag("path", tagValue(path))
+                    .publishPercentiles(0.5, 0.9, 0.99)
+                    .register(registry);
+        }
+        rowsReturned = returned;
+        rowsExamined = examined;
+
+        cubeAnswers = distributionAnswers(registry, MarketAnalysisService.PATH_CUBE);
+        scanAnswers = distributionAnswers(registry, MarketAnalysisService.PATH_SCAN);
+
+        estimatorSuccesses = estimatorCalls(registry, "success");
+        estimatorFailures = estimatorCalls(registry, "error");
+        Counter[] errors = new Counter[ERRORS.length];
+        for (EstimatorError error : ERRORS) {
+            errors[error.ordinal()] = Counter.builder("analysis.estimator.errors")
+                    .description("Failed or rejected estimator calls, by cause")
+                    .tag("type", tagValue(error))
+                    .register(registry);
+        }
+        estimatorErrors = errors;
+        Gauge.builder("analysis.estimator.in-flight", estimatorInFlight, AtomicInteger::get)
+                .description("Estimator calls currently waiting for a response")
+                .register(registry);
+
+        loads = datasetLoads(registry, "success");
+        failedLoads = datasetLoads(registry, "failure");
+        Gauge.builder("analysis.dataset.rows", dataset, d -> d.get().table().size())
+                .description("Rows in the dataset version being served")
+                .baseUnit("rows")
+                .register(registry);
+        Gauge.builder("analysis.dataset.version", dataset, d -> d.get().version())
+                .description("Dataset version being served; goes up by one per reload")
+                .register(registry);
+    }
+
+    private static Counter distributionAnswers(MeterRegistry registry, String path) {
+        return Counter.builder("analysis.distribution.answers")
+                .description("Distribution and bedroom-average answers, by whether the cube or a scan produced them")
+                .tag("path", path)
+                .register(registry);
+    }
+
+    private static Timer estimatorCalls(MeterRegistry registry, String outcome) {
+        return Timer.builder("analysis.estimator.calls")
+                .description("Estimator prediction round trips")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry);
+    }
+
+    private static Timer datasetLoads(MeterRegistry registry, String outcome) {
+        return Timer.builder("analysis.dataset.load")
+                .description("Time to load (parse or map) and index a dataset version")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.analysis_api.service;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+/**
+ * Cache keys for dataset queries: the current dataset version followed by the method arguments.
+ *
+ * After a reload every lookup misses on the new version, so an entry computed from the old
+ * dataset, even one written by a request that was still running during the swap, is never
+ * served again.
+ */
+@Component(DatasetKeyGenerator.BEAN_NAME)
+public class DatasetKeyGenerator implements KeyGenerator {
+
+    public static final String BEAN_NAME = "datasetKeyGenerator";
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        Object[] parts = new Object[params.length + 1];
+        parts[0] = ((MarketAnalysisService) target).getDataset().version();
+        System.arraycopy(params, 0, parts, 1, params.length);
+        return new SimpleKey(parts);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.analysis_api.service;
+
+import com.example.analysis_api.store.DataCube;
+import com.example.analysis_api.store.PropertyTable;
+
+import java.time.Instant;
+
+/**
+ * One immutable generation of the loaded dataset.
+ *
+ * A reload builds a new instance off to the side and swaps it in with a single volatile write;
+ * requests that already picked up the previous instance keep reading it until they finish.
+ * The version increases by one per successful load and is part of every cache key.
+ */
+public final class DatasetVersion {
+
+    static final DatasetVersion EMPTY = new DatasetVersion(0, PropertyTable.empty(), "none", Instant.EPOCH,
+            LocalPriceModel.EMPTY, null);
+
+    private final long version;
+    private final PropertyTable table;
+    private final String source;
+    private final Instant loadedAt;
+    private final double averagePrice;
+    private final LocalPriceModel priceModel;
+    private final DataCube cube;
+
+    DatasetVersion(long version, PropertyTable table, String source, Instant loadedAt, LocalPriceModel priceModel,
+                   DataCube cube) {
+        this.version = version;
+        this.table = table;
+        this.source = source;
+        this.loadedAt = loadedAt;
+        this.averagePrice = average(table.columns().price());
+        this.priceModel = priceModel;
+        this.cube = cube;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public PropertyTable table() {
+        return table;
+    }
+
+    // where the rows came from, e.g. "CSV file [/data/housing.csv]" or "snapshot /tmp/housing.snapshot"
+    public String source() {
+        return source;
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+
+    // mean price over all rows, worked out once per load; every what-if answer quotes it
+    public double averagePrice() {
+        return averagePrice;
+    }
+
+    // fallback what-if model, fitted on this version's rows
+    LocalPriceModel priceModel() {
+        return priceModel;
+    }
+
+    // pre-aggregated cells for this version's rows; null when the cube is disabled
+    DataCube cube() {
+        return cube;
+    }
+
+    private static double average(double[] prices) {
+        if (prices.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (double price : prices) {
+            sum += price;
+        }
+        return sum / prices.length;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.analysis_api.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the dataset when the {@code analysis.data.location} file is created or modified in
+ * {@code analysis.data.watch-dir}; other files in the directory are ignored.
+ *
+ * Copying a large file produces a burst of modify events, so the reload only starts once the
+ * directory has been quiet for {@code analysis.data.watch-quiet-ms}. Disabled when no
+ * directory is configured; when one is, the location must be a file directly inside it, or
+ * startup fails rather than watching for changes that would never be loaded.
+ */
+@Component
+public class DatasetWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(DatasetWatcher.class);
+
+    private final MarketAnalysisService analysisService;
+
+    @Value("${analysis.data.watch-dir:}")
+    private String watchDir = "";
+
+    @Value("${analysis.data.watch-quiet-ms:1000}")
+    private long quietMillis = 1000;
+
+    @Value("${analysis.data.location:classpath:data/housing.csv}")
+    private Resource location;
+
+    private WatchService watchService;
+    private Path fileName;
+
+    public DatasetWatcher(MarketAnalysisService analysisService) {
+        this.analysisService = analysisService;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (watchDir.isBlank()) {
+            return;
+        }
+        Path dir = Path.of(watchDir).toAbsolutePath().normalize();
+        Path file = locationFile();
+        if (file == null || !dir.equals(file.getParent())) {
+            throw new IllegalStateException("analysis.data.location (" + location.getDescription()
+                    + ") must be a file directly inside analysis.data.watch-dir (" + dir + ")");
+        }
+        fileName = file.getFileName();
+        watchService = FileSystems.getDefault().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(this::watch, "dataset-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} for dataset changes.", file);
+    }
+
+    // null when the location is not a file on disk, e.g. a CSV on the classpath of a jar
+    private Path locationFile() {
+        try {
+            return location.isFile() ? location.getFile().toPath().toAbsolutePath().normalize() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                // wait for a change to the dataset file, then for the burst of events behind it to settle
+                if (!drainDatasetChanges(watchService.take())) {
+                    continue;
+                }
+                WatchKey key;
+                while ((key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+                    drainDatasetChanges(key);
+                }
+                analysisService.reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    private boolean drainDatasetChanges(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // an overflow may have swallowed the event for the file
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.analysis_api.service;
+
+import java.util.Locale;
+
+/** Which model answers what-ifs; configured as {@code estimator.mode}. */
+enum EstimatorMode {
+    /** The estimator service only; failures surface as 502 / 503. */
+    REMOTE,
+    /** The ridge model fitted on the loaded dataset only. */
+    LOCAL,
+    /** The estimator, falling back to the local model on error or after estimator.fallback-timeout. */
+    LOCAL_ON_TIMEOUT,
+    /** The estimator if it answers within estimator.hedge-delay, otherwise the local model. */
+    HEDGED;
+
+    static EstimatorMode parse(String value) {
+        String name = value.trim().replace('-', '_').toUpperCase(Locale.ROOT);
+        for (EstimatorMode mode : values()) {
+            if (mode.name().equals(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown estimator.mode '" + value
+                + "'; expected remote, local, local-on-timeout or hedged");
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.analysis_api.service;
+
+import com.example.analysis_api.model.WhatIfRequest;
+import com.example.analysis_api.store.PropertyColumns;
+
+import java.util.Arrays;
+
+/**
+ * Ridge regression of price on the seven what-if features, fitted in-process on the loaded
+ * dataset. It answers what-ifs when the estimator is not used or not reachable.
+ *
+ * Features are standardized before fitting, so the one penalty {@code lambda} treats them
+ * alike regardless of scale; the model is then solved in closed form from the 7x7 normal
+ * equations (Cholesky). Fitting takes three passes over the columns (the last one scores the
+ * fit), predicting a handful of multiplications. Predictions are clamped at zero, since a
+ * linear model will happily quote negative prices far outside the data.
+ */
+final class LocalPriceModel {
+
+    private static final int FEATURES = 7;
+
+    // a floor on the penalty keeps the system solvable when a feature is constant
+    private static final double MIN_LAMBDA = 1e-9;
+
+    static final LocalPriceModel EMPTY = new LocalPriceModel(new double[FEATURES], ones(),
+            new double[FEATURES], 0, 0, 0);
+
+    private final double[] mean;
+    private final double[] scale;
+    private final double[] weights;
+    private final double intercept;
+    private final int rows;
+    private final double rSquared;
+
+    private LocalPriceModel(double[] mean, double[] scale, double[] weights,
+                            double intercept, int rows, double rSquared) {
+        this.mean = mean;
+        this.scale = scale;
+        this.weights = weights;
+        this.intercept = intercept;
+        this.rows = rows;
+        this.rSquared = rSquared;
+    }
+
+    /** Fits the model; with no rows it predicts zero. */
+    static LocalPriceModel fit(PropertyColumns columns, double lambda) {
+        int n = columns.size();
+        if (n == 0) {
+            return EMPTY;
+        }
+        double[][] x = featureColumns(columns);
+        double[] y = columns.price();
+
+        double[] mean = new double[FEATURES];
+        double yMean = 0;
+        for (int row = 0; row < n; row++) {
+            for (int j = 0; j < FEATURES; j++) {
+                mean[j] += x[j][row];
+            }
+            yMean += y[row];
+        }
+        for (int j = 0; j < FEATURES; j++) {
+            mean[j] /= n;
+        }
+        yMean /= n;
+
+        // centred cross-products: gram = X'X, xy = X'y
+        double[][] gram = new double[FEATURES][FEATURES];
+        double[] xy = new double[FEATURES];
+        double[] centred = new double[FEATURES];
+        for (int row = 0; row < n; row++) {
+            double dy = y[row] - yMean;
+            for (int j = 0; j < FEATURES; j++) {
+                centred[j] = x[j][row] - mean[j];
+                xy[j] += centred[j] * dy;
+            }
+            for (int j = 0; j < FEATURES; j++) {
+                for (int k = 0; k <= j; k++) {
+                    gram[j][k] += centred[j] * centred[k];
+                }
+            }
+        }
+
+        // standardize: scale_j = population std dev; constant features get scale 1 and weight ~0
+        double[] scale = new double[FEATURES];
+        for (int j = 0; j < FEATURES; j++) {
+            double sd = Math.sqrt(gram[j][j] / n);
+            scale[j] = sd > 0 ? sd : 1;
+        }
+        double[][] a = new double[FEATURES][FEATURES];
+        double[] b = new double[FEATURES];
+        for (int j = 0; j < FEATURES; j++) {
+            for (int k = 0; k <= j; k++) {
+                a[j][k] = gram[j][k] / (scale[j] * scale[k]);
+            }
+            a[j][j] += Math.max(lambda, MIN_LAMBDA);
+            b[j] = xy[j] / scale[j];
+        }
+        double[] weights = solveCholesky(a, b);
+
+        return new LocalPriceModel(mean, scale, weights, yMean, n,
+                rSquared(x, y, mean, scale, weights, yMean));
+    }
+
+    double predict(WhatIfRequest req) {
+        double[] features = {
+                req.getSquareFootage(), req.getBedrooms(), req.getBathrooms(), req.getYearBuilt(),
+                req.getLotSize(), req.getDistanceToCityCenter(), req.getSchoolRating()
+        };
+        double price = intercept;
+        for (int j = 0; j < FEATURES; j++) {
+            price += weights[j] * (features[j] - mean[j]) / scale[j];
+        }
+        return Math.max(0, price);
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    // coefficient of determination on the training rows
+    double rSquared() {
+        return rSquared;
+    }
+
+    private static double rSquared(double[][] x, double[] y, double[] mean, double[] scale,
+                                   double[] weights, double yMean) {
+        double residual = 0;
+        double total = 0;
+        for (int row = 0; row < y.length; row++) {
+            double fitted = yMean;
+            for (int j = 0; j < FEATURES; j++) {
+                fitted += weights[j] * (x[j][row] - mean[j]) / scale[j];
+            }
+            residual += (y[row] - fitted) * (y[row] - fitted);
+            total += (y[row] - yMean) * (y[row] - yMean);
+        }
+        return total > 0 ? 1 - residual / total : 0;
+    }
+
+    // same order as the estimator payload: square_footage ... school_rating
+    private static double[][] featureColumns(PropertyColumns columns) {
+        return new double[][]{
+                columns.squareFootage(),
+                toDouble(columns.bedrooms()),
+                columns.bathrooms(),
+                toDouble(columns.yearBuilt()),
+                columns.lotSize(),
+                columns.distanceToCityCenter(),
+                columns.schoolRating()
+        };
+    }
+
+    private static double[] ones() {
+        double[] ones = new double[FEATURES];
+        Arrays.fill(ones, 1);
+        return ones;
+    }
+
+    private static double[] toDouble(int[] values) {
+        double[] out = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            out[i] = values[i];
+        }
+        return out;
+    }
+
+    /** Solves a x = b for symmetric positive definite a, given its lower triangle. */
+    private static double[] solveCholesky(double[][] a, double[] b) {
+        int m = b.length;
+        double[][] l = new double[m][m];
+        for (int j = 0; j < m; j++) {
+            double diagonal = a[j][j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= l[j][k] * l[j][k];
+            }
+            l[j][j] = Math.sqrt(diagonal);
+            for (int i = j + 1; i < m; i++) {
+                double sum = a[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i][k] * l[j][k];
+                }
+                l[i][j] = sum / l[j][j];
+            }
+        }
+        // forward: L z = b, then back: L' x = z
+        double[] z = new double[m];
+        for (int i = 0; i < m; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= l[i][k] * z[k];
+            }
+            z[i] = sum / l[i][i];
+        }
+        double[] x = new double[m];
+        for (int i = m - 1; i >= 0; i--) {
+            double sum = z[i];
+            for (int k = i + 1; k < m; k++) {
+                sum -= l[k][i] * x[k];
+            }
+            x[i] = sum / l[i][i];
+        }
+        return x;
+    }
+}
@@ -1,156 +1,680 @@
 package com.example.analysis_api.service;
 
+import com.example.analysis_api.diagnostics.AggregationEvent;
+import com.example.analysis_api.diagnostics.DatasetLoadEvent;
+import com.example.analysis_api.diagnostics.EstimatorCallEvent;
+import com.example.analysis_api.ingest.ParallelCsvLoader;
+import com.example.analysis_api.model.AggregationResult;
+import com.example.analysis_api.model.DistributionBucket;
 import com.example.analysis_api.model.MarketSummary;
+import com.example.analysis_api.model.MeasureStats;
+import com.example.analysis_api.model.PriceQuantiles;
 import com.example.analysis_api.model.PropertyRecord;
+import com.example.analysis_api.model.SegmentPage;
+import com.example.analysis_api.model.WhatIfBatchResult;
 import com.example.analysis_api.model.WhatIfRequest;
 import com.example.analysis_api.model.WhatIfResponse;
+import com.example.analysis_api.store.Aggregation;
+import com.example.analysis_api.store.Bucketing;
+import com.example.analysis_api.store.ColumnarSnapshot;
+import com.example.analysis_api.store.DataCube;
+import com.example.analysis_api.store.GroupTotals;
+import com.example.analysis_api.store.KllSketch;
+import com.example.analysis_api.store.Metric;
+import com.example.analysis_api.store.ParallelScan;
+import com.example.analysis_api.store.PropertyColumns;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import com.example.analysis_api.store.RowOrder;
+import com.example.analysis_api.store.SortedIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.core.io.Resource;
 import org.springframework.http.*;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 import com.example.analysis_api.model.GroupedStatistics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.server.ResponseStatusException;
 import jakarta.annotation.PostConstruct;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.LongSupplier;
 
 @Service
 public class MarketAnalysisService {
 
-    @Value("classpath:data/housing.csv")
+    private static final Logger log = LoggerFactory.getLogger(MarketAnalysisService.class);
+
+    // caches holding query results of a particular dataset version
+    static final List<String> DATASET_CACHES = List.of("marketSummary", "avgPriceByBedrooms", "distributions", "segments");
+
+    @Value("${analysis.data.location:classpath:data/housing.csv}")
     private Resource housingDataResource;
 
     @Value("${estimator.api.url:http://localhost:8000/predict}")
     private String estimatorUrl;
 
-    // This will hold all properties in memory
-    private List<PropertyRecord> properties = new ArrayList<>();
+    // binary columnar copy of the CSV, read onto the heap at startup; blank disables it
+    @Value("${analysis.data.snapshot-path:}")
+    private String snapshotPath = "";
+
+    // CSV parser threads (0 = one per core) and the byte range each of them parses at a time
+    @Value("${analysis.ingest.threads:0}")
+    private int ingestThreads = 0;
+
+    @Value("${analysis.ingest.chunk-bytes:" + ParallelCsvLoader.DEFAULT_CHUNK_BYTES + "}")
+    private int ingestChunkBytes = ParallelCsvLoader.DEFAULT_CHUNK_BYTES;
+
+    // scenarios per batch request, and per estimator call within a batch
+    @Value("${analysis.what-if.max-batch-size:1000}")
+    private int maxWhatIfBatch = 1000;
+
+    @Value("${analysis.what-if.batch-chunk-size:50}")
+    private int whatIfChunkSize = 50;
+
+    @Value("${analysis.segments.default-page-size:100}")
+    private int defaultPageSize = 100;
+
+    @Value("${analysis.segments.max-page-size:1000}")
+    private int maxPageSize = 1000;
+
+    // row ids of recent segments, bounded by their total count; narrower filters reuse wider ones
+    @Value("${analysis.cache.segment-rows.max-ids:4000000}")
+    private long segmentRowCacheIds = 4_000_000;
+
+    private final SegmentRowCache segmentRows = new SegmentRowCache(segmentRowCacheIds);
+
+    // Price quantiles: exact for segments of up to exact-threshold rows, otherwise read from a
+    // KLL sketch of sketch-k items per level (rank error ~1.3% at 200), kept per segment
+    @Value("${analysis.quantiles.exact-threshold:100000}")
+    private int exactQuantileRows = 100_000;
+
+    @Value("${analysis.quantiles.sketch-k:" + KllSketch.DEFAULT_K + "}")
+    private int quantileSketchK = KllSketch.DEFAULT_K;
+
+    private final PriceSketchCache priceSketches = new PriceSketchCache(1024);
+
+    // how a distribution was answered: summed from the data cube, or aggregated from the rows
+    public static final String PATH_CUBE = "cube";
+    public static final String PATH_SCAN = "scan";
+
+    static final List<Double> DEFAULT_QUANTILES = List.of(0.1, 0.25, 0.5, 0.75, 0.9, 0.99);
+    private static final int MAX_QUANTILES = 100;
+
+    // Optional: lets a reload drop entries of the dataset it replaced (absent when built by hand in tests)
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+
+    // This will hold all properties in memory: one primitive array per field plus sorted indexes.
+    // Readers take one volatile read and work on that version; a reload swaps in a new one.
+    private volatile DatasetVersion dataset = DatasetVersion.EMPTY;
+
+    // builds reloads one at a time, away from request threads
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "dataset-reload");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // a reload that has been requested but not started yet; later requests join it
+    private CompletableFuture<DatasetVersion> queuedReload;
+
+    // Estimator calls: pooled keep-alive connections with bounded connect / read waits
+    @Value("${estimator.api.connect-timeout:2s}")
+    private Duration estimatorConnectTimeout = Duration.ofSeconds(2);
+
+    @Value("${estimator.api.read-timeout:10s}")
+    private Duration estimatorReadTimeout = Duration.ofSeconds(10);
+
+    // Bulkhead: estimator calls in flight at once, and how long a call may wait for a free slot
+    // before it is turned away, so a slow estimator cannot tie up more than this
+    @Value("${estimator.api.max-concurrent-calls:32}")
+    private int estimatorMaxConcurrentCalls = 32;
+
+    @Value("${estimator.api.bulkhead-wait:250ms}")
+    private Duration estimatorBulkheadWait = Duration.ofMillis(250);
+
+    private volatile Semaphore estimatorBulkhead = new Semaphore(estimatorMaxConcurrentCalls);
+
+    // what-if work runs here, one cheap virtual thread per call, never on a servlet thread
+    private final ExecutorService estimatorExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     private final RestTemplate restTemplate = new RestTemplate();
 
+    // Opt-in memo of what-if predictions. Features are rounded to the given steps
+    // (<feature>:<step>, unlisted features must match exactly) and entries are dropped when the
+    // estimator reports a new model version; see PredictionCache
+    @Value("${estimator.cache.enabled:false}")
+    private boolean predictionCacheEnabled = false;
+
+    @Value("${estimator.cache.quantization:" + DEFAULT_QUANTIZATION + "}")
+    private String predictionQuantization = DEFAULT_QUANTIZATION;
+
+    @Value("${estimator.cache.max-entries:100000}")
+    private long predictionCacheEntries = 100_000;
+
+    @Value("${estimator.cache.model-check-interval:30s}")
+    private Duration modelCheckInterval = Duration.ofSeconds(30);
+
+    // blank: the estimator URL with /predict replaced by /model-info
+    @Value("${estimator.api.model-info-url:}")
+    private String modelInfoUrl = "";
+
+    private static final String DEFAULT_QUANTIZATION =
+            "squareFootage:10,lotSize:100,distanceToCityCenter:0.1,schoolRating:0.1";
+
+    // null while the cache is disabled
+    private volatile PredictionCache predictionCache;
+
+    // Opt-in coalescing of concurrent single what-ifs into multi-row estimator calls: at most
+    // max-batch-size rows per call, and no row waits longer than max-wait for a busy estimator
+    @Value("${estimator.batching.enabled:false}")
+    private boolean whatIfBatchingEnabled = false;
+
+    @Value("${estimator.batching.max-batch-size:64}")
+    private int whatIfMaxBatch = 64;
+
+    @Value("${estimator.batching.max-wait:5ms}")
+    private Duration whatIfMaxWait = Duration.ofMillis(5);
+
+    // null while batching is disabled
+    private volatile WhatIfCoalescer whatIfCoalescer;
+
+    // Who answers what-ifs: remote (the estimator), local (the ridge model fitted on the dataset),
+    // local-on-timeout (the estimator, falling back to local after fallback-timeout or an error)
+    // or hedged (the same, but only waiting hedge-delay for the estimator)
+    @Value("${estimator.mode:remote}")
+    private String estimatorMode = "remote";
+
+    @Value("${estimator.fallback-timeout:1s}")
+    private Duration fallbackTimeout = Duration.ofSeconds(1);
+
+    @Value("${estimator.hedge-delay:100ms}")
+    private Duration hedgeDelay = Duration.ofMillis(100);
+
+    @Value("${analysis.local-model.ridge-lambda:1.0}")
+    private double ridgeLambda = 1.0;
+
+    // Pre-aggregated cube over bedrooms x price band x school rating band, rebuilt on every load;
+    // bedroom distributions and counts whose bounds line up with the bands are read from it
+    @Value("${analysis.cube.enabled:true}")
+    private boolean cubeEnabled = true;
+
+    @Value("${analysis.cube.price-band-width:50000}")
+    private double cubePriceBandWidth = 50_000;
+
+    @Value("${analysis.cube.school-rating-band-width:1.0}")
+    private double cubeRatingBandWidth = 1.0;
+
+    // Full scans and aggregations over at least parallel-threshold rows are split across
+    // scan-threads fork-join workers (0 = one per core); a threshold of 0 keeps them sequential
+    @Value("${analysis.scan.parallel-threshold:" + ParallelScan.DEFAULT_THRESHOLD + "}")
+    private int parallelScanThreshold = ParallelScan.DEFAULT_THRESHOLD;
+
+    @Value("${analysis.scan.threads:0}")
+    private int scanThreads = 0;
+
+    private ParallelScan parallelScan = ParallelScan.SEQUENTIAL;
+
+    private MeterRegistry meterRegistry;
+
+    private final AnalysisMetrics analysisMetrics = new AnalysisMetrics(() -> dataset);
+
     @PostConstruct
+    void start() {
+        EstimatorMode.parse(estimatorMode); // fail at startup on a typo rather than on the first what-if
+        configureEstimatorClient();
+        configurePredictionCache();
+        configureCoalescer();
+        parallelScan = ParallelScan.create(parallelScanThreshold, scanThreads);
+        log.info("Scans: {}.", parallelScan);
+        loadData();
+    }
+
     public void loadData() {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(housingDataResource.getInputStream(), StandardCharsets.UTF_8))) {
-
-            String header = reader.readLine(); // skip header line
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                // We expect 9 columns:
-                // id, square_footage, bedrooms, bathrooms, year_built,
-                // lot_size, distance_to_city_center, school_rating, price
-                if (parts.length < 9)
-                    continue;
-
-                double squareFootage = Double.parseDouble(parts[1]);
-                int bedrooms = Integer.parseInt(parts[2]);
-                double bathrooms = Double.parseDouble(parts[3]);
-                int yearBuilt = Integer.parseInt(parts[4]);
-                double lotSize = Double.parseDouble(parts[5]);
-                double distanceToCityCenter = Double.parseDouble(parts[6]);
-                double schoolRating = Double.parseDouble(parts[7]);
-                double price = Double.parseDouble(parts[8]);
-
-                properties.add(new PropertyRecord(
-                        price,
-                        squareFootage,
-                        bedrooms,
-                        bathrooms,
-                        yearBuilt,
-                        lotSize,
-                        distanceToCityCenter,
-                        schoolRating));
-            }
-            System.out.println("Loaded " + properties.size() + " property records.");
+        segmentRows.resize(segmentRowCacheIds);
+        dataset = loadDataset(dataset.version() + 1);
+    }
+
+    private void configureEstimatorClient() {
+        // the JDK client keeps idle connections open and reuses them across calls
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1) // plain HTTP/1.1 estimator: skip the h2c upgrade attempt
+                .connectTimeout(estimatorConnectTimeout)
+                .executor(estimatorExecutor)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(http);
+        requestFactory.setReadTimeout(estimatorReadTimeout);
+        restTemplate.setRequestFactory(requestFactory);
+        estimatorBulkhead = new Semaphore(Math.max(1, estimatorMaxConcurrentCalls));
+    }
+
+    private void configurePredictionCache() {
+        if (!predictionCacheEnabled) {
+            return;
+        }
+        predictionCache = new PredictionCache(PredictionCache.parseSteps(predictionQuantization),
+                predictionCacheEntries, modelCheckInterval, this::fetchModelVersion, estimatorExecutor);
+        if (meterRegistry != null) {
+            predictionCache.bindTo(meterRegistry);
+        }
+    }
+
+    private void configureCoalescer() {
+        if (!whatIfBatchingEnabled) {
+            return;
+        }
+        whatIfCoalescer = new WhatIfCoalescer(whatIfMaxBatch, whatIfMaxWait,
+                instances -> predict(Map.of("instances", instances)), estimatorExecutor);
+        if (meterRegistry != null) {
+            whatIfCoalescer.bindTo(meterRegistry);
+        }
+    }
+
+    @Autowired(required = false)
+    void bindMetrics(MeterRegistry registry) {
+        meterRegistry = registry; // the prediction cache and coalescer are built later, in start()
+        segmentRows.bindTo(registry);
+        priceSketches.bindTo(registry);
+        analysisMetrics.bindTo(registry);
+    }
+
+    /**
+     * Rebuilds the dataset from the configured CSV in the background and swaps it in.
+     *
+     * Queries keep being answered from the current version while the new one loads, and
+     * requests already running finish on the version they started with. Calls made while a
+     * reload is waiting to start share it; a call made while one is running queues another, so
+     * a change that lands mid-load is still picked up. If loading fails, the current version
+     * stays in place and the future completes exceptionally.
+     */
+    public synchronized CompletableFuture<DatasetVersion> reload() {
+        if (queuedReload == null) {
+            CompletableFuture<DatasetVersion> future = new CompletableFuture<>();
+            queuedReload = future;
+            reloadExecutor.execute(() -> {
+                synchronized (this) {
+                    queuedReload = null;
+                }
+                try {
+                    DatasetVersion next = loadDataset(dataset.version() + 1);
+                    dataset = next;
+                    evictCaches();
+                    future.complete(next);
+                } catch (RuntimeException e) {
+                    log.error("Dataset reload failed; still serving version {}.", dataset.version(), e);
+                    future.completeExceptionally(new ResponseStatusException(
+                            HttpStatus.INTERNAL_SERVER_ERROR, "Dataset reload failed", e));
+                }
+            });
+        }
+        return queuedReload;
+    }
+
+    @PreDestroy
+    void stop() {
+        if (whatIfCoalescer != null) {
+            whatIfCoalescer.close();
+        }
+        reloadExecutor.shutdownNow();
+        estimatorExecutor.shutdownNow();
+        parallelScan.close();
+    }
+
+    // entries are keyed by version, so this only frees memory held by older versions
+    private void evictCaches() {
+        segmentRows.clear();
+        priceSketches.clear();
+        if (cacheManager == null) {
+            return;
+        }
+        for (String name : DATASET_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private DatasetVersion loadDataset(long version) {
+        long started = System.nanoTime();
+        try {
+            ColumnarSnapshot.SourceStamp stamp = sourceStamp();
+            Path snapshot = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+
+            // the mapped snapshot is much cheaper than parsing, as long as it matches the CSV
+            PropertyColumns columns = null;
+            if (snapshot != null) {
+                DatasetLoadEvent phase = DatasetLoadEvent.start("read-snapshot", version);
+                columns = readSnapshot(snapshot, stamp);
+                phase.end(columns == null ? 0 : columns.size());
+            }
+            String source = "snapshot " + snapshot;
+            if (columns == null) {
+                DatasetLoadEvent phase = DatasetLoadEvent.start("parse-csv", version);
+                columns = parseCsv();
+                phase.end(columns.size());
+                source = "CSV " + housingDataResource.getDescription();
+                if (snapshot != null) {
+                    phase = DatasetLoadEvent.start("write-snapshot", version);
+                    writeSnapshot(columns, stamp, snapshot);
+                    phase.end(columns.size());
+                }
+            }
+
+            DatasetLoadEvent indexing = DatasetLoadEvent.start("index", version);
+            PropertyTable table = new PropertyTable(columns, parallelScan, analysisMetrics);
+            indexing.end(table.size());
+            log.info("Loaded {} property records from {} in {} ms (dataset version {}).",
+                    table.size(), source, (System.nanoTime() - started) / 1_000_000, version);
+
+            long fitStarted = System.nanoTime();
+            DatasetLoadEvent fitting = DatasetLoadEvent.start("fit-model", version);
+            LocalPriceModel priceModel = LocalPriceModel.fit(columns, ridgeLambda);
+            fitting.end(priceModel.rows());
+            log.info("Fitted local price model on {} rows in {} ms (R-squared {}).", priceModel.rows(),
+                    (System.nanoTime() - fitStarted) / 1_000_000, String.format("%.3f", priceModel.rSquared()));
+            DatasetLoadEvent cubing = DatasetLoadEvent.start("build-cube", version);
+            DataCube cube = buildCube(table);
+            cubing.end(table.size());
+            DatasetVersion loaded = new DatasetVersion(version, table, source, Instant.now(), priceModel, cube);
+            analysisMetrics.datasetLoaded(System.nanoTime() - started, true);
+            return loaded;
         } catch (Exception e) {
+            analysisMetrics.datasetLoaded(System.nanoTime() - started, false);
             throw new RuntimeException("Failed to load housing data", e);
         }
     }
 
-    // Aggregate statistics – cached
-    @Cacheable("marketSummary")
-    public MarketSummary getMarketSummary() {
-        if (properties.isEmpty()) {
-            return new MarketSummary(0, 0, 0, 0, 0);
+    // null when disabled or misconfigured; queries then always scan
+    private DataCube buildCube(PropertyTable table) {
+        if (!cubeEnabled) {
+            return null;
         }
+        long started = System.nanoTime();
+        try {
+            DataCube cube = DataCube.build(table, cubePriceBandWidth, cubeRatingBandWidth);
+            log.info("Built data cube of {} cells in {} ms.", cube.cells(), (System.nanoTime() - started) / 1_000_000);
+            return cube;
+        } catch (IllegalArgumentException e) {
+            log.warn("Not building the data cube: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private PropertyColumns parseCsv() throws IOException {
+        ParallelCsvLoader loader = new ParallelCsvLoader(ingestThreads, ingestChunkBytes);
+        // a plain file is mapped chunk by chunk; a resource inside the jar has to be read into memory
+        ParallelCsvLoader.Result result = housingDataResource.isFile()
+                ? loader.load(housingDataResource.getFile().toPath())
+                : loader.load(housingDataResource.getContentAsByteArray());
+
+        if (result.malformedRows() > 0) {
+            for (ParallelCsvLoader.MalformedRow row : result.samples()) {
+                log.warn("Skipped malformed CSV line {}: {}", row.line(), row.reason());
+            }
+            log.warn("Skipped {} malformed CSV line(s) in total.", result.malformedRows());
+        }
+        return result.columns();
+    }
+
+    // CSV length + modification time; a snapshot built from anything else is stale
+    private ColumnarSnapshot.SourceStamp sourceStamp() throws IOException {
+        return new ColumnarSnapshot.SourceStamp(
+                housingDataResource.contentLength(), housingDataResource.lastModified());
+    }
 
-        List<Double> prices = properties.stream()
-                .map(PropertyRecord::getPrice)
-                .sorted()
-                .collect(Collectors.toList());
+    private PropertyColumns readSnapshot(Path snapshot, ColumnarSnapshot.SourceStamp stamp) {
+        try {
+            Optional<PropertyColumns> columns = ColumnarSnapshot.read(snapshot, stamp);
+            if (columns.isEmpty() && Files.exists(snapshot)) {
+                log.info("Snapshot {} is stale or unreadable; re-parsing CSV.", snapshot);
+            }
+            return columns.orElse(null);
+        } catch (IOException e) {
+            log.warn("Could not read snapshot {}; re-parsing CSV.", snapshot, e);
+            return null;
+        }
+    }
 
-        double min = prices.get(0);
-        double max = prices.get(prices.size() - 1);
-        double sum = prices.stream().mapToDouble(Double::doubleValue).sum();
-        double avg = sum / prices.size();
+    private void writeSnapshot(PropertyColumns columns, ColumnarSnapshot.SourceStamp stamp, Path snapshot) {
+        try {
+            ColumnarSnapshot.write(columns, stamp, snapshot);
+            log.info("Wrote snapshot {} ({} rows).", snapshot, columns.size());
+        } catch (IOException e) {
+            // a missing snapshot only costs the next start a CSV parse
+            log.warn("Could not write snapshot {}.", snapshot, e);
+        }
+    }
 
-        double median;
+    // Aggregate statistics – cached
+    @Cacheable(cacheNames = "marketSummary", keyGenerator = DatasetKeyGenerator.BEAN_NAME)
+    public MarketSummary getMarketSummary() {
+        DatasetVersion current = dataset;
+        // the price index is the price column already sorted, so this is O(1)
+        SortedIndex prices = current.table().priceIndex();
         int n = prices.size();
-        if (n % 2 == 0) {
-            median = (prices.get(n / 2 - 1) + prices.get(n / 2)) / 2.0;
-        } else {
-            median = prices.get(n / 2);
+        if (n == 0) {
+            return new MarketSummary(0, 0, 0, 0, 0);
         }
 
-        return new MarketSummary(avg, min, max, median, prices.size());
+        double min = prices.valueAt(0);
+        double max = prices.valueAt(n - 1);
+        double avg = current.averagePrice();
+        double median = exactQuantile(0.5, n, prices::valueAt);
+
+        return new MarketSummary(avg, min, max, median, n);
     }
 
     // Grouped statistics: average price by number of bedrooms (for a filtered
     // subset)
-    @Cacheable("avgPriceByBedrooms")
-    public List<GroupedStatistics> getAveragePriceByBedrooms(
+    @Cacheable(cacheNames = "avgPriceByBedrooms", keyGenerator = DatasetKeyGenerator.BEAN_NAME)
+    public AggregationResult<GroupedStatistics> getAveragePriceByBedrooms(
             Double minPrice,
             Double maxPrice,
             Integer minBedrooms,
             Integer maxBedrooms,
             Double minSchoolRating,
             Double maxSchoolRating) {
-        // 1) Get the filtered subset first, reusing your existing filter logic
-        List<PropertyRecord> filtered = filterProperties(
-                minPrice,
-                maxPrice,
-                minBedrooms,
-                maxBedrooms,
-                minSchoolRating,
-                maxSchoolRating);
-
-        if (filtered.isEmpty()) {
-            return List.of();
-        }
-
-        // 2) Group by bedrooms
-        Map<Integer, List<PropertyRecord>> byBedrooms = filtered.stream()
-                .collect(Collectors.groupingBy(PropertyRecord::getBedrooms));
-
-        // 3) For each group, compute count + average price, and map to GroupedStatistic
-        return byBedrooms.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey()) // sort by bedroom count
-                .map(entry -> {
-                    int bedrooms = entry.getKey();
-                    List<PropertyRecord> group = entry.getValue();
-
-                    double avgPrice = group.stream()
-                            .mapToDouble(PropertyRecord::getPrice)
-                            .average()
-                            .orElse(0.0);
-
-                    return new GroupedStatistics(
-                            String.valueOf(bedrooms), // label
-                            group.size(),
-                            avgPrice);
-                })
-                .collect(Collectors.toList());
+        DatasetVersion version = dataset;
+        PropertyTable current = version.table();
+        if (current.size() == 0) {
+            return new AggregationResult<>(List.of(), PATH_SCAN);
+        }
+        RowFilter filter = rowFilter(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+
+        RowFilter canonical = current.canonical(filter);
+
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+
+        // 0) Filters on cube boundaries add up pre-aggregated cells instead of reading rows
+        Aggregation cells = cubeAnswer(version, canonical, Metric.BEDROOMS, Bucketing.exact(), List.of(Metric.PRICE));
+        if (cells != null) {
+            commit(event, Metric.BEDROOMS, canonical, PATH_CUBE, () -> 0, cells.groups());
+            List<GroupedStatistics> result = new ArrayList<>(cells.groups());
+            for (int g = 0; g < cells.groups(); g++) {
+                result.add(new GroupedStatistics(
+                        String.valueOf((int) cells.keyAt(g)),
+                        cells.rowsAt(g),
+                        cells.sumAt(0, g) / cells.rowsAt(g)));
+            }
+            return new AggregationResult<>(result, PATH_CUBE);
+        }
+
+        // 1) Count + price sum per bedroom value, from bitmap intersections and the price column
+        GroupTotals totals = current.priceTotalsByBedrooms(filter);
+        commit(event, Metric.BEDROOMS, canonical, PATH_SCAN, () -> {
+            long rows = 0;
+            for (int slot = 0; slot < totals.groups(); slot++) {
+                rows += totals.countAt(slot);
+            }
+            return rows;
+        }, totals.groups());
+
+        // 2) Emit non-empty groups, already sorted by bedroom count
+        List<GroupedStatistics> result = new ArrayList<>();
+        for (int slot = 0; slot < totals.groups(); slot++) {
+            long count = totals.countAt(slot);
+            if (count > 0) {
+                result.add(new GroupedStatistics(
+                        String.valueOf(totals.keyAt(slot)), // label
+                        count,
+                        totals.sumAt(slot) / count));
+            }
+        }
+        return new AggregationResult<>(result, PATH_SCAN);
+    }
+
+    /**
+     * Distribution of a segment over any numeric column: per bucket of {@code dimension}, the
+     * row count and count / sum / min / max / average of each measure ({@code price} when none
+     * is given), computed in one pass over the segment.
+     *
+     * Buckets are the column's exact values by default; {@code bucketWidth} (with optional
+     * {@code origin}, default 0) gives fixed-width intervals such as decades of yearBuilt, and
+     * {@code boundaries} gives custom edges such as school rating bands or distance rings.
+     */
+    @Cacheable(cacheNames = "distributions", keyGenerator = DatasetKeyGenerator.BEAN_NAME)
+    public AggregationResult<DistributionBucket> getDistribution(
+            String dimension,
+            Double bucketWidth,
+            Double origin,
+            List<Double> boundaries,
+            List<String> measures,
+            Double minPrice,
+            Double maxPrice,
+            Integer minBedrooms,
+            Integer maxBedrooms,
+            Double minSchoolRating,
+            Double maxSchoolRating) {
+        Metric groupBy;
+        Bucketing bucketing;
+        List<Metric> metrics = new ArrayList<>();
+        try {
+            groupBy = Metric.parse(dimension);
+            if (bucketWidth != null && boundaries != null && !boundaries.isEmpty()) {
+                throw new IllegalArgumentException("Use either bucketWidth or boundaries, not both");
+            }
+            if (bucketWidth != null) {
+                bucketing = Bucketing.width(bucketWidth, origin == null ? 0 : origin);
+            } else if (boundaries != null && !boundaries.isEmpty()) {
+                bucketing = Bucketing.boundaries(boundaries.stream().mapToDouble(Double::doubleValue).toArray());
+            } else {
+                bucketing = Bucketing.exact();
+            }
+            for (String measure : measures == null || measures.isEmpty() ? List.of(Metric.PRICE.key()) : measures) {
+                Metric metric = Metric.parse(measure);
+                if (!metrics.contains(metric)) {
+                    metrics.add(metric);
+                }
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        DatasetVersion current = dataset;
+        PropertyTable table = current.table();
+        RowFilter canonical = table.canonical(rowFilter(
+                minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating));
+        if (canonical.matchesNothing()) {
+            return new AggregationResult<>(List.of(), PATH_SCAN);
+        }
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+        Aggregation aggregation = cubeAnswer(current, canonical, groupBy, bucketing, metrics);
+        String path = aggregation != null ? PATH_CUBE : PATH_SCAN;
+        if (aggregation != null) {
+            commit(event, groupBy, canonical, PATH_CUBE, () -> 0, aggregation.groups());
+        } else {
+            // an unfiltered request walks the columns directly instead of a list of every row id
+            int[] rows = table.count(canonical) == table.size() ? null : segmentRows.select(current, canonical);
+            try {
+                aggregation = table.aggregate(rows, groupBy, bucketing, metrics);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+            long scanned = rows == null ? table.size() : rows.length;
+            commit(event, groupBy, canonical, PATH_SCAN, () -> scanned, aggregation.groups());
+        }
+
+        List<DistributionBucket> result = new ArrayList<>(aggregation.groups());
+        for (int g = 0; g < aggregation.groups(); g++) {
+            double key = aggregation.keyAt(g);
+            Map<String, MeasureStats> stats = new LinkedHashMap<>();
+            for (int m = 0; m < metrics.size(); m++) {
+                long count = aggregation.countAt(m, g);
+                double sum = aggregation.sumAt(m, g);
+                stats.put(metrics.get(m).key(), count == 0
+                        ? new MeasureStats(0, 0, null, null, null)
+                        : new MeasureStats(count, sum, aggregation.minAt(m, g), aggregation.maxAt(m, g), sum / count));
+            }
+            result.add(new DistributionBucket(bucketing.label(key), bucketing.lower(key), bucketing.upper(key),
+                    aggregation.rowsAt(g), stats));
+        }
+        return new AggregationResult<>(result, path);
+    }
+
+    // filter.toString() and the row count only run while a recording wants the event
+    private static void commit(AggregationEvent event, Metric dimension, RowFilter filter,
+                               String path, LongSupplier rows, int groups) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.dimension = dimension.key();
+            event.filter = filter.toString();
+            event.path = path;
+            event.rows = rows.getAsLong();
+            event.groups = groups;
+            event.commit();
+        }
+    }
+
+    // the cube's answer when it holds exactly this aggregation for this filter, else null
+    private Aggregation cubeAnswer(DatasetVersion current, RowFilter canonical,
+                                   Metric groupBy, Bucketing bucketing, List<Metric> metrics) {
+        DataCube cube = current.cube();
+        Aggregation answer = cube == null || groupBy != Metric.BEDROOMS || bucketing.mode() != Bucketing.Mode.EXACT
+                || !metrics.equals(List.of(Metric.PRICE)) ? null : cube.priceByBedrooms(canonical);
+        analysisMetrics.distributionAnswered(answer != null);
+        return answer;
     }
 
     // Filtered list for segments
-    @Cacheable("segments")
+    @Cacheable(cacheNames = "segments", keyGenerator = DatasetKeyGenerator.BEAN_NAME)
     public List<PropertyRecord> filterProperties(
             Double minPrice,
             Double maxPrice,
@@ -158,18 +682,445 @@ public class MarketAnalysisService {
             Integer maxBedrooms,
             Double minSchoolRating,
             Double maxSchoolRating) {
-        return properties.stream()
-                .filter(p -> minPrice == null || p.getPrice() >= minPrice)
-                .filter(p -> maxPrice == null || p.getPrice() <= maxPrice)
-                .filter(p -> minBedrooms == null || p.getBedrooms() >= minBedrooms)
-                .filter(p -> maxBedrooms == null || p.getBedrooms() <= maxBedrooms)
-                .filter(p -> minSchoolRating == null || p.getSchoolRating() >= minSchoolRating)
-                .filter(p -> maxSchoolRating == null || p.getSchoolRating() <= maxSchoolRating)
-                .collect(Collectors.toList());
+        DatasetVersion current = dataset;
+        int[] rows = segmentRows.select(current, rowFilter(minPrice, maxPrice, minBedrooms, maxBedrooms,
+                minSchoolRating, maxSchoolRating));
+
+        PropertyColumns cols = current.table().columns();
+        List<PropertyRecord> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(cols.toRecord(row));
+        }
+        return result;
+    }
+
+    // One page of a segment, walked in sort order from the cursor position
+    public SegmentPage getSegmentPage(
+            Double minPrice,
+            Double maxPrice,
+            Integer minBedrooms,
+            Integer maxBedrooms,
+            Double minSchoolRating,
+            Double maxSchoolRating,
+            String sort,
+            String cursor,
+            Integer limit) {
+        DatasetVersion pinned = dataset;
+        RowOrder order = parseOrder(sort);
+        int from = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            SegmentCursor decoded = SegmentCursor.decode(cursor);
+            if (decoded.datasetVersion() != pinned.version()) {
+                // positions refer to the old row order; resuming would skip or repeat rows
+                throw new ResponseStatusException(HttpStatus.GONE,
+                        "Cursor belongs to dataset version " + decoded.datasetVersion()
+                                + ", which has been replaced; start again without a cursor");
+            }
+            if (sort != null && !decoded.order().key().equals(order.key())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Cursor was issued for sort=" + decoded.order().key());
+            }
+            order = decoded.order();
+            from = decoded.position();
+        }
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        PropertyTable current = pinned.table();
+        PropertyColumns cols = current.columns();
+        List<PropertyRecord> items = new ArrayList<>(Math.min(pageSize, current.size()));
+        int next = current.walk(
+                rowFilter(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating),
+                order,
+                from,
+                row -> {
+                    if (items.size() == pageSize) {
+                        return false; // first row of the next page
+                    }
+                    items.add(cols.toRecord(row));
+                    return true;
+                });
+
+        String nextCursor = next < 0 ? null : new SegmentCursor(pinned.version(), order, next).encode();
+        return new SegmentPage(items, order.key(), nextCursor);
+    }
+
+    // Hands each row of a segment to the sink as the scan reaches it; nothing is collected
+    public void forEachInSegment(
+            Double minPrice,
+            Double maxPrice,
+            Integer minBedrooms,
+            Integer maxBedrooms,
+            Double minSchoolRating,
+            Double maxSchoolRating,
+            String sort,
+            Integer limit,
+            Consumer<PropertyRecord> sink) {
+        RowOrder order = parseOrder(sort);
+        long max = limit == null ? Long.MAX_VALUE : Math.max(0, limit);
+
+        PropertyTable current = dataset.table();
+        PropertyColumns cols = current.columns();
+        long[] emitted = {0};
+        current.walk(
+                rowFilter(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating),
+                order,
+                0,
+                row -> {
+                    if (emitted[0] == max) {
+                        return false;
+                    }
+                    sink.accept(cols.toRecord(row));
+                    emitted[0]++;
+                    return true;
+                });
+    }
+
+    private static RowFilter rowFilter(Double minPrice, Double maxPrice, Integer minBedrooms, Integer maxBedrooms,
+                                       Double minSchoolRating, Double maxSchoolRating) {
+        try {
+            return RowFilter.of(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static RowOrder parseOrder(String sort) {
+        try {
+            return RowOrder.parse(sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Price quantiles of a segment ({@code quantiles} defaults to p10, p25, p50, p75, p90, p99).
+     *
+     * Exact where that is cheap: without filters, or with only price bounds, the prices are a
+     * range of the price index and already sorted; other segments of up to
+     * {@code analysis.quantiles.exact-threshold} rows are sorted. Larger segments are answered
+     * from a KLL sketch of their prices, built once per segment and dataset version. Exact
+     * quantiles interpolate between neighbouring prices (the median of an even count is the
+     * mean of the middle two); sketch quantiles are always one of the prices.
+     */
+    public PriceQuantiles getPriceQuantiles(
+            Double minPrice,
+            Double maxPrice,
+            Integer minBedrooms,
+            Integer maxBedrooms,
+            Double minSchoolRating,
+            Double maxSchoolRating,
+            List<Double> quantiles) {
+        List<Double> requested = quantiles == null || quantiles.isEmpty() ? DEFAULT_QUANTILES : quantiles;
+        if (requested.size() > MAX_QUANTILES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_QUANTILES + " quantiles can be requested at once");
+        }
+        for (Double q : requested) {
+            if (q == null || !(q >= 0 && q <= 1)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantiles must be between 0 and 1");
+            }
+        }
+
+        DatasetVersion current = dataset;
+        PropertyTable table = current.table();
+        RowFilter canonical = table.canonical(rowFilter(
+                minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating));
+        Map<String, Double> values = new LinkedHashMap<>();
+        if (canonical.matchesNothing()) {
+            return new PriceQuantiles(0, PriceQuantiles.EXACT, 0, values);
+        }
+
+        int[] range = table.priceOnlyRange(canonical);
+        if (range != null) {
+            SortedIndex prices = table.priceIndex();
+            int from = range[0];
+            int n = range[1] - from;
+            for (double q : requested) {
+                values.put(quantileLabel(q), exactQuantile(q, n, i -> prices.valueAt(from + i)));
+            }
+            return new PriceQuantiles(n, PriceQuantiles.EXACT, 0, values);
+        }
+
+        // counting is cheap; rows are only selected when the answer is not already sketched
+        if (table.count(canonical) <= exactQuantileRows) {
+            int[] rows = segmentRows.select(current, canonical);
+            double[] column = table.columns().price();
+            double[] prices = new double[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                prices[i] = column[rows[i]];
+            }
+            Arrays.sort(prices);
+            for (double q : requested) {
+                values.put(quantileLabel(q), exactQuantile(q, prices.length, i -> prices[i]));
+            }
+            return new PriceQuantiles(rows.length, PriceQuantiles.EXACT, 0, values);
+        }
+
+        KllSketch sketch = priceSketches.get(current, canonical, quantileSketchK,
+                () -> segmentRows.select(current, canonical));
+        for (double q : requested) {
+            values.put(quantileLabel(q), sketch.quantile(q));
+        }
+        return new PriceQuantiles(sketch.count(), PriceQuantiles.SKETCH, sketch.normalizedRankError(), values);
+    }
+
+    // linear interpolation between the order statistics around q * (n - 1); n > 0
+    private static double exactQuantile(double q, int n, IntToDoubleFunction sortedValueAt) {
+        double position = q * (n - 1);
+        int lower = (int) Math.floor(position);
+        int upper = (int) Math.ceil(position);
+        double low = sortedValueAt.applyAsDouble(lower);
+        return low + (position - lower) * (sortedValueAt.applyAsDouble(upper) - low);
+    }
+
+    // 0.1 -> "p10", 0.999 -> "p99.9"
+    private static String quantileLabel(double q) {
+        return "p" + BigDecimal.valueOf(q).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+
+    // Number of properties in a segment, without materializing it
+    public long countProperties(
+            Double minPrice,
+            Double maxPrice,
+            Integer minBedrooms,
+            Integer maxBedrooms,
+            Double minSchoolRating,
+            Double maxSchoolRating) {
+        DatasetVersion current = dataset;
+        RowFilter filter = rowFilter(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+        DataCube cube = current.cube();
+        if (cube != null) {
+            long count = cube.count(current.table().canonical(filter));
+            if (count >= 0) {
+                return count;
+            }
+        }
+        return current.table().count(filter);
     }
 
-    /// What-if: call Python ML model container
+    /// What-if: call Python ML model container, or the local model depending on estimator.mode
     public WhatIfResponse runWhatIf(WhatIfRequest req) {
+        DatasetVersion current = dataset;
+        EstimatorMode mode = EstimatorMode.parse(estimatorMode);
+        if (mode == EstimatorMode.LOCAL) {
+            return localWhatIf(current, req);
+        }
+        if (mode == EstimatorMode.REMOTE) {
+            return new WhatIfResponse(remotePrediction(req), current.averagePrice());
+        }
+
+        // the remote call keeps running past the wait, so a late answer still reaches the prediction cache
+        Duration wait = mode == EstimatorMode.HEDGED ? hedgeDelay : fallbackTimeout;
+        CompletableFuture<Double> remote = CompletableFuture.supplyAsync(() -> remotePrediction(req), estimatorExecutor);
+        try {
+            return new WhatIfResponse(remote.get(wait.toNanos(), TimeUnit.NANOSECONDS), current.averagePrice());
+        } catch (TimeoutException e) {
+            log.debug("Estimator did not answer within {}; using the local model.", wait);
+        } catch (ExecutionException e) {
+            log.debug("Estimator call failed; using the local model.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return localWhatIf(current, req);
+    }
+
+    private static WhatIfResponse localWhatIf(DatasetVersion current, WhatIfRequest req) {
+        return new WhatIfResponse(current.priceModel().predict(req), current.averagePrice(), WhatIfResponse.LOCAL);
+    }
+
+    // the estimator's prediction, memoized and coalesced when those are enabled
+    private double remotePrediction(WhatIfRequest req) {
+        PredictionCache cache = predictionCache;
+        PredictionCache.Key key = cache == null ? null : cache.key(req);
+        Double cached = key == null ? null : cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        WhatIfCoalescer coalescer = whatIfCoalescer;
+        double predictedPrice = coalescer != null ? predictCoalesced(coalescer, req) : predictOne(req);
+        if (key != null) {
+            cache.put(key, predictedPrice);
+        }
+        return predictedPrice;
+    }
+
+    private double predictOne(WhatIfRequest req) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("features", features(req));
+
+        List<?> list = predict(body);
+        if (list.isEmpty() || !(list.get(0) instanceof Number num)) {
+            // payload shape not as expected
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_GATEWAY,
+                    "Estimator service returned an invalid predictions payload");
+        }
+        return num.doubleValue();
+    }
+
+    // waits for the row's share of a coalesced call; its errors surface as they would unbatched
+    private double predictCoalesced(WhatIfCoalescer coalescer, WhatIfRequest req) {
+        try {
+            return coalescer.submit(features(req)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /** {@link #runWhatIf} on a virtual thread; the calling thread is free while the estimator answers. */
+    public CompletableFuture<WhatIfResponse> runWhatIfAsync(WhatIfRequest req) {
+        return CompletableFuture.supplyAsync(() -> runWhatIf(req), estimatorExecutor);
+    }
+
+    /** {@link #runWhatIfBatch} on a virtual thread. */
+    public CompletableFuture<List<WhatIfBatchResult>> runWhatIfBatchAsync(List<WhatIfRequest> requests) {
+        return CompletableFuture.supplyAsync(() -> runWhatIfBatch(requests), estimatorExecutor);
+    }
+
+    /**
+     * What-if for many scenarios at once.
+     *
+     * Every scenario is validated up front; the valid ones go to the estimator as multi-row
+     * {@code {"instances": [...]}} payloads of at most {@code analysis.what-if.batch-chunk-size}
+     * rows, so a batch costs one round trip per chunk rather than per scenario; the chunks are
+     * sent concurrently, within the estimator bulkhead. Results come back
+     * in submission order. A scenario that fails validation, or whose chunk the estimator
+     * rejects, gets an error entry without affecting the others. In the fallback modes the batch
+     * waits for the estimator no longer than a single what-if would, and answers whatever is
+     * still missing from the local model.
+     */
+    public List<WhatIfBatchResult> runWhatIfBatch(List<WhatIfRequest> requests) {
+        if (requests.size() > maxWhatIfBatch) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch may contain at most " + maxWhatIfBatch + " scenarios");
+        }
+
+        WhatIfBatchResult[] results = new WhatIfBatchResult[requests.size()];
+        List<Integer> valid = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            String violation = validate(requests.get(i));
+            if (violation != null) {
+                results[i] = WhatIfBatchResult.failure(i, violation);
+            } else {
+                valid.add(i);
+            }
+        }
+
+        DatasetVersion current = dataset;
+        double marketAvg = current.averagePrice();
+        EstimatorMode mode = EstimatorMode.parse(estimatorMode);
+        if (mode == EstimatorMode.LOCAL) {
+            for (int index : valid) {
+                results[index] = WhatIfBatchResult.success(index, localWhatIf(current, requests.get(index)));
+            }
+            return Arrays.asList(results);
+        }
+
+        int chunkSize = Math.max(1, whatIfChunkSize);
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<CompletableFuture<WhatIfBatchResult[]>> calls = new ArrayList<>();
+        for (int from = 0; from < valid.size(); from += chunkSize) {
+            List<Integer> chunk = valid.subList(from, Math.min(from + chunkSize, valid.size()));
+            chunks.add(chunk);
+            calls.add(CompletableFuture.supplyAsync(
+                    () -> predictChunk(requests, chunk, marketAvg), estimatorExecutor));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new));
+        if (mode == EstimatorMode.REMOTE) {
+            all.join();
+        } else {
+            // as for a single what-if: chunks still out after the wait are answered locally and
+            // keep running in the background; they write only to their own result arrays
+            Duration wait = mode == EstimatorMode.HEDGED ? hedgeDelay : fallbackTimeout;
+            try {
+                all.get(wait.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                log.debug("Estimator did not answer every chunk within {}; using the local model for the rest.", wait);
+            } catch (ExecutionException e) {
+                log.debug("Estimator call failed; using the local model.", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (int c = 0; c < chunks.size(); c++) {
+            CompletableFuture<WhatIfBatchResult[]> call = calls.get(c);
+            if (call.isDone() && !call.isCompletedExceptionally()) {
+                WhatIfBatchResult[] answered = call.join();
+                List<Integer> chunk = chunks.get(c);
+                for (int k = 0; k < chunk.size(); k++) {
+                    results[chunk.get(k)] = answered[k];
+                }
+            }
+        }
+        if (mode != EstimatorMode.REMOTE) {
+            // fallback modes: scenarios whose chunk the estimator failed or did not answer in time
+            // get the local model's answer
+            for (int index : valid) {
+                if (results[index] == null || results[index].getResult() == null) {
+                    results[index] = WhatIfBatchResult.success(index, localWhatIf(current, requests.get(index)));
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // results of one chunk, in the chunk's order
+    private WhatIfBatchResult[] predictChunk(List<WhatIfRequest> requests,
+                                             List<Integer> chunk,
+                                             double marketAvg) {
+        WhatIfBatchResult[] results = new WhatIfBatchResult[chunk.size()];
+        List<Map<String, Object>> instances = new ArrayList<>(chunk.size());
+        for (int index : chunk) {
+            instances.add(features(requests.get(index)));
+        }
+        try {
+            List<?> predictions = predict(Map.of("instances", instances));
+            if (predictions.size() != chunk.size()) {
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                        "Estimator service returned " + predictions.size() + " predictions for "
+                                + chunk.size() + " instances");
+            }
+            for (int k = 0; k < chunk.size(); k++) {
+                int index = chunk.get(k);
+                results[k] = predictions.get(k) instanceof Number num
+                        ? WhatIfBatchResult.success(index, new WhatIfResponse(num.doubleValue(), marketAvg))
+                        : WhatIfBatchResult.failure(index, "Estimator service returned an invalid prediction");
+            }
+        } catch (ResponseStatusException e) {
+            for (int k = 0; k < chunk.size(); k++) {
+                results[k] = WhatIfBatchResult.failure(chunk.get(k), e.getReason());
+            }
+        }
+        return results;
+    }
+
+    // Constraint violations of one scenario as a single message; null when it is valid
+    private static String validate(WhatIfRequest req) {
+        if (req == null) {
+            return "Scenario is missing";
+        }
+        Set<ConstraintViolation<WhatIfRequest>> violations = Validators.DEFAULT.validate(req);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        List<String> messages = new ArrayList<>(violations.size());
+        for (ConstraintViolation<WhatIfRequest> violation : violations) {
+            messages.add(violation.getMessage());
+        }
+        Collections.sort(messages); // violation order is unspecified
+        return String.join("; ", messages);
+    }
+
+    // Built on first use; the same constraints @Valid applies to a single what-if
+    private static final class Validators {
+        static final Validator DEFAULT = Validation.buildDefaultValidatorFactory().getValidator();
+    }
+
+    private static Map<String, Object> features(WhatIfRequest req) {
         Map<String, Object> features = new HashMap<>();
         features.put("square_footage", req.getSquareFootage());
         features.put("bedrooms", req.getBedrooms());
@@ -178,15 +1129,22 @@ public class MarketAnalysisService {
         features.put("lot_size", req.getLotSize());
         features.put("distance_to_city_center", req.getDistanceToCityCenter());
         features.put("school_rating", req.getSchoolRating());
+        return features;
+    }
 
-        Map<String, Object> body = new HashMap<>();
-        body.put("features", features);
-
+    // POSTs the payload to the estimator and returns its "predictions" list; 502 on any failure,
+    // 503 when the bulkhead is full
+    private List<?> predict(Map<String, Object> body) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
 
+        Semaphore bulkhead = estimatorBulkhead;
+        acquire(bulkhead);
         final ResponseEntity<Map> response;
+        EstimatorCallEvent event = new EstimatorCallEvent();
+        event.begin();
+        long started = analysisMetrics.estimatorCallStarted();
         try {
             response = restTemplate.exchange(
                     estimatorUrl, // configurable
@@ -195,34 +1153,113 @@ public class MarketAnalysisService {
                     Map.class);
         } catch (Exception e) {
             // ML service unreachable / timeout / connection error
+            estimatorCallEnded(event, started, body, estimatorError(e));
             throw new ResponseStatusException(
                     HttpStatus.BAD_GATEWAY,
                     "Estimator service is unavailable",
                     e);
+        } finally {
+            bulkhead.release();
         }
 
         if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
             // ML service responded but not OK
+            estimatorCallEnded(event, started, body, response.getStatusCode().is2xxSuccessful()
+                    ? AnalysisMetrics.EstimatorError.INVALID_RESPONSE : AnalysisMetrics.EstimatorError.HTTP);
             throw new ResponseStatusException(
                     HttpStatus.BAD_GATEWAY,
                     "Estimator service returned a non-success response");
         }
 
-        Object preds = response.getBody().get("predictions");
-        if (!(preds instanceof List<?> list) || list.isEmpty() || !(list.get(0) instanceof Number num)) {
+        if (!(response.getBody().get("predictions") instanceof List<?> list)) {
             // payload shape not as expected
+            estimatorCallEnded(event, started, body, AnalysisMetrics.EstimatorError.INVALID_RESPONSE);
             throw new ResponseStatusException(
                     HttpStatus.BAD_GATEWAY,
                     "Estimator service returned an invalid predictions payload");
         }
+        estimatorCallEnded(event, started, body, null);
+        return list;
+    }
 
-        double predictedPrice = num.doubleValue();
+    private void estimatorCallEnded(EstimatorCallEvent event, long started, Map<String, Object> body,
+                                    AnalysisMetrics.EstimatorError error) {
+        analysisMetrics.estimatorCallEnded(started, error);
+        event.end();
+        if (event.shouldCommit()) {
+            event.instances = body.get("instances") instanceof List<?> instances ? instances.size() : 1;
+            event.outcome = error == null ? "success" : AnalysisMetrics.tagValue(error);
+            event.commit();
+        }
+    }
 
-        double marketAvg = getMarketSummary().getAvgPrice();
-        return new WhatIfResponse(predictedPrice, marketAvg);
+    // what went wrong with an estimator request, from the exception and its causes
+    private static AnalysisMetrics.EstimatorError estimatorError(Exception e) {
+        if (e instanceof RestClientResponseException) {
+            return AnalysisMetrics.EstimatorError.HTTP;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof HttpTimeoutException || t instanceof SocketTimeoutException) {
+                return AnalysisMetrics.EstimatorError.TIMEOUT;
+            }
+            if (t instanceof ConnectException) {
+                return AnalysisMetrics.EstimatorError.CONNECT;
+            }
+        }
+        return e instanceof RestClientException && !(e instanceof ResourceAccessException)
+                ? AnalysisMetrics.EstimatorError.INVALID_RESPONSE : AnalysisMetrics.EstimatorError.OTHER;
+    }
+
+    // The estimator's model version, for the prediction cache: an explicit version field when
+    // model-info has one, otherwise the whole document, so any change to it counts as a new model
+    private String fetchModelVersion() {
+        String url = modelInfoUrl.isBlank() ? estimatorUrl.replaceFirst("/predict$", "/model-info") : modelInfoUrl;
+        Map<?, ?> info = restTemplate.getForObject(url, Map.class);
+        if (info == null) {
+            throw new IllegalStateException("Empty model-info response from " + url);
+        }
+        for (String field : List.of("model_version", "version")) {
+            if (info.get(field) != null) {
+                return String.valueOf(info.get(field));
+            }
+        }
+        return String.valueOf(info);
+    }
+
+    private void acquire(Semaphore bulkhead) {
+        try {
+            if (bulkhead.tryAcquire(estimatorBulkheadWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        analysisMetrics.estimatorRejected(AnalysisMetrics.EstimatorError.BULKHEAD_FULL);
+        throw new ResponseStatusException(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "Estimator service is busy; try again shortly");
     }
 
     public List<PropertyRecord> getAllProperties() {
-        return properties;
+        PropertyColumns cols = dataset.table().columns();
+        List<PropertyRecord> all = new ArrayList<>(cols.size());
+        for (int row = 0; row < cols.size(); row++) {
+            all.add(cols.toRecord(row));
+        }
+        return all;
+    }
+
+    public PropertyColumns getColumns() {
+        return dataset.table().columns();
+    }
+
+    // The loaded table with its indexes; immutable, so callers can scan it without locking
+    public PropertyTable getTable() {
+        return dataset.table();
+    }
+
+    // The current dataset version; pin it once when several reads must agree
+    public DatasetVersion getDataset() {
+        return dataset;
     }
 }
@@ -0,0 +1,232 @@
+package com.example.analysis_api.service;
+
+import com.example.analysis_api.model.WhatIfRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Memo of estimator predictions for what-if scenarios.
+ *
+ * Each feature is rounded to a configurable step before it becomes part of the key, so
+ * scenarios that differ by less than a step (a house with 10 more square feet, say) share the
+ * first prediction made for them. Features without a step must match exactly.
+ *
+ * Keys also carry the estimator's model version, read from its model-info endpoint at most
+ * once per check interval on a background thread. A new version drops every entry. While the
+ * version is unknown (before the first check, or after a failed one) nothing is served from
+ * or stored in the cache, so a model change can never be masked by stale answers.
+ */
+final class PredictionCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictionCache.class);
+
+    static final String[] FEATURES = {
+            "squareFootage", "bedrooms", "bathrooms", "yearBuilt",
+            "lotSize", "distanceToCityCenter", "schoolRating"
+    };
+
+    private final double[] steps;
+    private final Cache<Key, Double> predictions;
+    private final Duration checkInterval;
+    private final Supplier<String> modelVersionSource;
+    private final Executor refresher;
+
+    private volatile String modelVersion;
+    private volatile long lastCheckNanos;
+    private volatile boolean checkedOnce;
+    private final AtomicBoolean checking = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    /**
+     * @param steps              rounding step per feature, keyed by {@link #FEATURES} name;
+     *                           missing or non-positive means exact
+     * @param modelVersionSource fetches the current model version; may throw
+     * @param refresher          runs version checks, off the request thread
+     */
+    PredictionCache(Map<String, Double> steps,
+                    long maxEntries,
+                    Duration checkInterval,
+                    Supplier<String> modelVersionSource,
+                    Executor refresher) {
+        this.steps = new double[FEATURES.length];
+        for (int i = 0; i < FEATURES.length; i++) {
+            this.steps[i] = steps.getOrDefault(FEATURES[i], 0.0);
+        }
+        this.predictions = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        this.checkInterval = checkInterval;
+        this.modelVersionSource = modelVersionSource;
+        this.refresher = refresher;
+    }
+
+    /**
+     * Parses {@code feature:step} pairs, e.g. {@code squareFootage:10,lotSize:100}.
+     *
+     * @throws IllegalArgumentException for an unknown feature or a malformed step
+     */
+    static Map<String, Double> parseSteps(String spec) {
+        Map<String, Double> steps = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return steps;
+        }
+        for (String pair : spec.split(",")) {
+            String[] parts = pair.trim().split(":");
+            if (parts.length != 2 || !isFeature(parts[0].trim())) {
+                throw new IllegalArgumentException("Invalid quantization entry '" + pair.trim()
+                        + "'; expected <feature>:<step> with feature one of " + String.join(", ", FEATURES));
+            }
+            steps.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+        }
+        return steps;
+    }
+
+    private static boolean isFeature(String name) {
+        for (String feature : FEATURES) {
+            if (feature.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // model version + one bucket number per feature
+    record Key(String modelVersion, long squareFootage, long bedrooms, long bathrooms, long yearBuilt,
+               long lotSize, long distanceToCityCenter, long schoolRating) {
+    }
+
+    /**
+     * The cache key for a scenario under the current model, or null when the model version is
+     * not known yet; also starts a version check when one is due.
+     */
+    Key key(WhatIfRequest req) {
+        checkVersionIfDue();
+        String version = modelVersion;
+        if (version == null) {
+            bypassed.increment();
+            return null;
+        }
+        return new Key(version,
+                bucket(0, req.getSquareFootage()),
+                bucket(1, req.getBedrooms()),
+                bucket(2, req.getBathrooms()),
+                bucket(3, req.getYearBuilt()),
+                bucket(4, req.getLotSize()),
+                bucket(5, req.getDistanceToCityCenter()),
+                bucket(6, req.getSchoolRating()));
+    }
+
+    /** The memoized prediction, or null on a miss. */
+    Double get(Key key) {
+        Double prediction = predictions.getIfPresent(key);
+        if (prediction != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return prediction;
+    }
+
+    void put(Key key, double prediction) {
+        // a prediction that raced a model change is keyed by the old version and never read
+        if (key.modelVersion().equals(modelVersion)) {
+            predictions.put(key, prediction);
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long bypassed() {
+        return bypassed.sum();
+    }
+
+    String modelVersion() {
+        return modelVersion;
+    }
+
+    private long bucket(int feature, double value) {
+        double step = steps[feature];
+        return step > 0 ? Math.round(value / step) : Double.doubleToLongBits(value + 0.0); // +0.0 folds -0.0
+    }
+
+    private void checkVersionIfDue() {
+        long now = System.nanoTime();
+        // failed checks are retried on the same schedule, so a down estimator is not polled per request
+        boolean due = !checkedOnce || now - lastCheckNanos >= checkInterval.toNanos();
+        if (!due || !checking.compareAndSet(false, true)) {
+            return;
+        }
+        lastCheckNanos = now;
+        checkedOnce = true;
+        try {
+            refresher.execute(this::checkVersion);
+        } catch (RuntimeException e) {
+            checking.set(false);
+            throw e;
+        }
+    }
+
+    private void checkVersion() {
+        try {
+            String latest = modelVersionSource.get();
+            if (!Objects.equals(latest, modelVersion)) {
+                if (modelVersion != null) {
+                    log.info("Estimator model changed from {} to {}; dropping cached predictions.",
+                            modelVersion, latest);
+                }
+                predictions.invalidateAll();
+                modelVersion = latest;
+            }
+        } catch (RuntimeException e) {
+            // without a confirmed version, cached answers might belong to a replaced model
+            if (modelVersion != null) {
+                log.warn("Could not read the estimator model version; bypassing the prediction cache.", e);
+            }
+            modelVersion = null;
+            predictions.invalidateAll();
+        } finally {
+            checking.set(false);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindLookups(registry, "hit", PredictionCache::hits);
+        bindLookups(registry, "miss", PredictionCache::misses);
+        bindLookups(registry, "bypass", PredictionCache::bypassed);
+        Gauge.builder("analysis.prediction.cache.size", predictions, Cache::estimatedSize)
+                .description("Predictions currently memoized")
+                .register(registry);
+    }
+
+    private void bindLookups(MeterRegistry registry, String result,
+                             ToDoubleFunction<PredictionCache> count) {
+        FunctionCounter.builder("analysis.prediction.cache.lookups", this, count)
+                .description("What-if prediction lookups by outcome; bypass = model version unknown")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.analysis_api.service;
+
+import com.example.analysis_api.store.KllSketch;
+import com.example.analysis_api.store.RowFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.function.Supplier;
+
+/**
+ * Price sketches of recently queried segments, so asking the same segment for other quantiles
+ * costs a lookup rather than another pass over its rows.
+ *
+ * Keyed by dataset version, canonical filter and sketch size; a sketch is a few thousand
+ * doubles whatever the segment size, so entries are simply counted. Published as
+ * {@code cache.gets{cache=priceSketches}} alongside the Spring-managed caches.
+ */
+final class PriceSketchCache implements MeterBinder {
+
+    private final Cache<Key, KllSketch> sketches;
+
+    PriceSketchCache(long maxEntries) {
+        this.sketches = Caffeine.newBuilder().maximumSize(maxEntries).recordStats().build();
+    }
+
+    private record Key(long version, RowFilter filter, int k) {
+    }
+
+    /** The sketch of the segment's prices, built from {@code rows} on a miss. */
+    KllSketch get(DatasetVersion dataset, RowFilter canonical, int k, Supplier<int[]> rows) {
+        return sketches.get(new Key(dataset.version(), canonical, k), key -> {
+            double[] prices = dataset.table().columns().price();
+            KllSketch sketch = new KllSketch(k);
+            for (int row : rows.get()) {
+                sketch.update(prices[row]);
+            }
+            return sketch;
+        });
+    }
+
+    void clear() {
+        sketches.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // same tag keys as the Spring caches' cache.* meters, which Prometheus requires
+        CaffeineCacheMetrics.monitor(registry, sketches, "priceSketches",
+                "cache.manager", "priceSketchCache", "name", "priceSketches");
+    }
+}
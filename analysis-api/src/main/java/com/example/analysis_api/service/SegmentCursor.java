@@ -0,0 +1,64 @@
+package com.example.analysis_api.service;
+
+import com.example.analysis_api.store.RowOrder;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque page cursor for /market/segments: the dataset version it was issued for, the sort
+ * order, and the walk position to resume at.
+ *
+ * Encoded as URL-safe base64 so clients treat it as a token rather than building their own.
+ */
+final class SegmentCursor {
+
+    private static final String VERSION = "c2";
+
+    private final long datasetVersion;
+    private final RowOrder order;
+    private final int position;
+
+    SegmentCursor(long datasetVersion, RowOrder order, int position) {
+        this.datasetVersion = datasetVersion;
+        this.order = order;
+        this.position = position;
+    }
+
+    long datasetVersion() {
+        return datasetVersion;
+    }
+
+    RowOrder order() {
+        return order;
+    }
+
+    int position() {
+        return position;
+    }
+
+    String encode() {
+        String raw = VERSION + ":" + datasetVersion + ":" + order.key() + ":" + position;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static SegmentCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("unknown cursor format");
+            }
+            long datasetVersion = Long.parseLong(parts[1]);
+            int position = Integer.parseInt(parts[3]);
+            if (position < 0) {
+                throw new IllegalArgumentException("negative position");
+            }
+            return new SegmentCursor(datasetVersion, RowOrder.parse(parts[2]), position);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+        }
+    }
+}
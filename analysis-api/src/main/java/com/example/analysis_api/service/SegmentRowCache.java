@@ -0,0 +1,197 @@
+package com.example.analysis_api.service;
+
+import com.example.analysis_api.diagnostics.FilterScanEvent;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Filter-aware cache of segment row ids.
+ *
+ * Filters are canonicalized against the table first ({@link PropertyTable#canonical}), so
+ * slider positions that select the same rows share one entry. On a miss, a cached filter that
+ * contains the requested one can still answer it: its rows are a superset, and re-checking
+ * them is usually far cheaper than selecting from the whole dataset. That is the common case
+ * while a price slider is dragged inwards. The table decides when a superset is too wide to be
+ * worth it.
+ *
+ * Only the {@value #MAX_CANDIDATES} most recently used filters of the newest dataset version are
+ * considered as supersets, so a miss costs a bounded number of containment checks however large
+ * the cache grows.
+ *
+ * Entries are row-id arrays (4 bytes per row), bounded by their total length, and keyed by
+ * dataset version so a reload never mixes generations. Returned arrays are shared and must
+ * not be modified.
+ */
+final class SegmentRowCache implements MeterBinder {
+
+    // per-entry overhead, in row-id units, so tiny results still count against the bound
+    private static final int ENTRY_OVERHEAD = 16;
+
+    // filters of one dataset version checked as possible supersets on a miss
+    static final int MAX_CANDIDATES = 64;
+
+    private final Cache<Key, int[]> rows;
+    private final LongAdder exactHits = new LongAdder();
+    private final LongAdder subsumedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // most recently used first; guarded by itself, and only ever for candidatesVersion
+    private final ArrayDeque<Key> candidates = new ArrayDeque<>();
+    private long candidatesVersion = -1;
+
+    SegmentRowCache(long maxRowIds) {
+        this.rows = Caffeine.newBuilder()
+                .maximumWeight(maxRowIds)
+                .weigher((Key key, int[] value) -> ENTRY_OVERHEAD + value.length)
+                .build();
+    }
+
+    private record Key(long version, RowFilter filter) {
+    }
+
+    /** Row ids matching the filter in the given dataset version, in ascending row order. */
+    int[] select(DatasetVersion dataset, RowFilter filter) {
+        FilterScanEvent event = new FilterScanEvent();
+        event.begin();
+        PropertyTable table = dataset.table();
+        RowFilter canonical = table.canonical(filter);
+        int[] result = select(dataset.version(), table, canonical, event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.filter = canonical.toString();
+            event.matchedRows = result.length;
+            event.tableRows = table.size();
+            event.selectivity = table.size() == 0 ? 0 : (double) result.length / table.size();
+            event.commit();
+        }
+        return result;
+    }
+
+    private int[] select(long version, PropertyTable table, RowFilter canonical, FilterScanEvent event) {
+        event.outcome = "exact";
+        if (canonical.matchesNothing()) {
+            exactHits.increment();
+            return new int[0];
+        }
+
+        Key key = new Key(version, canonical);
+        int[] cached = rows.getIfPresent(key);
+        if (cached != null) {
+            exactHits.increment();
+            remember(key);
+            return cached;
+        }
+
+        int[] result = null;
+        int[] superset = smallestSuperset(key);
+        if (superset != null) {
+            result = table.selectWithin(canonical, superset);
+        }
+        if (result != null) {
+            subsumedHits.increment();
+            event.outcome = "subsumed";
+        } else {
+            result = table.select(canonical);
+            misses.increment();
+            event.outcome = "miss";
+        }
+        rows.put(key, result);
+        remember(key);
+        return result;
+    }
+
+    /** Changes the bound, e.g. once configuration has been injected; shrinking evicts at once. */
+    void resize(long maxRowIds) {
+        rows.policy().eviction().ifPresent(eviction -> eviction.setMaximum(maxRowIds));
+    }
+
+    void clear() {
+        rows.invalidateAll();
+        synchronized (candidates) {
+            candidates.clear();
+            candidatesVersion = -1;
+        }
+    }
+
+    long exactHits() {
+        return exactHits.sum();
+    }
+
+    long subsumedHits() {
+        return subsumedHits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    private int[] smallestSuperset(Key key) {
+        Key[] recent;
+        synchronized (candidates) {
+            if (candidatesVersion != key.version()) {
+                return null;
+            }
+            recent = candidates.toArray(new Key[0]);
+        }
+        Key bestKey = null;
+        int[] best = null;
+        for (Key candidate : recent) {
+            if (!candidate.filter().contains(key.filter())) {
+                continue;
+            }
+            // quietly, so probing does not count as a hit or keep the entry alive
+            int[] value = rows.policy().getIfPresentQuietly(candidate);
+            if (value != null && (best == null || value.length < best.length)) {
+                bestKey = candidate;
+                best = value;
+            }
+        }
+        if (bestKey != null) {
+            remember(bestKey);
+        }
+        return best;
+    }
+
+    // moves the key to the front of its version's candidates; a newer version starts a fresh list
+    private void remember(Key key) {
+        synchronized (candidates) {
+            if (key.version() < candidatesVersion) {
+                return;
+            }
+            if (key.version() > candidatesVersion) {
+                candidates.clear();
+                candidatesVersion = key.version();
+            } else {
+                candidates.remove(key);
+            }
+            candidates.addFirst(key);
+            if (candidates.size() > MAX_CANDIDATES) {
+                candidates.removeLast();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindLookups(registry, "exact", SegmentRowCache::exactHits);
+        bindLookups(registry, "subsumed", SegmentRowCache::subsumedHits);
+        bindLookups(registry, "miss", SegmentRowCache::misses);
+    }
+
+    private void bindLookups(MeterRegistry registry, String result,
+                             ToDoubleFunction<SegmentRowCache> count) {
+        FunctionCounter.builder("analysis.segment.cache.lookups", this, count)
+                .description("Segment row-id lookups by outcome; subsumed = answered from a cached wider filter")
+                .tag("result", result)
+                .register(registry);
+    }
+}
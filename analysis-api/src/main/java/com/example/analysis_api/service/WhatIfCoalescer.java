@@ -0,0 +1,177 @@
+package com.example.analysis_api.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Merges concurrent single what-if predictions into multi-row estimator calls.
+ *
+ * Callers queue their feature rows; one dispatcher thread turns the queue into batches of at
+ * most {@code maxBatch} rows and sends each as a single {@code {"instances": [...]}} request.
+ * The window is adaptive: while no batch is in flight, whatever is queued goes out at once,
+ * so a lone request pays no extra latency. While the estimator is busy, the dispatcher keeps
+ * collecting until the batch is full or its oldest row has waited {@code maxWait}, so batches
+ * grow with load and no caller waits longer than that for its turn.
+ */
+final class WhatIfCoalescer implements MeterBinder, AutoCloseable {
+
+    private record Pending(Map<String, Object> features, long enqueuedNanos, CompletableFuture<Double> result) {
+    }
+
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final Function<List<Map<String, Object>>, List<?>> estimator;
+    private final Executor executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Thread dispatcher;
+
+    // null until bound to a registry
+    private volatile DistributionSummary batchSizes;
+    private volatile Timer queueWaits;
+
+    /**
+     * @param estimator sends one batch and returns its predictions in row order; may throw
+     * @param executor  runs the estimator calls, so several batches can be in flight
+     */
+    WhatIfCoalescer(int maxBatch,
+                    Duration maxWait,
+                    Function<List<Map<String, Object>>, List<?>> estimator,
+                    Executor executor) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.estimator = estimator;
+        this.executor = executor;
+        this.dispatcher = new Thread(this::dispatchLoop, "what-if-coalescer");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /** Queues one feature row; the future completes with its prediction. */
+    CompletableFuture<Double> submit(Map<String, Object> features) {
+        CompletableFuture<Double> result = new CompletableFuture<>();
+        queue.add(new Pending(features, System.nanoTime(), result));
+        return result;
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (true) {
+                Pending first = queue.take();
+                List<Pending> batch = new ArrayList<>(maxBatch);
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+
+                // estimator busy: let more callers join, but never past the oldest caller's max wait
+                long deadline = first.enqueuedNanos() + maxWaitNanos;
+                while (batch.size() < maxBatch && inFlight.get() > 0) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+                send(batch);
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        long now = System.nanoTime();
+        DistributionSummary sizes = batchSizes;
+        Timer waits = queueWaits;
+        if (sizes != null) {
+            sizes.record(batch.size());
+        }
+        if (waits != null) {
+            for (Pending pending : batch) {
+                waits.record(now - pending.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        inFlight.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    complete(batch);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            fail(batch, e);
+        }
+    }
+
+    private void complete(List<Pending> batch) {
+        List<Map<String, Object>> instances = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            instances.add(pending.features());
+        }
+        try {
+            List<?> predictions = estimator.apply(instances);
+            if (predictions.size() != batch.size()) {
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                        "Estimator service returned " + predictions.size() + " predictions for "
+                                + batch.size() + " instances");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                if (predictions.get(i) instanceof Number num) {
+                    batch.get(i).result().complete(num.doubleValue());
+                } else {
+                    batch.get(i).result().completeExceptionally(new ResponseStatusException(
+                            HttpStatus.BAD_GATEWAY, "Estimator service returned an invalid prediction"));
+                }
+            }
+        } catch (RuntimeException e) {
+            fail(batch, e);
+        }
+    }
+
+    private static void fail(List<Pending> batch, RuntimeException e) {
+        for (Pending pending : batch) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    /** Stops dispatching; callers still queued get a 503. */
+    @Override
+    public void close() {
+        dispatcher.interrupt();
+        List<Pending> left = new ArrayList<>();
+        queue.drainTo(left);
+        fail(left, new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down"));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        batchSizes = DistributionSummary.builder("analysis.what-if.batch.size")
+                .description("Rows per coalesced estimator call")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry);
+        queueWaits = Timer.builder("analysis.what-if.queue.wait")
+                .description("Time a what-if waited to be sent to the estimator")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry);
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.analysis_api.store;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Count, sum, min and max of one or more measures per group of a bucketed dimension, computed
+ * in one pass over the rows into primitive arrays.
+ *
+ * Groups are found through an open-addressing table keyed on the bucket key, so any numeric
+ * column can be grouped without boxing; the result lists groups in ascending key order. Large
+ * inputs are aggregated per {@link ParallelScan} partition and the partial tables merged. Rows
+ * whose dimension is not a finite number (price per square foot of a 0 sq ft record) belong to
+ * no group, and a measure that is not finite for a row is left out of that measure's totals
+ * only, so measure counts can be below the group's row count.
+ */
+public final class Aggregation {
+
+    /** Upper bound on groups per aggregation; exact grouping of a continuous column needs buckets. */
+    public static final int MAX_GROUPS = 10_000;
+
+    private final Metric dimension;
+    private final Bucketing bucketing;
+    private final List<Metric> measures;
+    private final double[] keys;
+    private final long[] rows;
+    private final long[][] counts;
+    private final double[][] sums;
+    private final double[][] mins;
+    private final double[][] maxs;
+
+    Aggregation(Metric dimension, Bucketing bucketing, List<Metric> measures, double[] keys,
+                long[] rows, long[][] counts, double[][] sums, double[][] mins, double[][] maxs) {
+        this.dimension = dimension;
+        this.bucketing = bucketing;
+        this.measures = measures;
+        this.keys = keys;
+        this.rows = rows;
+        this.counts = counts;
+        this.sums = sums;
+        this.mins = mins;
+        this.maxs = maxs;
+    }
+
+    /**
+     * @param selected rows to aggregate, or null for every row
+     * @param scan     splits large inputs into partitions aggregated in parallel, then merged
+     * @throws IllegalArgumentException when the rows fall into more than {@link #MAX_GROUPS} groups
+     */
+    static Aggregation compute(PropertyColumns columns, int[] selected, Metric dimension,
+                               Bucketing bucketing, List<Metric> measures, ParallelScan scan) {
+        Metric.Reader groupBy = dimension.reader(columns);
+        Metric.Reader[] readers = new Metric.Reader[measures.size()];
+        for (int m = 0; m < readers.length; m++) {
+            readers[m] = measures.get(m).reader(columns);
+        }
+
+        int n = selected == null ? columns.size() : selected.length;
+        List<Accumulator> partials = scan.run(n, (from, to) -> {
+            Accumulator acc = new Accumulator(readers.length);
+            for (int i = from; i < to; i++) {
+                int row = selected == null ? i : selected[i];
+                double value = groupBy.at(row);
+                if (!Double.isFinite(value)) {
+                    continue;
+                }
+                int group = acc.group(bucketing.keyOf(value));
+                acc.rows[group]++;
+                for (int m = 0; m < readers.length; m++) {
+                    double v = readers[m].at(row);
+                    if (Double.isFinite(v)) {
+                        acc.add(m, group, v);
+                    }
+                }
+            }
+            return acc;
+        });
+
+        Accumulator total = partials.get(0);
+        for (int p = 1; p < partials.size(); p++) {
+            total.merge(partials.get(p));
+        }
+        return total.finish(dimension, bucketing, List.copyOf(measures));
+    }
+
+    public Metric dimension() {
+        return dimension;
+    }
+
+    public Bucketing bucketing() {
+        return bucketing;
+    }
+
+    public List<Metric> measures() {
+        return measures;
+    }
+
+    public int groups() {
+        return keys.length;
+    }
+
+    public double keyAt(int group) {
+        return keys[group];
+    }
+
+    /** Rows in the group. */
+    public long rowsAt(int group) {
+        return rows[group];
+    }
+
+    /** Rows in the group with a finite value of measure {@code m} (index into {@link #measures()}). */
+    public long countAt(int m, int group) {
+        return counts[m][group];
+    }
+
+    public double sumAt(int m, int group) {
+        return sums[m][group];
+    }
+
+    /** NaN when the measure has no values in the group. */
+    public double minAt(int m, int group) {
+        return counts[m][group] == 0 ? Double.NaN : mins[m][group];
+    }
+
+    /** NaN when the measure has no values in the group. */
+    public double maxAt(int m, int group) {
+        return counts[m][group] == 0 ? Double.NaN : maxs[m][group];
+    }
+
+    // group slots in first-seen order, plus a linear-probing table from key bits to slot
+    private static final class Accumulator {
+
+        private long[] tableKeys = new long[64];
+        private int[] tableSlots = new int[64];
+        private int groups;
+
+        private double[] keys = new double[16];
+        private long[] rows = new long[16];
+        private final long[][] counts;
+        private final double[][] sums;
+        private final double[][] mins;
+        private final double[][] maxs;
+
+        Accumulator(int measures) {
+            Arrays.fill(tableSlots, -1);
+            counts = new long[measures][16];
+            sums = new double[measures][16];
+            mins = new double[measures][16];
+            maxs = new double[measures][16];
+        }
+
+        int group(double key) {
+            long bits = Double.doubleToLongBits(key);
+            int mask = tableSlots.length - 1;
+            int i = mix(bits) & mask;
+            while (tableSlots[i] >= 0) {
+                if (tableKeys[i] == bits) {
+                    return tableSlots[i];
+                }
+                i = (i + 1) & mask;
+            }
+            if (groups == MAX_GROUPS) {
+                throw new IllegalArgumentException("More than " + MAX_GROUPS
+                        + " groups; use a bucket width or boundaries");
+            }
+            int slot = groups++;
+            if (slot == keys.length) {
+                growGroups();
+            }
+            keys[slot] = key;
+            tableKeys[i] = bits;
+            tableSlots[i] = slot;
+            if (groups * 2 > tableSlots.length) {
+                rehash();
+            }
+            return slot;
+        }
+
+        void add(int m, int group, double value) {
+            if (counts[m][group]++ == 0) {
+                mins[m][group] = value;
+                maxs[m][group] = value;
+            } else {
+                if (value < mins[m][group]) {
+                    mins[m][group] = value;
+                }
+                if (value > maxs[m][group]) {
+                    maxs[m][group] = value;
+                }
+            }
+            sums[m][group] += value;
+        }
+
+        void merge(Accumulator other) {
+            for (int g = 0; g < other.groups; g++) {
+                int group = group(other.keys[g]);
+                rows[group] += other.rows[g];
+                for (int m = 0; m < counts.length; m++) {
+                    long count = other.counts[m][g];
+                    if (count == 0) {
+                        continue;
+                    }
+                    if (counts[m][group] == 0) {
+                        mins[m][group] = other.mins[m][g];
+                        maxs[m][group] = other.maxs[m][g];
+                    } else {
+                        mins[m][group] = Math.min(mins[m][group], other.mins[m][g]);
+                        maxs[m][group] = Math.max(maxs[m][group], other.maxs[m][g]);
+                    }
+                    counts[m][group] += count;
+                    sums[m][group] += other.sums[m][g];
+                }
+            }
+        }
+
+        Aggregation finish(Metric dimension, Bucketing bucketing, List<Metric> measures) {
+            Integer[] order = new Integer[groups];
+            for (int g = 0; g < groups; g++) {
+                order[g] = g;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(keys[a], keys[b]));
+
+            int width = counts.length;
+            double[] sortedKeys = new double[groups];
+            long[] sortedRows = new long[groups];
+            long[][] sortedCounts = new long[width][groups];
+            double[][] sortedSums = new double[width][groups];
+            double[][] sortedMins = new double[width][groups];
+            double[][] sortedMaxs = new double[width][groups];
+            for (int g = 0; g < groups; g++) {
+                int from = order[g];
+                sortedKeys[g] = keys[from];
+                sortedRows[g] = rows[from];
+                for (int m = 0; m < width; m++) {
+                    sortedCounts[m][g] = counts[m][from];
+                    sortedSums[m][g] = sums[m][from];
+                    sortedMins[m][g] = mins[m][from];
+                    sortedMaxs[m][g] = maxs[m][from];
+                }
+            }
+            return new Aggregation(dimension, bucketing, measures, sortedKeys, sortedRows,
+                    sortedCounts, sortedSums, sortedMins, sortedMaxs);
+        }
+
+        private void growGroups() {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+            for (int m = 0; m < counts.length; m++) {
+                counts[m] = Arrays.copyOf(counts[m], capacity);
+                sums[m] = Arrays.copyOf(sums[m], capacity);
+                mins[m] = Arrays.copyOf(mins[m], capacity);
+                maxs[m] = Arrays.copyOf(maxs[m], capacity);
+            }
+        }
+
+        private void rehash() {
+            long[] oldKeys = tableKeys;
+            int[] oldSlots = tableSlots;
+            tableKeys = new long[oldKeys.length * 2];
+            tableSlots = new int[oldSlots.length * 2];
+            Arrays.fill(tableSlots, -1);
+            int mask = tableSlots.length - 1;
+            for (int j = 0; j < oldSlots.length; j++) {
+                if (oldSlots[j] >= 0) {
+                    int i = mix(oldKeys[j]) & mask;
+                    while (tableSlots[i] >= 0) {
+                        i = (i + 1) & mask;
+                    }
+                    tableKeys[i] = oldKeys[j];
+                    tableSlots[i] = oldSlots[j];
+                }
+            }
+        }
+
+        // doubles that are whole numbers differ only in high bits; spread them over the low ones
+        private static int mix(long bits) {
+            long h = bits * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.analysis_api.store;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compressed bitmap per distinct key of a low-cardinality column (bedrooms, rating bucket).
+ *
+ * Only keys that occur are stored, sorted, and found by binary search, so a stray extreme value
+ * costs one more slot rather than one per integer in between. For each key the
+ * index also remembers the smallest and largest column value it holds, so a value range
+ * resolves to the OR of the overlapping bitmaps plus an "exact" flag: when every
+ * overlapping key lies fully inside the range, no row needs to be re-checked.
+ */
+public final class BitmapIndex {
+
+    private final int[] keys;
+    private final RoaringBitmap[] bitmaps;
+    private final double[] valueMin;
+    private final double[] valueMax;
+
+    private BitmapIndex(int[] keys, RoaringBitmap[] bitmaps, double[] valueMin, double[] valueMax) {
+        this.keys = keys;
+        this.bitmaps = bitmaps;
+        this.valueMin = valueMin;
+        this.valueMax = valueMax;
+    }
+
+    /** One bitmap per distinct value of an int column. */
+    public static BitmapIndex build(int[] column) {
+        double[] values = new double[column.length];
+        for (int i = 0; i < column.length; i++) {
+            values[i] = column[i];
+        }
+        return build(column, values);
+    }
+
+    /** One bitmap per bucket of a double column; {@code keys[row]} is the bucket of {@code values[row]}. */
+    public static BitmapIndex build(int[] keys, double[] values) {
+        int[] distinct = Arrays.stream(keys).distinct().sorted().toArray();
+
+        int slots = distinct.length;
+        RoaringBitmap[] bitmaps = new RoaringBitmap[slots];
+        double[] valueMin = new double[slots];
+        double[] valueMax = new double[slots];
+        for (int i = 0; i < slots; i++) {
+            bitmaps[i] = new RoaringBitmap();
+            valueMin[i] = Double.POSITIVE_INFINITY;
+            valueMax[i] = Double.NEGATIVE_INFINITY;
+        }
+        for (int row = 0; row < keys.length; row++) {
+            int slot = Arrays.binarySearch(distinct, keys[row]);
+            bitmaps[slot].add(row);
+            valueMin[slot] = Math.min(valueMin[slot], values[row]);
+            valueMax[slot] = Math.max(valueMax[slot], values[row]);
+        }
+        for (RoaringBitmap bitmap : bitmaps) {
+            bitmap.runOptimize();
+        }
+        return new BitmapIndex(distinct, bitmaps, valueMin, valueMax);
+    }
+
+    /** Number of distinct keys. */
+    public int keys() {
+        return keys.length;
+    }
+
+    /** The {@code slot}-th smallest key. */
+    public int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /** Slot of {@code key}, or -1 when no row holds it. */
+    public int slotOf(int key) {
+        int slot = Arrays.binarySearch(keys, key);
+        return slot < 0 ? -1 : slot;
+    }
+
+    /** First slot whose key is at least {@code key} ({@link #keys()} when none is). */
+    public int lowerSlot(int key) {
+        int slot = Arrays.binarySearch(keys, key);
+        return slot < 0 ? -slot - 1 : slot;
+    }
+
+    /** Last slot whose key is at most {@code key} (-1 when none is). */
+    public int upperSlot(int key) {
+        int slot = Arrays.binarySearch(keys, key);
+        return slot < 0 ? -slot - 2 : slot;
+    }
+
+    /** Rows holding {@code key}; empty for unknown keys. Shared — do not modify. */
+    public RoaringBitmap rows(int key) {
+        int slot = slotOf(key);
+        return slot < 0 ? new RoaringBitmap() : bitmaps[slot];
+    }
+
+    /** Rows holding the {@code slot}-th smallest key. Shared — do not modify. */
+    public RoaringBitmap rowsAt(int slot) {
+        return bitmaps[slot];
+    }
+
+    /** Candidate rows for {@code min <= value <= max}, as a new bitmap. */
+    public Match match(double min, double max) {
+        List<RoaringBitmap> parts = new ArrayList<>(bitmaps.length);
+        boolean exact = true;
+        for (int slot = 0; slot < bitmaps.length; slot++) {
+            if (bitmaps[slot].isEmpty() || valueMax[slot] < min || valueMin[slot] > max) {
+                continue;
+            }
+            parts.add(bitmaps[slot]);
+            exact &= valueMin[slot] >= min && valueMax[slot] <= max;
+        }
+        RoaringBitmap rows = switch (parts.size()) {
+            case 0 -> new RoaringBitmap();
+            case 1 -> parts.get(0).clone();
+            default -> FastAggregation.or(parts.iterator());
+        };
+        return new Match(rows, exact);
+    }
+
+    /**
+     * Result of a range lookup. When {@code exact} is true every row in {@code rows}
+     * satisfies the range; otherwise rows from partially covered keys must be re-checked.
+     */
+    public static final class Match {
+
+        private final RoaringBitmap rows;
+        private final boolean exact;
+
+        Match(RoaringBitmap rows, boolean exact) {
+            this.rows = rows;
+            this.exact = exact;
+        }
+
+        public RoaringBitmap rows() {
+            return rows;
+        }
+
+        public boolean exact() {
+            return exact;
+        }
+    }
+}
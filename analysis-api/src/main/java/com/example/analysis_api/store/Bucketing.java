@@ -0,0 +1,154 @@
+package com.example.analysis_api.store;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * How the values of a grouping metric map to groups, each identified by a double key.
+ *
+ * <ul>
+ *   <li>exact: one group per distinct value; the key is the value.</li>
+ *   <li>width: fixed-width intervals {@code [origin + i*width, origin + (i+1)*width)}, e.g.
+ *       decades of year built; the key is the interval's index {@code i}. Edges are computed in
+ *       the decimal scale of width and origin, so width 0.1 gives [6.8, 6.9), not
+ *       [6.800000000000001, 6.9), and a value on an edge always opens the interval above it.</li>
+ *   <li>boundaries: custom ascending edges {@code b0 < b1 < ... < bk}, giving
+ *       {@code (-inf, b0), [b0, b1), ..., [bk, inf)}; the key is the interval's index.</li>
+ * </ul>
+ */
+public final class Bucketing {
+
+    public enum Mode {
+        EXACT, WIDTH, BOUNDARIES
+    }
+
+    // 10^15 and every whole number below 2^53 are exact doubles
+    private static final int MAX_SCALE = 15;
+    private static final double EXACT_LIMIT = 0x1p53;
+
+    private static final Bucketing EXACT = new Bucketing(Mode.EXACT, 0, 0, null);
+
+    private final Mode mode;
+    private final double width;
+    private final double origin;
+    private final double[] edges;
+
+    // width mode: edge i = (originUnits + i * widthUnits) / unit, where unit = 10^scale makes
+    // both whole numbers, so each edge is the double nearest its exact decimal value
+    private final double unit;
+    private final double originUnits;
+    private final double widthUnits;
+
+    private Bucketing(Mode mode, double width, double origin, double[] edges) {
+        this.mode = mode;
+        this.width = width;
+        this.origin = origin;
+        this.edges = edges;
+
+        BigDecimal w = BigDecimal.valueOf(width);
+        BigDecimal o = BigDecimal.valueOf(origin);
+        int scale = Math.max(0, Math.max(w.scale(), o.scale()));
+        double wu = w.movePointRight(scale).doubleValue();
+        double ou = o.movePointRight(scale).doubleValue();
+        if (scale <= MAX_SCALE && Math.abs(wu) < EXACT_LIMIT && Math.abs(ou) < EXACT_LIMIT) {
+            this.unit = Math.pow(10, scale);
+            this.originUnits = ou;
+            this.widthUnits = wu;
+        } else {
+            this.unit = 1;
+            this.originUnits = origin;
+            this.widthUnits = width;
+        }
+    }
+
+    public static Bucketing exact() {
+        return EXACT;
+    }
+
+    /** @throws IllegalArgumentException unless width is positive and both are finite */
+    public static Bucketing width(double width, double origin) {
+        if (!(width > 0) || !Double.isFinite(width) || !Double.isFinite(origin)) {
+            throw new IllegalArgumentException("Bucket width must be positive and finite");
+        }
+        return new Bucketing(Mode.WIDTH, width, origin, null);
+    }
+
+    /** @throws IllegalArgumentException unless the edges are finite and strictly ascending */
+    public static Bucketing boundaries(double... edges) {
+        if (edges.length == 0) {
+            throw new IllegalArgumentException("At least one bucket boundary is required");
+        }
+        for (int i = 0; i < edges.length; i++) {
+            if (!Double.isFinite(edges[i]) || (i > 0 && edges[i] <= edges[i - 1])) {
+                throw new IllegalArgumentException("Bucket boundaries must be finite and strictly ascending");
+            }
+        }
+        return new Bucketing(Mode.BOUNDARIES, 0, 0, edges.clone());
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    double keyOf(double value) {
+        return switch (mode) {
+            case EXACT -> value + 0.0; // folds -0.0 into 0.0
+            case WIDTH -> {
+                // the quotient can land just beside an edge; the edges themselves decide
+                long i = (long) Math.floor((value - origin) / width);
+                if (edge(i + 1) <= value) {
+                    i++;
+                } else if (edge(i) > value) {
+                    i--;
+                }
+                yield i;
+            }
+            case BOUNDARIES -> {
+                int i = Arrays.binarySearch(edges, value);
+                yield i >= 0 ? i + 1 : -i - 1; // values on an edge belong to the interval it opens
+            }
+        };
+    }
+
+    /** Inclusive lower edge of a group; null when unbounded. */
+    public Double lower(double key) {
+        return switch (mode) {
+            case EXACT -> key;
+            case WIDTH -> edge((long) key);
+            case BOUNDARIES -> key == 0 ? null : edges[(int) key - 1];
+        };
+    }
+
+    /** Upper edge of a group (inclusive for exact groups, exclusive otherwise); null when unbounded. */
+    public Double upper(double key) {
+        return switch (mode) {
+            case EXACT -> key;
+            case WIDTH -> edge((long) key + 1);
+            case BOUNDARIES -> key == edges.length ? null : edges[(int) key];
+        };
+    }
+
+    /** "3", "[1990, 2000)", "< 5" or ">= 10". */
+    public String label(double key) {
+        Double lower = lower(key);
+        Double upper = upper(key);
+        if (mode == Mode.EXACT) {
+            return format(key);
+        }
+        if (lower == null) {
+            return "< " + format(upper);
+        }
+        if (upper == null) {
+            return ">= " + format(lower);
+        }
+        return "[" + format(lower) + ", " + format(upper) + ")";
+    }
+
+    private double edge(long i) {
+        return (originUnits + i * widthUnits) / unit;
+    }
+
+    private static String format(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.analysis_api.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Binary, column-major image of {@link PropertyColumns}, written once from the CSV and read
+ * back on later starts.
+ *
+ * Reading maps the file and bulk-copies each column onto the heap: no parsing, but the columns
+ * then live in ordinary arrays and count against {@code -Xmx} like parsed ones. Columns are
+ * mapped in windows of at most 1 GB, since a single mapping is limited to 2 GB.
+ *
+ * Layout (little endian):
+ * <pre>
+ *   magic "PPSNAP01" | int formatVersion | long sourceLength | long sourceLastModified | int rows
+ *   double[rows] price | double[rows] squareFootage | int[rows] bedrooms | double[rows] bathrooms
+ *   int[rows] yearBuilt | double[rows] lotSize | double[rows] distanceToCityCenter
+ *   double[rows] schoolRating
+ * </pre>
+ * The source length and modification time identify the CSV the snapshot was built from; a
+ * snapshot whose stamp does not match the current CSV is treated as stale.
+ */
+public final class ColumnarSnapshot {
+
+    private static final byte[] MAGIC = {'P', 'P', 'S', 'N', 'A', 'P', '0', '1'};
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = MAGIC.length + Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+
+    private static final int DOUBLE_COLUMNS = 6;
+    private static final int INT_COLUMNS = 2;
+
+    // largest region mapped at once; a multiple of 8 so windows never split a value
+    private static final int MAP_WINDOW_BYTES = 1 << 30;
+
+    private ColumnarSnapshot() {
+    }
+
+    /** Identity of the CSV a snapshot was derived from. */
+    public record SourceStamp(long length, long lastModified) {
+    }
+
+    /**
+     * Maps the snapshot at {@code path} and copies its columns onto the heap.
+     *
+     * @return empty when the file is missing, truncated, of another format, or built from a
+     *         different source than {@code expected}
+     */
+    public static Optional<PropertyColumns> read(Path path, SourceStamp expected) throws IOException {
+        return read(path, expected, MAP_WINDOW_BYTES);
+    }
+
+    static Optional<PropertyColumns> read(Path path, SourceStamp expected, int windowBytes) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                return Optional.empty();
+            }
+            ByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || header.getInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            SourceStamp stamp = new SourceStamp(header.getLong(), header.getLong());
+            int rows = header.getInt();
+            if (!stamp.equals(expected) || rows < 0 || fileSize != expectedSize(rows)) {
+                return Optional.empty();
+            }
+
+            // bulk copies out of the mapping: no parsing, just page faults and memcpy
+            Columns in = new Columns(channel, FileChannel.MapMode.READ_ONLY, windowBytes);
+            double[] price = in.doubles(rows);
+            double[] squareFootage = in.doubles(rows);
+            int[] bedrooms = in.ints(rows);
+            double[] bathrooms = in.doubles(rows);
+            int[] yearBuilt = in.ints(rows);
+            double[] lotSize = in.doubles(rows);
+            double[] distanceToCityCenter = in.doubles(rows);
+            double[] schoolRating = in.doubles(rows);
+
+            return Optional.of(PropertyColumns.of(rows, price, squareFootage, bedrooms, bathrooms,
+                    yearBuilt, lotSize, distanceToCityCenter, schoolRating));
+        }
+    }
+
+    /** Writes the snapshot next to {@code path} and moves it into place atomically. */
+    public static void write(PropertyColumns columns, SourceStamp stamp, Path path) throws IOException {
+        write(columns, stamp, path, MAP_WINDOW_BYTES);
+    }
+
+    static void write(PropertyColumns columns, SourceStamp stamp, Path path, int windowBytes) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            int rows = columns.size();
+            try (FileChannel channel = FileChannel.open(tmp,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer header = map(channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+                header.put(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(stamp.length())
+                        .putLong(stamp.lastModified())
+                        .putInt(rows);
+                header.force();
+
+                Columns out = new Columns(channel, FileChannel.MapMode.READ_WRITE, windowBytes);
+                out.putDoubles(columns.price());
+                out.putDoubles(columns.squareFootage());
+                out.putInts(columns.bedrooms());
+                out.putDoubles(columns.bathrooms());
+                out.putInts(columns.yearBuilt());
+                out.putDoubles(columns.lotSize());
+                out.putDoubles(columns.distanceToCityCenter());
+                out.putDoubles(columns.schoolRating());
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static long expectedSize(int rows) {
+        return HEADER_BYTES
+                + (long) rows * (DOUBLE_COLUMNS * Double.BYTES + INT_COLUMNS * Integer.BYTES);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, int size)
+            throws IOException {
+        MappedByteBuffer buf = channel.map(mode, position, size);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        return buf;
+    }
+
+    // copies columns to or from the file after the header, one mapped window at a time
+    private static final class Columns {
+
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private final int windowBytes;
+        private long position = HEADER_BYTES;
+
+        Columns(FileChannel channel, FileChannel.MapMode mode, int windowBytes) {
+            this.channel = channel;
+            this.mode = mode;
+            this.windowBytes = windowBytes;
+        }
+
+        double[] doubles(int rows) throws IOException {
+            double[] column = new double[rows];
+            int perWindow = windowBytes / Double.BYTES;
+            for (int from = 0; from < rows; from += perWindow) {
+                int n = Math.min(perWindow, rows - from);
+                next(n * Double.BYTES).asDoubleBuffer().get(column, from, n);
+            }
+            return column;
+        }
+
+        int[] ints(int rows) throws IOException {
+            int[] column = new int[rows];
+            int perWindow = windowBytes / Integer.BYTES;
+            for (int from = 0; from < rows; from += perWindow) {
+                int n = Math.min(perWindow, rows - from);
+                next(n * Integer.BYTES).asIntBuffer().get(column, from, n);
+            }
+            return column;
+        }
+
+        void putDoubles(double[] column) throws IOException {
+            int perWindow = windowBytes / Double.BYTES;
+            for (int from = 0; from < column.length; from += perWindow) {
+                int n = Math.min(perWindow, column.length - from);
+                MappedByteBuffer window = next(n * Double.BYTES);
+                window.asDoubleBuffer().put(column, from, n);
+                window.force();
+            }
+        }
+
+        void putInts(int[] column) throws IOException {
+            int perWindow = windowBytes / Integer.BYTES;
+            for (int from = 0; from < column.length; from += perWindow) {
+                int n = Math.min(perWindow, column.length - from);
+                MappedByteBuffer window = next(n * Integer.BYTES);
+                window.asIntBuffer().put(column, from, n);
+                window.force();
+            }
+        }
+
+        private MappedByteBuffer next(int bytes) throws IOException {
+            MappedByteBuffer window = map(channel, mode, position, bytes);
+            position += bytes;
+            return window;
+        }
+    }
+}
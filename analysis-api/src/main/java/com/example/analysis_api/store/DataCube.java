@@ -0,0 +1,242 @@
+package com.example.analysis_api.store;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Price count / sum / min / max materialized per cell of bedrooms x price band x school rating
+ * band, built in one pass when a dataset is loaded.
+ *
+ * A filter that lines up with the cells is answered by adding up cells instead of reading rows.
+ * Bedrooms are kept per distinct value, so bedroom bounds always line up. A price or rating bound
+ * lines up when no row falls between it and the edge of its band, which the sorted indexes tell
+ * in two lookups: a minimum of 300,000 lines up with 50,000-wide bands exactly when no price in
+ * [300,000, 350,000) lies below the lowest selected one. Pass {@link PropertyTable#canonical}
+ * filters, whose bounds are values that occur in the data.
+ */
+public final class DataCube {
+
+    /** Largest cube built; wider configurations are refused rather than allocated. */
+    public static final int MAX_CELLS = 4_000_000;
+
+    private final PropertyTable table;
+    private final double priceBandWidth;
+    private final double ratingBandWidth;
+
+    private final BitmapIndex bedroomKeys;
+    private final int bedroomValues;
+    private final long basePriceBand;
+    private final int priceBands;
+    private final long baseRatingBand;
+    private final int ratingBands;
+
+    // cell = (bedrooms * priceBands + priceBand) * ratingBands + ratingBand
+    private final long[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+
+    private DataCube(PropertyTable table, double priceBandWidth, double ratingBandWidth) {
+        this.table = table;
+        this.priceBandWidth = priceBandWidth;
+        this.ratingBandWidth = ratingBandWidth;
+
+        SortedIndex prices = table.priceIndex();
+        SortedIndex ratings = table.schoolRatingIndex();
+        int n = table.size();
+        this.bedroomKeys = table.bedroomsBitmaps();
+        this.bedroomValues = bedroomKeys.keys();
+        this.basePriceBand = n == 0 ? 0 : band(prices.valueAt(0), priceBandWidth);
+        long priceSpan = n == 0 ? 0 : bands(basePriceBand, band(prices.valueAt(n - 1), priceBandWidth));
+        this.baseRatingBand = n == 0 ? 0 : band(ratings.valueAt(0), ratingBandWidth);
+        long ratingSpan = n == 0 ? 0 : bands(baseRatingBand, band(ratings.valueAt(n - 1), ratingBandWidth));
+
+        // each factor is checked before multiplying, so a stray extreme value cannot overflow the count
+        if (priceSpan > MAX_CELLS || ratingSpan > MAX_CELLS
+                || bedroomValues * priceSpan > MAX_CELLS || bedroomValues * priceSpan * ratingSpan > MAX_CELLS) {
+            throw new IllegalArgumentException("Cube would have more than " + MAX_CELLS
+                    + " cells; use wider price or school rating bands");
+        }
+        this.priceBands = (int) priceSpan;
+        this.ratingBands = (int) ratingSpan;
+        this.counts = new long[bedroomValues * priceBands * ratingBands];
+        this.sums = new double[counts.length];
+        this.mins = new double[counts.length];
+        this.maxs = new double[counts.length];
+
+        PropertyColumns columns = table.columns();
+        double[] price = columns.price();
+        int[] bedrooms = columns.bedrooms();
+        double[] schoolRating = columns.schoolRating();
+        for (int row = 0; row < n; row++) {
+            int cell = cell(bedroomKeys.slotOf(bedrooms[row]),
+                    (int) (band(price[row], priceBandWidth) - basePriceBand),
+                    (int) (band(schoolRating[row], ratingBandWidth) - baseRatingBand));
+            double p = price[row];
+            if (counts[cell]++ == 0) {
+                mins[cell] = p;
+                maxs[cell] = p;
+            } else {
+                mins[cell] = Math.min(mins[cell], p);
+                maxs[cell] = Math.max(maxs[cell], p);
+            }
+            sums[cell] += p;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException for non-positive band widths, or when the cube would
+     *                                  exceed {@link #MAX_CELLS}
+     */
+    public static DataCube build(PropertyTable table, double priceBandWidth, double ratingBandWidth) {
+        if (!(priceBandWidth > 0) || !(ratingBandWidth > 0)) {
+            throw new IllegalArgumentException("Cube band widths must be positive");
+        }
+        return new DataCube(table, priceBandWidth, ratingBandWidth);
+    }
+
+    public int cells() {
+        return counts.length;
+    }
+
+    public double priceBandWidth() {
+        return priceBandWidth;
+    }
+
+    public double schoolRatingBandWidth() {
+        return ratingBandWidth;
+    }
+
+    /** Whether {@link #count} and {@link #priceByBedrooms} can answer this canonical filter. */
+    public boolean aligned(RowFilter canonical) {
+        return cellRange(canonical) != null;
+    }
+
+    /** Rows matching a canonical filter, or -1 when it does not line up with the cells. */
+    public long count(RowFilter canonical) {
+        int[] range = cellRange(canonical);
+        if (range == null) {
+            return -1;
+        }
+        long total = 0;
+        for (int b = range[0]; b <= range[1]; b++) {
+            for (int p = range[2]; p <= range[3]; p++) {
+                for (int r = range[4]; r <= range[5]; r++) {
+                    total += counts[cell(b, p, r)];
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Price statistics per bedroom value for a canonical filter, in the shape of
+     * {@code aggregate(rows, BEDROOMS, exact, [PRICE])}, or null when the filter does not line
+     * up with the cells. Bedroom values without matching rows are left out.
+     */
+    public Aggregation priceByBedrooms(RowFilter canonical) {
+        int[] range = cellRange(canonical);
+        if (range == null) {
+            return null;
+        }
+        int groups = Math.max(0, range[1] - range[0] + 1);
+        double[] keys = new double[groups];
+        long[] rows = new long[groups];
+        double[] sum = new double[groups];
+        double[] min = new double[groups];
+        double[] max = new double[groups];
+        int out = 0;
+        for (int b = range[0]; b <= range[1]; b++) {
+            long count = 0;
+            double total = 0;
+            double lo = Double.POSITIVE_INFINITY;
+            double hi = Double.NEGATIVE_INFINITY;
+            for (int p = range[2]; p <= range[3]; p++) {
+                for (int r = range[4]; r <= range[5]; r++) {
+                    int cell = cell(b, p, r);
+                    if (counts[cell] > 0) {
+                        count += counts[cell];
+                        total += sums[cell];
+                        lo = Math.min(lo, mins[cell]);
+                        hi = Math.max(hi, maxs[cell]);
+                    }
+                }
+            }
+            if (count > 0) {
+                keys[out] = bedroomKeys.keyAt(b);
+                rows[out] = count;
+                sum[out] = total;
+                min[out] = lo;
+                max[out] = hi;
+                out++;
+            }
+        }
+        return new Aggregation(Metric.BEDROOMS, Bucketing.exact(), List.of(Metric.PRICE),
+                Arrays.copyOf(keys, out), Arrays.copyOf(rows, out),
+                new long[][]{Arrays.copyOf(rows, out)},
+                new double[][]{Arrays.copyOf(sum, out)},
+                new double[][]{Arrays.copyOf(min, out)},
+                new double[][]{Arrays.copyOf(max, out)});
+    }
+
+    // {bedFrom, bedTo, priceFrom, priceTo, ratingFrom, ratingTo} as inclusive cell indexes, or null
+    private int[] cellRange(RowFilter canonical) {
+        if (canonical.matchesNothing() || counts.length == 0) {
+            return null;
+        }
+        int[] price = bandRange(table.priceIndex(), canonical.minPrice(), canonical.maxPrice(),
+                priceBandWidth, basePriceBand);
+        int[] rating = price == null ? null : bandRange(table.schoolRatingIndex(),
+                canonical.minSchoolRating(), canonical.maxSchoolRating(), ratingBandWidth, baseRatingBand);
+        if (rating == null) {
+            return null;
+        }
+        int bedFrom = bedroomKeys.lowerSlot(canonical.minBedrooms());
+        int bedTo = bedroomKeys.upperSlot(canonical.maxBedrooms());
+        return new int[]{bedFrom, bedTo, price[0], price[1], rating[0], rating[1]};
+    }
+
+    // the bands covered by [min, max], or null when a bound cuts a band between two of its rows
+    private static int[] bandRange(SortedIndex index, double min, double max, double width, long base) {
+        int n = index.size();
+        int from = 0;
+        int to = (int) (band(index.valueAt(n - 1), width) - base);
+        if (min != Double.NEGATIVE_INFINITY) {
+            int first = index.lowerBound(min);
+            if (first == n) {
+                return null;
+            }
+            long band = band(index.valueAt(first), width);
+            if (first > 0 && band(index.valueAt(first - 1), width) == band) {
+                return null;
+            }
+            from = (int) (band - base);
+        }
+        if (max != Double.POSITIVE_INFINITY) {
+            int end = index.upperBound(max);
+            if (end == 0) {
+                return null;
+            }
+            long band = band(index.valueAt(end - 1), width);
+            if (end < n && band(index.valueAt(end), width) == band) {
+                return null;
+            }
+            to = (int) (band - base);
+        }
+        return new int[]{from, to};
+    }
+
+    private int cell(int bedrooms, int priceBand, int ratingBand) {
+        return (bedrooms * priceBands + priceBand) * ratingBands + ratingBand;
+    }
+
+    // bands from first to last inclusive, saturating instead of overflowing
+    private static long bands(long first, long last) {
+        long span = last - first + 1;
+        return span <= 0 ? Long.MAX_VALUE : span;
+    }
+
+    private static long band(double value, double width) {
+        return (long) Math.floor(value / width);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.analysis_api.store;
+
+/**
+ * Count and sum per integer group key, held in flat arrays with one slot per distinct key of
+ * a {@link BitmapIndex}.
+ */
+public final class GroupTotals {
+
+    private final BitmapIndex groups;
+    private final long[] counts;
+    private final double[] sums;
+
+    GroupTotals(BitmapIndex groups) {
+        this.groups = groups;
+        this.counts = new long[groups.keys()];
+        this.sums = new double[counts.length];
+    }
+
+    void add(int key, double value) {
+        int slot = groups.slotOf(key);
+        counts[slot]++;
+        sums[slot] += value;
+    }
+
+    void addAllAt(int slot, long count, double sum) {
+        counts[slot] += count;
+        sums[slot] += sum;
+    }
+
+    public int groups() {
+        return counts.length;
+    }
+
+    public int keyAt(int slot) {
+        return groups.keyAt(slot);
+    }
+
+    public long countAt(int slot) {
+        return counts[slot];
+    }
+
+    public double sumAt(int slot) {
+        return sums[slot];
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.analysis_api.store;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * KLL quantile sketch (Karnin, Lang, Liberty 2016) over doubles.
+ *
+ * Values go into a stack of compactors. Level {@code h} holds items that each stand for
+ * {@code 2^h} inputs; when the sketch outgrows its budget, the lowest full level is sorted and
+ * every other item (starting at a random offset) moves up one level, the rest are dropped.
+ * Level capacities shrink by a factor of 2/3 from the top down, so memory stays near
+ * {@code 3k} items however many values are added, and the rank error of a quantile is about
+ * {@link #normalizedRankError()} of the count. Sketches merge with the same error guarantee, so
+ * partial sketches (per chunk, per segment) can be combined.
+ *
+ * Not thread-safe while being built; safe to share once complete.
+ */
+public final class KllSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    private static final double DECAY = 2.0 / 3.0;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+
+    private final int k;
+    private final SplittableRandom random;
+
+    private double[][] levels = {new double[MIN_LEVEL_CAPACITY]};
+    private int[] sizes = {0};
+    private int[] capacities;
+    private int totalCapacity;
+    private int retained;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    // sorted items with cumulative weights; rebuilt on the first query after a change, and
+    // published as one immutable object so concurrent readers of a finished sketch agree
+    private volatile SortedView view;
+
+    private record SortedView(double[] items, long[] cumulativeWeights) {
+    }
+
+    public KllSketch(int k) {
+        this(k, new SplittableRandom());
+    }
+
+    /** With a fixed seed, for reproducible results. */
+    public KllSketch(int k, long seed) {
+        this(k, new SplittableRandom(seed));
+    }
+
+    private KllSketch(int k, SplittableRandom random) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_LEVEL_CAPACITY);
+        }
+        this.k = k;
+        this.random = random;
+        updateCapacities();
+    }
+
+    public int k() {
+        return k;
+    }
+
+    /** Number of values added, directly or through merges. */
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** Items held; bounded by roughly {@code 3k}. */
+    public int retained() {
+        return retained;
+    }
+
+    /**
+     * Approximate rank error of a quantile, as a fraction of the count (about 1.3% for the
+     * default k), using the empirical constant published with the Apache DataSketches KLL.
+     */
+    public double normalizedRankError() {
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+        append(0, value);
+        compressIfNeeded();
+        if (view != null) {
+            view = null;
+        }
+    }
+
+    /** Adds everything summarized by {@code other} to this sketch. */
+    public void merge(KllSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        compressIfNeeded();
+        if (view != null) {
+            view = null;
+        }
+    }
+
+    /**
+     * The value at normalized rank {@code q} (0 = minimum, 1 = maximum), or NaN when empty.
+     * Apart from the two extremes, the answer is one of the retained items.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1 || Double.isNaN(q)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        SortedView sorted = sortedView();
+        long rank = (long) Math.ceil(q * count);
+        int i = Arrays.binarySearch(sorted.cumulativeWeights(), rank);
+        if (i < 0) {
+            i = -i - 1; // first cumulative weight >= rank
+        }
+        return sorted.items()[Math.min(i, sorted.items().length - 1)];
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    private void append(int level, double value) {
+        while (level >= levels.length) {
+            levels = Arrays.copyOf(levels, levels.length + 1);
+            levels[levels.length - 1] = new double[MIN_LEVEL_CAPACITY];
+            sizes = Arrays.copyOf(sizes, sizes.length + 1);
+            updateCapacities();
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    // capacities only change when a level is added, so they are worked out once per level count
+    private void updateCapacities() {
+        capacities = new int[levels.length];
+        totalCapacity = 0;
+        for (int h = 0; h < levels.length; h++) {
+            int depth = levels.length - 1 - h;
+            capacities[h] = Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+            totalCapacity += capacities[h];
+        }
+    }
+
+    private void compressIfNeeded() {
+        while (retained > totalCapacity) {
+            int h = 0;
+            while (sizes[h] < capacities[h]) {
+                h++;
+            }
+            compact(h);
+        }
+    }
+
+    // halves one level into the next; an odd item out stays behind
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        boolean keepLast = (size & 1) == 1;
+        int pairs = keepLast ? size - 1 : size;
+        int offset = random.nextBoolean() ? 1 : 0;
+
+        double leftover = items[size - 1];
+        sizes[level] = 0;
+        retained -= size;
+        for (int i = offset; i < pairs; i += 2) {
+            append(level + 1, items[i]);
+        }
+        if (keepLast) {
+            levels[level][sizes[level]++] = leftover;
+            retained++;
+        }
+    }
+
+    private SortedView sortedView() {
+        SortedView current = view;
+        if (current != null) {
+            return current;
+        }
+        double[] items = new double[0];
+        long[] weights = new long[0];
+        for (int h = 0; h < levels.length; h++) {
+            double[] level = Arrays.copyOf(levels[h], sizes[h]);
+            Arrays.sort(level);
+            long weight = 1L << h;
+
+            // merge two sorted runs
+            double[] mergedItems = new double[items.length + level.length];
+            long[] mergedWeights = new long[mergedItems.length];
+            int a = 0;
+            int b = 0;
+            for (int out = 0; out < mergedItems.length; out++) {
+                if (b == level.length || (a < items.length && items[a] <= level[b])) {
+                    mergedItems[out] = items[a];
+                    mergedWeights[out] = weights[a++];
+                } else {
+                    mergedItems[out] = level[b++];
+                    mergedWeights[out] = weight;
+                }
+            }
+            items = mergedItems;
+            weights = mergedWeights;
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        current = new SortedView(items, weights);
+        view = current;
+        return current;
+    }
+}
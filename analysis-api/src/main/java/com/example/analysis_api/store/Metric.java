@@ -0,0 +1,76 @@
+package com.example.analysis_api.store;
+
+import java.util.Locale;
+
+/**
+ * A numeric value per row that can be grouped on or aggregated: any column of the table, plus
+ * derived ratios. Keys are the JSON field names ({@code yearBuilt}, {@code pricePerSqft}).
+ */
+public enum Metric {
+    PRICE("price"),
+    SQUARE_FOOTAGE("squareFootage"),
+    BEDROOMS("bedrooms"),
+    BATHROOMS("bathrooms"),
+    YEAR_BUILT("yearBuilt"),
+    LOT_SIZE("lotSize"),
+    DISTANCE_TO_CITY_CENTER("distanceToCityCenter"),
+    SCHOOL_RATING("schoolRating"),
+    PRICE_PER_SQFT("pricePerSqft");
+
+    private final String key;
+
+    Metric(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Parses a metric key, ignoring case.
+     *
+     * @throws IllegalArgumentException for unknown keys
+     */
+    public static Metric parse(String key) {
+        String k = key == null ? "" : key.trim().toLowerCase(Locale.ROOT);
+        for (Metric m : values()) {
+            if (m.key.toLowerCase(Locale.ROOT).equals(k)) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported metric: " + key);
+    }
+
+    /** Reads this metric straight from the columns; may be non-finite (price per 0 sq ft). */
+    Reader reader(PropertyColumns columns) {
+        return switch (this) {
+            case PRICE -> doubles(columns.price());
+            case SQUARE_FOOTAGE -> doubles(columns.squareFootage());
+            case BEDROOMS -> ints(columns.bedrooms());
+            case BATHROOMS -> doubles(columns.bathrooms());
+            case YEAR_BUILT -> ints(columns.yearBuilt());
+            case LOT_SIZE -> doubles(columns.lotSize());
+            case DISTANCE_TO_CITY_CENTER -> doubles(columns.distanceToCityCenter());
+            case SCHOOL_RATING -> doubles(columns.schoolRating());
+            case PRICE_PER_SQFT -> {
+                double[] price = columns.price();
+                double[] squareFootage = columns.squareFootage();
+                yield row -> price[row] / squareFootage[row];
+            }
+        };
+    }
+
+    private static Reader doubles(double[] column) {
+        return row -> column[row];
+    }
+
+    private static Reader ints(int[] column) {
+        return row -> column[row];
+    }
+
+    @FunctionalInterface
+    interface Reader {
+        double at(int row);
+    }
+}
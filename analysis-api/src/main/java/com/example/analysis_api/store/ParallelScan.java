@@ -0,0 +1,168 @@
+package com.example.analysis_api.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Splits large scans into fork-join partitions whose partial results the caller merges.
+ *
+ * Inputs below {@code threshold} rows stay on the calling thread, where a scan costs no more
+ * than before. Above it, the input is cut into contiguous partitions of at least
+ * {@value #MIN_PARTITION_ROWS} rows, a few per worker so an uneven split evens out, and the
+ * partitions are forked as halves of halves. Results come back in partition order, so
+ * concatenated row ids stay ascending.
+ */
+public final class ParallelScan implements AutoCloseable {
+
+    /** Rows below which a scan stays sequential. */
+    public static final int DEFAULT_THRESHOLD = 1 << 18;
+
+    // smallest partition worth a task; below this the fork overhead shows
+    static final int MIN_PARTITION_ROWS = 1 << 16;
+
+    // partitions per worker
+    private static final int SPLITS_PER_WORKER = 4;
+
+    /** Everything on the calling thread. */
+    public static final ParallelScan SEQUENTIAL = new ParallelScan(Integer.MAX_VALUE, MIN_PARTITION_ROWS, null);
+
+    private final int threshold;
+    private final int minPartitionRows;
+    private final ForkJoinPool pool;
+
+    private ParallelScan(int threshold, int minPartitionRows, ForkJoinPool pool) {
+        this.threshold = threshold;
+        this.minPartitionRows = minPartitionRows;
+        this.pool = pool;
+    }
+
+    /**
+     * A scan pool of {@code parallelism} workers (0 = one per core); a threshold of 0 or a
+     * single worker keeps every scan sequential.
+     */
+    public static ParallelScan create(int threshold, int parallelism) {
+        return create(threshold, parallelism, MIN_PARTITION_ROWS);
+    }
+
+    // tests split small tables with a lower partition floor
+    static ParallelScan create(int threshold, int parallelism, int minPartitionRows) {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (threshold <= 0 || workers == 1) {
+            return SEQUENTIAL;
+        }
+        ForkJoinPool pool = new ForkJoinPool(workers, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("scan-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        return new ParallelScan(threshold, minPartitionRows, pool);
+    }
+
+    /** Work on one contiguous range {@code [from, to)} of the input. */
+    @FunctionalInterface
+    public interface Partition<T> {
+        T scan(int from, int to);
+    }
+
+    public int threshold() {
+        return threshold;
+    }
+
+    /** Workers scanning in parallel; 1 when sequential. */
+    public int parallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /** Runs {@code partition} over {@code [0, size)} in one or more pieces, results in input order. */
+    public <T> List<T> run(int size, Partition<T> partition) {
+        int parts = partitions(size);
+        if (parts == 1) {
+            return List.of(partition.scan(0, size));
+        }
+        return pool.invoke(new Split<>(partition, size, parts, 0, parts));
+    }
+
+    /** Workers that would share a scan of {@code size} rows; the planner divides scan cost by it. */
+    int workersFor(int size) {
+        return Math.min(parallelism(), partitions(size));
+    }
+
+    int partitions(int size) {
+        if (pool == null || size < threshold) {
+            return 1;
+        }
+        int max = pool.getParallelism() * SPLITS_PER_WORKER;
+        return Math.max(1, Math.min(max, size / minPartitionRows));
+    }
+
+    /** Row ids from several partitions, each ascending, joined in order. */
+    static int[] concat(List<int[]> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] rows = new int[total];
+        int at = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, rows, at, part.length);
+            at += part.length;
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // partitions [first, last) of `parts` equal slices of [0, size)
+    private static final class Split<T> extends RecursiveTask<List<T>> {
+
+        private final Partition<T> partition;
+        private final int size;
+        private final int parts;
+        private final int first;
+        private final int last;
+
+        Split(Partition<T> partition, int size, int parts, int first, int last) {
+            this.partition = partition;
+            this.size = size;
+            this.parts = parts;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (last - first == 1) {
+                List<T> one = new ArrayList<>(1);
+                one.add(partition.scan(start(first), start(first + 1)));
+                return one;
+            }
+            int middle = (first + last) >>> 1;
+            Split<T> right = new Split<>(partition, size, parts, middle, last);
+            right.fork();
+            List<T> left = new Split<>(partition, size, parts, first, middle).compute();
+            left.addAll(right.join());
+            return left;
+        }
+
+        private int start(int part) {
+            return (int) ((long) size * part / parts);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pool == null ? "sequential" : "fork-join x" + pool.getParallelism() + " above " + threshold + " rows";
+    }
+}
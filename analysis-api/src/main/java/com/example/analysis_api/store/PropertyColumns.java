@@ -0,0 +1,241 @@
+package com.example.analysis_api.store;
+
+import com.example.analysis_api.model.PropertyRecord;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented, read-only view of the housing dataset.
+ *
+ * Every field of {@link PropertyRecord} lives in its own primitive array, indexed by row id.
+ * Scans read these arrays directly; {@link #toRecord(int)} turns a row back into a
+ * {@link PropertyRecord} only when a response actually needs one.
+ *
+ * The arrays returned by the accessors are shared, not copied — callers must not modify them.
+ */
+public final class PropertyColumns {
+
+    private static final PropertyColumns EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final double[] price;
+    private final double[] squareFootage;
+    private final int[] bedrooms;
+    private final double[] bathrooms;
+    private final int[] yearBuilt;
+    private final double[] lotSize;
+    private final double[] distanceToCityCenter;
+    private final double[] schoolRating;
+
+    private PropertyColumns(int size,
+                            double[] price,
+                            double[] squareFootage,
+                            int[] bedrooms,
+                            double[] bathrooms,
+                            int[] yearBuilt,
+                            double[] lotSize,
+                            double[] distanceToCityCenter,
+                            double[] schoolRating) {
+        this.size = size;
+        this.price = price;
+        this.squareFootage = squareFootage;
+        this.bedrooms = bedrooms;
+        this.bathrooms = bathrooms;
+        this.yearBuilt = yearBuilt;
+        this.lotSize = lotSize;
+        this.distanceToCityCenter = distanceToCityCenter;
+        this.schoolRating = schoolRating;
+    }
+
+    public static PropertyColumns empty() {
+        return EMPTY;
+    }
+
+    /** Wraps already-filled arrays of exactly {@code size} rows without copying them. */
+    static PropertyColumns of(int size,
+                              double[] price,
+                              double[] squareFootage,
+                              int[] bedrooms,
+                              double[] bathrooms,
+                              int[] yearBuilt,
+                              double[] lotSize,
+                              double[] distanceToCityCenter,
+                              double[] schoolRating) {
+        return new PropertyColumns(size, price, squareFootage, bedrooms, bathrooms,
+                yearBuilt, lotSize, distanceToCityCenter, schoolRating);
+    }
+
+    /** Appends the parts in order into one set of columns, e.g. per-chunk results of a parallel load. */
+    public static PropertyColumns concat(List<PropertyColumns> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        int total = 0;
+        for (PropertyColumns part : parts) {
+            total = Math.addExact(total, part.size);
+        }
+        double[] price = new double[total];
+        double[] squareFootage = new double[total];
+        int[] bedrooms = new int[total];
+        double[] bathrooms = new double[total];
+        int[] yearBuilt = new int[total];
+        double[] lotSize = new double[total];
+        double[] distanceToCityCenter = new double[total];
+        double[] schoolRating = new double[total];
+
+        int offset = 0;
+        for (PropertyColumns part : parts) {
+            int n = part.size;
+            System.arraycopy(part.price, 0, price, offset, n);
+            System.arraycopy(part.squareFootage, 0, squareFootage, offset, n);
+            System.arraycopy(part.bedrooms, 0, bedrooms, offset, n);
+            System.arraycopy(part.bathrooms, 0, bathrooms, offset, n);
+            System.arraycopy(part.yearBuilt, 0, yearBuilt, offset, n);
+            System.arraycopy(part.lotSize, 0, lotSize, offset, n);
+            System.arraycopy(part.distanceToCityCenter, 0, distanceToCityCenter, offset, n);
+            System.arraycopy(part.schoolRating, 0, schoolRating, offset, n);
+            offset += n;
+        }
+        return new PropertyColumns(total, price, squareFootage, bedrooms, bathrooms,
+                yearBuilt, lotSize, distanceToCityCenter, schoolRating);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double[] price() {
+        return price;
+    }
+
+    public double[] squareFootage() {
+        return squareFootage;
+    }
+
+    public int[] bedrooms() {
+        return bedrooms;
+    }
+
+    public double[] bathrooms() {
+        return bathrooms;
+    }
+
+    public int[] yearBuilt() {
+        return yearBuilt;
+    }
+
+    public double[] lotSize() {
+        return lotSize;
+    }
+
+    public double[] distanceToCityCenter() {
+        return distanceToCityCenter;
+    }
+
+    public double[] schoolRating() {
+        return schoolRating;
+    }
+
+    /** Materializes a single row as a {@link PropertyRecord} for the response boundary. */
+    public PropertyRecord toRecord(int row) {
+        return new PropertyRecord(
+                price[row],
+                squareFootage[row],
+                bedrooms[row],
+                bathrooms[row],
+                yearBuilt[row],
+                lotSize[row],
+                distanceToCityCenter[row],
+                schoolRating[row]);
+    }
+
+    /**
+     * Append-only builder. Arrays grow geometrically while loading and are trimmed to
+     * the exact row count in {@link #build()}.
+     */
+    public static final class Builder {
+
+        private int size;
+        private double[] price;
+        private double[] squareFootage;
+        private int[] bedrooms;
+        private double[] bathrooms;
+        private int[] yearBuilt;
+        private double[] lotSize;
+        private double[] distanceToCityCenter;
+        private double[] schoolRating;
+
+        public Builder() {
+            this(1024);
+        }
+
+        public Builder(int initialCapacity) {
+            int cap = Math.max(initialCapacity, 0);
+            price = new double[cap];
+            squareFootage = new double[cap];
+            bedrooms = new int[cap];
+            bathrooms = new double[cap];
+            yearBuilt = new int[cap];
+            lotSize = new double[cap];
+            distanceToCityCenter = new double[cap];
+            schoolRating = new double[cap];
+        }
+
+        public Builder add(double price,
+                           double squareFootage,
+                           int bedrooms,
+                           double bathrooms,
+                           int yearBuilt,
+                           double lotSize,
+                           double distanceToCityCenter,
+                           double schoolRating) {
+            if (size == this.price.length) {
+                grow();
+            }
+            this.price[size] = price;
+            this.squareFootage[size] = squareFootage;
+            this.bedrooms[size] = bedrooms;
+            this.bathrooms[size] = bathrooms;
+            this.yearBuilt[size] = yearBuilt;
+            this.lotSize[size] = lotSize;
+            this.distanceToCityCenter[size] = distanceToCityCenter;
+            this.schoolRating[size] = schoolRating;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PropertyColumns build() {
+            return new PropertyColumns(
+                    size,
+                    Arrays.copyOf(price, size),
+                    Arrays.copyOf(squareFootage, size),
+                    Arrays.copyOf(bedrooms, size),
+                    Arrays.copyOf(bathrooms, size),
+                    Arrays.copyOf(yearBuilt, size),
+                    Arrays.copyOf(lotSize, size),
+                    Arrays.copyOf(distanceToCityCenter, size),
+                    Arrays.copyOf(schoolRating, size));
+        }
+
+        private void grow() {
+            int cap = Math.max(16, price.length + (price.length >> 1));
+            price = Arrays.copyOf(price, cap);
+            squareFootage = Arrays.copyOf(squareFootage, cap);
+            bedrooms = Arrays.copyOf(bedrooms, cap);
+            bathrooms = Arrays.copyOf(bathrooms, cap);
+            yearBuilt = Arrays.copyOf(yearBuilt, cap);
+            lotSize = Arrays.copyOf(lotSize, cap);
+            distanceToCityCenter = Arrays.copyOf(distanceToCityCenter, cap);
+            schoolRating = Arrays.copyOf(schoolRating, cap);
+        }
+    }
+}
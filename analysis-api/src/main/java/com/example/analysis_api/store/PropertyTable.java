@@ -0,0 +1,495 @@
+package com.example.analysis_api.store;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The loaded dataset: {@link PropertyColumns} plus the secondary indexes built over them.
+ *
+ * Selection picks the cheapest of three access paths:
+ * <ul>
+ *   <li>the narrowest sorted-index slice among the range-filtered columns,</li>
+ *   <li>the bedroom / rating-bucket bitmaps AND'ed together,</li>
+ *   <li>a sequential column scan, split across the {@link ParallelScan} workers when the
+ *       table is large enough.</li>
+ * </ul>
+ * Rows reached through an index are re-checked against the full filter unless the bitmaps
+ * already prove the match, in which case counts come straight from bitmap cardinalities.
+ */
+public final class PropertyTable {
+
+    // relative per-row cost of each access path; a scan reads rows sequentially
+    private static final int PROBE_COST = 4;
+    private static final int BITMAP_COST = 2;
+
+    private static final PropertyTable EMPTY = new PropertyTable(PropertyColumns.empty());
+
+    private final PropertyColumns columns;
+    private final SortedIndex priceIndex;
+    private final SortedIndex schoolRatingIndex;
+    private final SortedIndex bedroomsIndex;
+    private final BitmapIndex bedroomsBitmaps;
+    private final BitmapIndex schoolRatingBitmaps;
+    private final ParallelScan scan;
+    private final QueryListener listener;
+
+    /** How a selection or aggregation reached its rows. */
+    public enum AccessPath {
+        SCAN, PROBE, BITMAP, REFINE, AGGREGATE
+    }
+
+    /**
+     * Told the rows examined and returned by every selection (for an aggregation: rows
+     * aggregated and groups). Called on the query thread, so it must be cheap.
+     */
+    @FunctionalInterface
+    public interface QueryListener {
+        QueryListener NONE = (path, examined, returned) -> {
+        };
+
+        void queried(AccessPath path, long examined, long returned);
+    }
+
+    public PropertyTable(PropertyColumns columns) {
+        this(columns, ParallelScan.SEQUENTIAL, QueryListener.NONE);
+    }
+
+    /** With full scans and aggregations above the pool's threshold split across its workers. */
+    public PropertyTable(PropertyColumns columns, ParallelScan scan) {
+        this(columns, scan, QueryListener.NONE);
+    }
+
+    /** As above, with every selection and aggregation reported to {@code listener}. */
+    public PropertyTable(PropertyColumns columns, ParallelScan scan, QueryListener listener) {
+        this.columns = columns;
+        this.scan = scan;
+        this.listener = listener;
+        this.priceIndex = SortedIndex.build(columns.price());
+        this.schoolRatingIndex = SortedIndex.build(columns.schoolRating());
+        this.bedroomsIndex = SortedIndex.build(columns.bedrooms());
+        this.bedroomsBitmaps = BitmapIndex.build(columns.bedrooms());
+        this.schoolRatingBitmaps = BitmapIndex.build(ratingBuckets(columns.schoolRating()), columns.schoolRating());
+    }
+
+    public static PropertyTable empty() {
+        return EMPTY;
+    }
+
+    public PropertyColumns columns() {
+        return columns;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    public SortedIndex priceIndex() {
+        return priceIndex;
+    }
+
+    public SortedIndex schoolRatingIndex() {
+        return schoolRatingIndex;
+    }
+
+    public SortedIndex bedroomsIndex() {
+        return bedroomsIndex;
+    }
+
+    public BitmapIndex bedroomsBitmaps() {
+        return bedroomsBitmaps;
+    }
+
+    public BitmapIndex schoolRatingBitmaps() {
+        return schoolRatingBitmaps;
+    }
+
+    /**
+     * The filter with every bound snapped to a value that occurs in this table: a minimum moves
+     * up to the smallest value it admits, a maximum down to the largest, and a bound that
+     * excludes nothing becomes open. Filters selecting the same rows through the same bounds
+     * (e.g. two slider positions between neighbouring prices) thus compare equal. Every filter
+     * that matches nothing becomes the same {@link RowFilter#matchesNothing()} instance.
+     */
+    public RowFilter canonical(RowFilter filter) {
+        int n = columns.size();
+        int priceFrom = priceIndex.lowerBound(filter.minPrice());
+        int priceTo = priceIndex.upperBound(filter.maxPrice());
+        int bedroomsFrom = bedroomsIndex.lowerBound(filter.minBedrooms());
+        int bedroomsTo = bedroomsIndex.upperBound(filter.maxBedrooms());
+        int ratingFrom = schoolRatingIndex.lowerBound(filter.minSchoolRating());
+        int ratingTo = schoolRatingIndex.upperBound(filter.maxSchoolRating());
+        if (priceFrom >= priceTo || bedroomsFrom >= bedroomsTo || ratingFrom >= ratingTo) {
+            return RowFilter.NONE;
+        }
+        return RowFilter.bounds(
+                priceFrom == 0 ? Double.NEGATIVE_INFINITY : priceIndex.valueAt(priceFrom),
+                priceTo == n ? Double.POSITIVE_INFINITY : priceIndex.valueAt(priceTo - 1),
+                bedroomsFrom == 0 ? Integer.MIN_VALUE : (int) bedroomsIndex.valueAt(bedroomsFrom),
+                bedroomsTo == n ? Integer.MAX_VALUE : (int) bedroomsIndex.valueAt(bedroomsTo - 1),
+                ratingFrom == 0 ? Double.NEGATIVE_INFINITY : schoolRatingIndex.valueAt(ratingFrom),
+                ratingTo == n ? Double.POSITIVE_INFINITY : schoolRatingIndex.valueAt(ratingTo - 1));
+    }
+
+    /**
+     * For a filter that bounds price alone, the position range {@code {from, to}} of its rows in
+     * {@link #priceIndex()}, i.e. their prices already in sorted order; null when the filter
+     * also bounds bedrooms or school rating. Pass a {@link #canonical} filter, so bounds that
+     * exclude nothing do not count.
+     */
+    public int[] priceOnlyRange(RowFilter filter) {
+        if (filter.minBedrooms() != Integer.MIN_VALUE || filter.maxBedrooms() != Integer.MAX_VALUE
+                || filter.minSchoolRating() != Double.NEGATIVE_INFINITY
+                || filter.maxSchoolRating() != Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        return new int[]{priceIndex.lowerBound(filter.minPrice()), priceIndex.upperBound(filter.maxPrice())};
+    }
+
+    /** Row ids matching the filter, in ascending row order. */
+    public int[] select(RowFilter filter) {
+        return select(filter, null);
+    }
+
+    /**
+     * Row ids matching the filter among {@code candidates}, a superset of the answer in
+     * ascending row order (typically the cached rows of a wider filter).
+     *
+     * Returns null when the indexes would answer faster than re-checking every candidate, so
+     * the caller can fall back to {@link #select(RowFilter)}.
+     */
+    public int[] selectWithin(RowFilter filter, int[] candidates) {
+        return select(filter, candidates);
+    }
+
+    private int[] select(RowFilter filter, int[] candidates) {
+        int n = columns.size();
+        Slice slice = narrowestSlice(filter);
+        BitmapIndex.Match match = bitmapMatch(filter);
+        long bitmapRows = match == null ? 0 : match.rows().getLongCardinality();
+
+        long scanCost = n / scan.workersFor(n);
+        long probeCost = slice == null ? Long.MAX_VALUE : (long) slice.width() * PROBE_COST;
+        long bitmapCost = match == null ? Long.MAX_VALUE : bitmapRows * BITMAP_COST;
+
+        if (candidates != null) {
+            // candidates are ascending, so re-checking them reads the columns front to back like a scan
+            long refineCost = candidates.length / scan.workersFor(candidates.length);
+            if (refineCost <= Math.min(scanCost, Math.min(probeCost, bitmapCost))) {
+                return observed(AccessPath.REFINE, candidates.length, refine(filter, candidates));
+            }
+            return null;
+        }
+
+        if (bitmapCost <= probeCost && bitmapCost < scanCost) {
+            return observed(AccessPath.BITMAP, bitmapRows, fromBitmap(filter, match));
+        }
+        if (probeCost < scanCost) {
+            return observed(AccessPath.PROBE, slice.width(), probe(filter, slice));
+        }
+        return observed(AccessPath.SCAN, n, scan(filter));
+    }
+
+    private int[] observed(AccessPath path, long examined, int[] rows) {
+        listener.queried(path, examined, rows.length);
+        return rows;
+    }
+
+    /** Number of rows matching the filter, answered from index metadata whenever possible. */
+    public long count(RowFilter filter) {
+        boolean priceBounded = priceBounded(filter);
+        BitmapIndex.Match match = bitmapMatch(filter);
+
+        if (match == null && !priceBounded) {
+            return columns.size();
+        }
+        if (match != null && match.exact() && !priceBounded) {
+            return match.rows().getCardinality();
+        }
+        if (match == null) {
+            // price is the only predicate: the index slice width is the answer
+            return priceIndex.upperBound(filter.maxPrice()) - priceIndex.lowerBound(filter.minPrice());
+        }
+        return select(filter).length;
+    }
+
+    /**
+     * Row count and price sum per bedroom value for the matching rows.
+     *
+     * Each bedroom bitmap is AND'ed with the rating candidates; when that intersection is exact
+     * its cardinality is the group count and the price sum needs one pass over the price column.
+     */
+    public GroupTotals priceTotalsByBedrooms(RowFilter filter) {
+        GroupTotals totals = new GroupTotals(bedroomsBitmaps);
+        if (columns.isEmpty()) {
+            return totals;
+        }
+        double[] price = columns.price();
+        int[] bedrooms = columns.bedrooms();
+
+        // a narrow price window beats walking whole bedroom groups
+        BitmapIndex.Match match = bitmapMatch(filter);
+        long candidates = match == null ? columns.size() : match.rows().getCardinality();
+        if (priceBounded(filter)) {
+            int width = priceIndex.upperBound(filter.maxPrice()) - priceIndex.lowerBound(filter.minPrice());
+            if ((long) width * PROBE_COST < candidates) {
+                for (int row : select(filter)) {
+                    totals.add(bedrooms[row], price[row]);
+                }
+                return totals;
+            }
+        }
+
+        BitmapIndex.Match rating = ratingBounded(filter)
+                ? schoolRatingBitmaps.match(filter.minSchoolRating(), filter.maxSchoolRating())
+                : null;
+        boolean exact = !priceBounded(filter) && (rating == null || rating.exact());
+        double[] schoolRating = columns.schoolRating();
+
+        int from = bedroomsBitmaps.lowerSlot(filter.minBedrooms());
+        int to = bedroomsBitmaps.upperSlot(filter.maxBedrooms());
+        for (int slot = from; slot <= to; slot++) {
+            int key = bedroomsBitmaps.keyAt(slot);
+            RoaringBitmap group = bedroomsBitmaps.rowsAt(slot);
+            if (rating != null) {
+                group = RoaringBitmap.and(group, rating.rows());
+            }
+            if (group.isEmpty()) {
+                continue;
+            }
+
+            IntIterator it = group.getIntIterator();
+            if (exact) {
+                double sum = 0;
+                while (it.hasNext()) {
+                    sum += price[it.next()];
+                }
+                totals.addAllAt(slot, group.getLongCardinality(), sum);
+            } else {
+                while (it.hasNext()) {
+                    int row = it.next();
+                    if (filter.matches(price[row], key, schoolRating[row])) {
+                        totals.add(key, price[row]);
+                    }
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Groups the given rows (null for all) by a bucketed dimension and totals each measure per
+     * group, in one pass; see {@link Aggregation}.
+     *
+     * @throws IllegalArgumentException when the rows fall into too many groups
+     */
+    public Aggregation aggregate(int[] rows, Metric dimension, Bucketing bucketing, List<Metric> measures) {
+        Aggregation aggregation = Aggregation.compute(columns, rows, dimension, bucketing, measures, scan);
+        listener.queried(AccessPath.AGGREGATE, rows == null ? columns.size() : rows.length, aggregation.groups());
+        return aggregation;
+    }
+
+    /**
+     * Visits matching rows one at a time in the given order, starting at walk position
+     * {@code fromPosition}, without collecting them.
+     *
+     * Positions number the whole table in walk order and do not depend on the filter, so a
+     * position returned here can be handed back later to resume. When the walk is ordered by a
+     * filtered column, only that column's index slice is visited.
+     *
+     * @return the position of the row the visitor declined, or -1 when the walk ran to the end
+     */
+    public int walk(RowFilter filter, RowOrder order, int fromPosition, RowVisitor visitor) {
+        int n = columns.size();
+        SortedIndex index = switch (order.column()) {
+            case ID -> null;
+            case PRICE -> priceIndex;
+            case SCHOOL_RATING -> schoolRatingIndex;
+            case BEDROOMS -> bedroomsIndex;
+        };
+
+        // index positions [lo, hi) that can match on the ordering column
+        int lo = 0;
+        int hi = n;
+        if (index == priceIndex && priceBounded(filter)) {
+            lo = priceIndex.lowerBound(filter.minPrice());
+            hi = priceIndex.upperBound(filter.maxPrice());
+        } else if (index == schoolRatingIndex && ratingBounded(filter)) {
+            lo = schoolRatingIndex.lowerBound(filter.minSchoolRating());
+            hi = schoolRatingIndex.upperBound(filter.maxSchoolRating());
+        } else if (index == bedroomsIndex && bedroomsBounded(filter)) {
+            lo = bedroomsIndex.lowerBound(filter.minBedrooms());
+            hi = bedroomsIndex.upperBound(filter.maxBedrooms());
+        }
+        int start = order.descending() ? n - hi : lo;
+        int end = order.descending() ? n - lo : hi;
+
+        double[] price = columns.price();
+        int[] bedrooms = columns.bedrooms();
+        double[] schoolRating = columns.schoolRating();
+        for (int pos = Math.max(start, fromPosition); pos < end; pos++) {
+            int slot = order.descending() ? n - 1 - pos : pos;
+            int row = index == null ? slot : index.rowAt(slot);
+            if (filter.matches(price[row], bedrooms[row], schoolRating[row]) && !visitor.visit(row)) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /** Callback for {@link #walk}; return false to stop before consuming the row. */
+    @FunctionalInterface
+    public interface RowVisitor {
+        boolean visit(int row);
+    }
+
+    // ---------------- access paths ----------------
+
+    private int[] fromBitmap(RowFilter filter, BitmapIndex.Match match) {
+        if (match.exact() && !priceBounded(filter)) {
+            return match.rows().toArray();
+        }
+        double[] price = columns.price();
+        int[] bedrooms = columns.bedrooms();
+        double[] schoolRating = columns.schoolRating();
+
+        int[] rows = new int[match.rows().getCardinality()];
+        int count = 0;
+        IntIterator it = match.rows().getIntIterator();
+        while (it.hasNext()) {
+            int row = it.next();
+            if (filter.matches(price[row], bedrooms[row], schoolRating[row])) {
+                rows[count++] = row;
+            }
+        }
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    private int[] refine(RowFilter filter, int[] candidates) {
+        return ParallelScan.concat(scan.run(candidates.length, (from, to) -> matching(filter, candidates, from, to)));
+    }
+
+    private int[] probe(RowFilter filter, Slice slice) {
+        double[] price = columns.price();
+        int[] bedrooms = columns.bedrooms();
+        double[] schoolRating = columns.schoolRating();
+
+        int[] rows = new int[slice.width()];
+        int count = 0;
+        for (int pos = slice.from; pos < slice.to; pos++) {
+            int row = slice.index.rowAt(pos);
+            if (filter.matches(price[row], bedrooms[row], schoolRating[row])) {
+                rows[count++] = row;
+            }
+        }
+        // index order is value order; callers expect dataset order
+        Arrays.sort(rows, 0, count);
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    private int[] scan(RowFilter filter) {
+        return ParallelScan.concat(scan.run(columns.size(), (from, to) -> matching(filter, null, from, to)));
+    }
+
+    /**
+     * Rows in {@code [from, to)} matching the filter, where positions are row ids, or index into
+     * {@code candidates} when given; one partition of a scan or refine.
+     */
+    private int[] matching(RowFilter filter, int[] candidates, int from, int to) {
+        double[] price = columns.price();
+        int[] bedrooms = columns.bedrooms();
+        double[] schoolRating = columns.schoolRating();
+
+        int[] rows = new int[Math.min(to - from, 1024)];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int row = candidates == null ? i : candidates[i];
+            if (filter.matches(price[row], bedrooms[row], schoolRating[row])) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, Math.min(to - from, rows.length * 2));
+                }
+                rows[count++] = row;
+            }
+        }
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    // ---------------- planning helpers ----------------
+
+    private Slice narrowestSlice(RowFilter filter) {
+        Slice best = null;
+        if (priceBounded(filter)) {
+            best = narrower(best, new Slice(priceIndex,
+                    priceIndex.lowerBound(filter.minPrice()), priceIndex.upperBound(filter.maxPrice())));
+        }
+        if (ratingBounded(filter)) {
+            best = narrower(best, new Slice(schoolRatingIndex,
+                    schoolRatingIndex.lowerBound(filter.minSchoolRating()),
+                    schoolRatingIndex.upperBound(filter.maxSchoolRating())));
+        }
+        if (bedroomsBounded(filter)) {
+            best = narrower(best, new Slice(bedroomsIndex,
+                    bedroomsIndex.lowerBound(filter.minBedrooms()), bedroomsIndex.upperBound(filter.maxBedrooms())));
+        }
+        return best;
+    }
+
+    private static Slice narrower(Slice current, Slice candidate) {
+        return current == null || candidate.width() < current.width() ? candidate : current;
+    }
+
+    /** Bedroom and rating-bucket bitmaps AND'ed together; null when neither column is filtered. */
+    private BitmapIndex.Match bitmapMatch(RowFilter filter) {
+        BitmapIndex.Match match = null;
+        if (bedroomsBounded(filter)) {
+            match = bedroomsBitmaps.match(filter.minBedrooms(), filter.maxBedrooms());
+        }
+        if (ratingBounded(filter)) {
+            BitmapIndex.Match rating = schoolRatingBitmaps.match(filter.minSchoolRating(), filter.maxSchoolRating());
+            match = match == null ? rating : new BitmapIndex.Match(
+                    RoaringBitmap.and(match.rows(), rating.rows()), match.exact() && rating.exact());
+        }
+        return match;
+    }
+
+    private static boolean priceBounded(RowFilter filter) {
+        return filter.minPrice() > Double.NEGATIVE_INFINITY || filter.maxPrice() < Double.POSITIVE_INFINITY;
+    }
+
+    private static boolean ratingBounded(RowFilter filter) {
+        return filter.minSchoolRating() > Double.NEGATIVE_INFINITY
+                || filter.maxSchoolRating() < Double.POSITIVE_INFINITY;
+    }
+
+    private static boolean bedroomsBounded(RowFilter filter) {
+        return filter.minBedrooms() > Integer.MIN_VALUE || filter.maxBedrooms() < Integer.MAX_VALUE;
+    }
+
+    /** School ratings bucketed by whole point: 7.0–7.9 → 7. Out-of-range ratings clamp to the int range. */
+    private static int[] ratingBuckets(double[] schoolRating) {
+        int[] buckets = new int[schoolRating.length];
+        for (int i = 0; i < schoolRating.length; i++) {
+            buckets[i] = (int) Math.floor(schoolRating[i]);
+        }
+        return buckets;
+    }
+
+    private static final class Slice {
+
+        final SortedIndex index;
+        final int from;
+        final int to;
+
+        Slice(SortedIndex index, int from, int to) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+
+        int width() {
+            return to - from;
+        }
+    }
+}
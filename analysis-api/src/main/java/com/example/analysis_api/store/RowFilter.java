@@ -0,0 +1,149 @@
+package com.example.analysis_api.store;
+
+import java.util.Objects;
+
+/**
+ * The six nullable segment filters resolved to primitive, inclusive bounds.
+ *
+ * A missing bound becomes an open one (±infinity / Integer.MIN_VALUE / MAX_VALUE), so a scan
+ * evaluates every predicate with plain comparisons and no null checks or unboxing per row.
+ */
+public final class RowFilter {
+
+    /** Canonical form of every filter that matches no row. */
+    static final RowFilter NONE = new RowFilter(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+    private final double minPrice;
+    private final double maxPrice;
+    private final int minBedrooms;
+    private final int maxBedrooms;
+    private final double minSchoolRating;
+    private final double maxSchoolRating;
+
+    private RowFilter(double minPrice,
+                      double maxPrice,
+                      int minBedrooms,
+                      int maxBedrooms,
+                      double minSchoolRating,
+                      double maxSchoolRating) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.minBedrooms = minBedrooms;
+        this.maxBedrooms = maxBedrooms;
+        this.minSchoolRating = minSchoolRating;
+        this.maxSchoolRating = maxSchoolRating;
+    }
+
+    /**
+     * @throws IllegalArgumentException for a NaN or infinite price or school rating bound, which
+     *                                  the indexes and a scan would read differently
+     */
+    public static RowFilter of(Double minPrice,
+                               Double maxPrice,
+                               Integer minBedrooms,
+                               Integer maxBedrooms,
+                               Double minSchoolRating,
+                               Double maxSchoolRating) {
+        requireFinite("minPrice", minPrice);
+        requireFinite("maxPrice", maxPrice);
+        requireFinite("minSchoolRating", minSchoolRating);
+        requireFinite("maxSchoolRating", maxSchoolRating);
+        return new RowFilter(
+                minPrice == null ? Double.NEGATIVE_INFINITY : minPrice,
+                maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice,
+                minBedrooms == null ? Integer.MIN_VALUE : minBedrooms,
+                maxBedrooms == null ? Integer.MAX_VALUE : maxBedrooms,
+                minSchoolRating == null ? Double.NEGATIVE_INFINITY : minSchoolRating,
+                maxSchoolRating == null ? Double.POSITIVE_INFINITY : maxSchoolRating);
+    }
+
+    private static void requireFinite(String name, Double bound) {
+        if (bound != null && !Double.isFinite(bound)) {
+            throw new IllegalArgumentException(name + " must be a finite number");
+        }
+    }
+
+    /** Same filter with explicit bounds; used when canonicalizing against a table. */
+    static RowFilter bounds(double minPrice,
+                            double maxPrice,
+                            int minBedrooms,
+                            int maxBedrooms,
+                            double minSchoolRating,
+                            double maxSchoolRating) {
+        return new RowFilter(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+    }
+
+    public boolean matches(double price, int bedrooms, double schoolRating) {
+        return price >= minPrice && price <= maxPrice
+                && bedrooms >= minBedrooms && bedrooms <= maxBedrooms
+                && schoolRating >= minSchoolRating && schoolRating <= maxSchoolRating;
+    }
+
+    public double minPrice() {
+        return minPrice;
+    }
+
+    public double maxPrice() {
+        return maxPrice;
+    }
+
+    public int minBedrooms() {
+        return minBedrooms;
+    }
+
+    public int maxBedrooms() {
+        return maxBedrooms;
+    }
+
+    public double minSchoolRating() {
+        return minSchoolRating;
+    }
+
+    public double maxSchoolRating() {
+        return maxSchoolRating;
+    }
+
+    /** True when no row can match, e.g. for {@link PropertyTable#canonical} of an empty range. */
+    public boolean matchesNothing() {
+        return minPrice > maxPrice || minBedrooms > maxBedrooms || minSchoolRating > maxSchoolRating;
+    }
+
+    /** True when every row matching {@code other} also matches this filter. */
+    public boolean contains(RowFilter other) {
+        return other.matchesNothing()
+                || (minPrice <= other.minPrice && maxPrice >= other.maxPrice
+                && minBedrooms <= other.minBedrooms && maxBedrooms >= other.maxBedrooms
+                && minSchoolRating <= other.minSchoolRating && maxSchoolRating >= other.maxSchoolRating);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RowFilter that)) {
+            return false;
+        }
+        return Double.compare(minPrice, that.minPrice) == 0
+                && Double.compare(maxPrice, that.maxPrice) == 0
+                && minBedrooms == that.minBedrooms
+                && maxBedrooms == that.maxBedrooms
+                && Double.compare(minSchoolRating, that.minSchoolRating) == 0
+                && Double.compare(maxSchoolRating, that.maxSchoolRating) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minPrice, maxPrice, minBedrooms, maxBedrooms, minSchoolRating, maxSchoolRating);
+    }
+
+    @Override
+    public String toString() {
+        return "RowFilter{" +
+                "price=[" + minPrice + ", " + maxPrice + "]" +
+                ", bedrooms=[" + minBedrooms + ", " + maxBedrooms + "]" +
+                ", schoolRating=[" + minSchoolRating + ", " + maxSchoolRating + "]" +
+                '}';
+    }
+}
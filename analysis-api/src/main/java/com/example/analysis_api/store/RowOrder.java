@@ -0,0 +1,75 @@
+package com.example.analysis_api.store;
+
+import java.util.Locale;
+
+/**
+ * Order in which a segment is walked: dataset order ("id") or by an indexed column,
+ * ascending or descending ("-price").
+ */
+public final class RowOrder {
+
+    public enum Column {
+        ID("id"),
+        PRICE("price"),
+        SCHOOL_RATING("schoolRating"),
+        BEDROOMS("bedrooms");
+
+        private final String key;
+
+        Column(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    public static final RowOrder DATASET = new RowOrder(Column.ID, false);
+
+    private final Column column;
+    private final boolean descending;
+
+    public RowOrder(Column column, boolean descending) {
+        this.column = column;
+        this.descending = descending;
+    }
+
+    /**
+     * Parses a sort key such as {@code price} or {@code -schoolRating}; blank means dataset order.
+     *
+     * @throws IllegalArgumentException for unknown columns
+     */
+    public static RowOrder parse(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return DATASET;
+        }
+        String s = sort.trim();
+        boolean descending = s.startsWith("-");
+        String key = descending ? s.substring(1) : s;
+        for (Column c : Column.values()) {
+            if (c.key.toLowerCase(Locale.ROOT).equals(key.toLowerCase(Locale.ROOT))) {
+                return new RowOrder(c, descending);
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort key: " + sort);
+    }
+
+    public Column column() {
+        return column;
+    }
+
+    public boolean descending() {
+        return descending;
+    }
+
+    /** Canonical form, the inverse of {@link #parse(String)}. */
+    public String key() {
+        return (descending ? "-" : "") + column.key;
+    }
+
+    @Override
+    public String toString() {
+        return key();
+    }
+}
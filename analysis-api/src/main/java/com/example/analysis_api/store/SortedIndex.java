@@ -0,0 +1,123 @@
+package com.example.analysis_api.store;
+
+/**
+ * Secondary index over one numeric column: row ids ordered by column value (ties by row id).
+ *
+ * A range predicate {@code min <= value <= max} resolves to the position range
+ * {@code [lowerBound(min), upperBound(max))} by binary search, so a narrow window only
+ * touches the rows it actually matches.
+ */
+public final class SortedIndex {
+
+    private final double[] sortedValues;
+    private final int[] rowIds;
+
+    private SortedIndex(double[] sortedValues, int[] rowIds) {
+        this.sortedValues = sortedValues;
+        this.rowIds = rowIds;
+    }
+
+    public static SortedIndex build(double[] column) {
+        return build(column.clone(), column.length);
+    }
+
+    public static SortedIndex build(int[] column) {
+        double[] values = new double[column.length];
+        for (int i = 0; i < column.length; i++) {
+            values[i] = column[i];
+        }
+        return build(values, column.length);
+    }
+
+    private static SortedIndex build(double[] values, int n) {
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+        // stable merge sort keeps equal values in row order
+        mergeSort(rows, new int[n], values, 0, n);
+
+        double[] sorted = new double[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = values[rows[i]];
+        }
+        return new SortedIndex(sorted, rows);
+    }
+
+    public int size() {
+        return rowIds.length;
+    }
+
+    /** Row id at the given position in value order. */
+    public int rowAt(int position) {
+        return rowIds[position];
+    }
+
+    /** Column value at the given position in value order. */
+    public double valueAt(int position) {
+        return sortedValues[position];
+    }
+
+    /** First position whose value is {@code >= min}. */
+    public int lowerBound(double min) {
+        int lo = 0;
+        int hi = sortedValues.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedValues[mid] < min) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** First position whose value is {@code > max}. */
+    public int upperBound(double max) {
+        int lo = 0;
+        int hi = sortedValues.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedValues[mid] <= max) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static void mergeSort(int[] rows, int[] tmp, double[] values, int from, int to) {
+        if (to - from < 32) {
+            // insertion sort for short runs
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                double v = values[row];
+                int j = i - 1;
+                while (j >= from && values[rows[j]] > v) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(rows, tmp, values, from, mid);
+        mergeSort(rows, tmp, values, mid, to);
+        if (values[rows[mid - 1]] <= values[rows[mid]]) {
+            return;
+        }
+        System.arraycopy(rows, from, tmp, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && values[tmp[i]] <= values[tmp[j]])) {
+                rows[k] = tmp[i++];
+            } else {
+                rows[k] = tmp[j++];
+            }
+        }
+    }
+}
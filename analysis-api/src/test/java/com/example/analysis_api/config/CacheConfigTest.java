@@ -0,0 +1,61 @@
+package com.example.analysis_api.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheConfigTest {
+
+    private final CacheManager manager = new CacheConfig().cacheManager(1_000, 100, 100, Duration.ofMinutes(5));
+
+    @Test
+    void segments_areBoundedByTotalRowsAndRecordStats() {
+        org.springframework.cache.Cache segments = manager.getCache("segments");
+        for (int i = 0; i < 50; i++) {
+            segments.put(i, Collections.nCopies(99, "row")); // weight 100 each
+        }
+        segments.get(49);
+        segments.get("never-cached");
+
+        Cache<Object, Object> nativeCache = ((CaffeineCache) segments).getNativeCache();
+        nativeCache.cleanUp();
+        long weighted = nativeCache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+        assertTrue(weighted <= 1_000, "weighted size " + weighted);
+        assertTrue(nativeCache.estimatedSize() <= 10);
+        assertEquals(1, nativeCache.stats().missCount());
+        assertTrue(nativeCache.stats().evictionCount() >= 40);
+    }
+
+    @Test
+    void oversizedResult_isNotRetained() {
+        org.springframework.cache.Cache groups = manager.getCache("avgPriceByBedrooms");
+        groups.put("small", List.of("a", "b"));
+        groups.put("huge", Collections.nCopies(500, "row"));
+
+        ((CaffeineCache) groups).getNativeCache().cleanUp();
+        assertNull(groups.get("huge"));
+        assertNotNull(groups.get("small"));
+    }
+
+    @Test
+    void ttl_expiresIdleEntriesOnly() {
+        Cache<Object, Object> summary = ((CaffeineCache) manager.getCache("marketSummary")).getNativeCache();
+        var expiry = summary.policy().expireAfterAccess().orElseThrow();
+
+        assertEquals(Duration.ofMinutes(5), expiry.getExpiresAfter());
+        assertTrue(summary.policy().expireAfterWrite().isEmpty());
+    }
+
+    @Test
+    void weigher_countsRowsOfListResults() {
+        assertEquals(1, CacheConfig.ROW_COUNT.weigh("k", new Object()));
+        assertEquals(4, CacheConfig.ROW_COUNT.weigh("k", List.of(1, 2, 3)));
+    }
+}
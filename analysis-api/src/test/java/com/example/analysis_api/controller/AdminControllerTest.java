@@ -0,0 +1,82 @@
+package com.example.analysis_api.controller;
+
+import com.example.analysis_api.model.DatasetInfo;
+import com.example.analysis_api.service.DatasetVersion;
+import com.example.analysis_api.service.MarketAnalysisService;
+import com.example.analysis_api.store.PropertyColumns;
+import com.example.analysis_api.store.PropertyTable;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AdminController.class)
+@Import(ResponseBodyCache.class)
+class AdminControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MarketAnalysisService analysisService;
+
+    @Test
+    void dataset_describesTheCurrentVersion() throws Exception {
+        DatasetVersion dataset = dataset(7);
+        when(analysisService.getDataset()).thenReturn(dataset);
+
+        mockMvc.perform(get("/admin/dataset"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(7))
+                .andExpect(jsonPath("$.rows").value(0))
+                .andExpect(jsonPath("$.source").value("test"));
+    }
+
+    @Test
+    void reload_isNotServedOnTheApplicationPort() throws Exception {
+        mockMvc.perform(post("/admin/dataset/reload"))
+                .andExpect(status().is4xxClientError());
+        verify(analysisService, never()).reload();
+    }
+
+    @Test
+    void reloadEndpoint_answersWithTheNewVersionOr500() {
+        DatasetReloadEndpoint endpoint = new DatasetReloadEndpoint(analysisService);
+        DatasetVersion next = dataset(8);
+        when(analysisService.reload()).thenReturn(CompletableFuture.completedFuture(next));
+
+        WebEndpointResponse<DatasetInfo> reloaded = endpoint.reload();
+        assertEquals(WebEndpointResponse.STATUS_OK, reloaded.getStatus());
+        assertEquals(8, reloaded.getBody().getVersion());
+
+        when(analysisService.reload()).thenReturn(CompletableFuture.failedFuture(
+                new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Dataset reload failed")));
+        assertEquals(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR, endpoint.reload().getStatus());
+    }
+
+    private static DatasetVersion dataset(long version) {
+        DatasetVersion dataset = mock(DatasetVersion.class);
+        when(dataset.version()).thenReturn(version);
+        when(dataset.table()).thenReturn(new PropertyTable(new PropertyColumns.Builder(0).build()));
+        when(dataset.source()).thenReturn("test");
+        when(dataset.loadedAt()).thenReturn(Instant.EPOCH);
+        return dataset;
+    }
+}
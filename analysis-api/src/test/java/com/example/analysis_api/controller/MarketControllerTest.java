@@ -0,0 +1,484 @@
+package com.example.analysis_api.controller;
+
+import com.example.analysis_api.export.ArrowExporter;
+import com.example.analysis_api.model.AggregationResult;
+import com.example.analysis_api.model.GroupedStatistics;
+import com.example.analysis_api.model.MarketSummary;
+import com.example.analysis_api.model.PropertyRecord;
+import com.example.analysis_api.model.SegmentPage;
+import com.example.analysis_api.model.WhatIfBatchResult;
+import com.example.analysis_api.model.WhatIfRequest;
+import com.example.analysis_api.model.WhatIfResponse;
+import com.example.analysis_api.service.DatasetVersion;
+import com.example.analysis_api.service.MarketAnalysisService;
+import com.example.analysis_api.store.PropertyColumns;
+import com.example.analysis_api.store.PropertyTable;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(MarketController.class)
+@Import(ResponseBodyCache.class)
+// small enough that a test can build a segment larger than the whole response body cache
+@TestPropertySource(properties = "analysis.http.response-cache.max-bytes=256KB")
+class MarketControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private MarketAnalysisService analysisService;
+
+    // the service always has a dataset once requests are served; a fresh version per test keeps
+    // the shared response body cache from answering with another test's body
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    @BeforeEach
+    void emptyDataset() {
+        DatasetVersion dataset = mock(DatasetVersion.class);
+        when(dataset.version()).thenReturn(VERSIONS.incrementAndGet());
+        when(dataset.table()).thenReturn(table());
+        when(analysisService.getDataset()).thenReturn(dataset);
+    }
+
+    @Test
+    void health_returnsOkString() throws Exception {
+        mockMvc.perform(get("/market/health"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("ok"));
+    }
+
+    @Test
+    void summary_returnsMarketSummaryFromService() throws Exception {
+        MarketSummary summary =
+                new MarketSummary(100.0, 50.0, 150.0, 110.0, 10);
+        when(analysisService.getMarketSummary()).thenReturn(summary);
+
+        mockMvc.perform(get("/market/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.avgPrice").value(100.0))
+                .andExpect(jsonPath("$.minPrice").value(50.0))
+                .andExpect(jsonPath("$.maxPrice").value(150.0))
+                .andExpect(jsonPath("$.totalCount").value(10));
+    }
+
+    @Test
+    void distributionByBedrooms_reportsWhetherTheCubeAnswered() throws Exception {
+        when(analysisService.getAveragePriceByBedrooms(eq(300000.0), any(), any(), any(), any(), any()))
+                .thenReturn(new AggregationResult<>(List.of(new GroupedStatistics("3", 12, 310000.0)),
+                        MarketAnalysisService.PATH_CUBE));
+
+        mockMvc.perform(get("/market/distribution/bedrooms").param("minPrice", "300000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Aggregation-Path", "cube"))
+                .andExpect(jsonPath("$[0].label").value("3"))
+                .andExpect(jsonPath("$[0].averagePrice").value(310000.0));
+    }
+
+    @Test
+    void segments_passesFiltersToServiceAndReturnsList() throws Exception {
+        List<PropertyRecord> records = List.of(
+                new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8)
+        );
+        when(analysisService.filterProperties(
+                any(), any(), any(), any(), any(), any()))
+                .thenReturn(records);
+
+        mockMvc.perform(get("/market/segments")
+                        .param("minPrice", "200000")
+                        .param("maxPrice", "400000")
+                        .param("minBedrooms", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].price").value(300000.0))
+                .andExpect(jsonPath("$[0].bedrooms").value(3));
+    }
+
+    @Test
+    void segments_withPagingParams_returnsPageFromService() throws Exception {
+        SegmentPage page = new SegmentPage(
+                List.of(new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8)),
+                "-price",
+                "next-token");
+        when(analysisService.getSegmentPage(
+                any(), any(), any(), any(), any(), any(), eq("-price"), any(), eq(1)))
+                .thenReturn(page);
+
+        mockMvc.perform(get("/market/segments")
+                        .param("sort", "-price")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].price").value(300000.0))
+                .andExpect(jsonPath("$.sort").value("-price"))
+                .andExpect(jsonPath("$.nextCursor").value("next-token"));
+    }
+
+    @Test
+    void segments_withNdjsonAccept_streamsOneRowPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<PropertyRecord> sink = invocation.getArgument(8);
+            sink.accept(new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8));
+            sink.accept(new PropertyRecord(150000, 900, 1, 1, 1970, 2500, 12, 6));
+            return null;
+        }).when(analysisService).forEachInSegment(
+                any(), any(), any(), any(), any(), any(), any(), any(), any());
+
+        MvcResult started = mockMvc.perform(get("/market/segments")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(300000.0, objectMapper.readValue(lines[0], Map.class).get("price"));
+        assertEquals(150000.0, objectMapper.readValue(lines[1], Map.class).get("price"));
+    }
+
+    @Test
+    void segments_withCborAccept_streamsRowsOfTheFilteredTable() throws Exception {
+        when(analysisService.getTable()).thenReturn(table(
+                new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8),
+                new PropertyRecord(150000, 900.5, 1, 1, 1970, 2500, 12.25, 6.5),
+                new PropertyRecord(450000, 2100, 4, 3, 2015, 6000, 3, 9)
+        ));
+
+        MvcResult started = mockMvc.perform(get("/market/segments")
+                        .param("minBedrooms", "2")
+                        .param("sort", "-price")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        JsonNode rows = new CBORMapper().readTree(result.getResponse().getContentAsByteArray()).get("rows");
+        assertEquals(2, rows.size());
+        assertEquals(450000.0, rows.get(0).get(0).doubleValue());
+        assertEquals(300000.0, rows.get(1).get(0).doubleValue());
+    }
+
+    @Test
+    void segments_withBinaryAcceptAndBadSort_returns400() throws Exception {
+        mockMvc.perform(get("/market/segments")
+                        .param("sort", "lotSize")
+                        .accept(ArrowExporter.MEDIA_TYPE))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void export_withoutTypeNegotiatesArrowFromAccept() throws Exception {
+        when(analysisService.getTable()).thenReturn(table(
+                new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8)
+        ));
+
+        MvcResult started = mockMvc.perform(get("/market/export")
+                        .accept(ArrowExporter.MEDIA_TYPE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ArrowExporter.MEDIA_TYPE))
+                .andExpect(header().string(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=market_data.arrows"))
+                .andReturn();
+
+        // schema message first: continuation marker, then its metadata length
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertEquals(-1, ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN).getInt(0));
+    }
+
+    @Test
+    void export_withoutTypeAndWildcardAccept_returns400() throws Exception {
+        MvcResult started = mockMvc.perform(get("/market/export")
+                        .accept(MediaType.ALL))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_DISPOSITION));
+    }
+
+    @Test
+    void export_withNaNBound_returns400BeforeStreaming() throws Exception {
+        mockMvc.perform(get("/market/export").param("type", "csv").param("minPrice", "NaN"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/market/segments").param("maxSchoolRating", "NaN")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void binaryExportFormat_needsAnExplicitBinaryType() {
+        assertNull(MarketController.binaryExportFormat(null));
+        assertNull(MarketController.binaryExportFormat("*/*"));
+        assertNull(MarketController.binaryExportFormat("application/*, text/csv"));
+        assertNull(MarketController.binaryExportFormat("application/cbor;q=0"));
+        assertEquals("cbor", MarketController.binaryExportFormat("*/*, application/cbor"));
+        assertEquals("arrow", MarketController.binaryExportFormat(
+                "application/cbor;q=0.5, application/vnd.apache.arrow.stream"));
+    }
+
+    @Test
+    void segments_answerIfNoneMatchWith304UntilTheDatasetChanges() throws Exception {
+        DatasetVersion dataset = mock(DatasetVersion.class);
+        long version = VERSIONS.incrementAndGet();
+        when(dataset.version()).thenReturn(version);
+        when(dataset.table()).thenReturn(table(
+                new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8),
+                new PropertyRecord(150000, 900.5, 1, 1, 1970, 2500, 12.25, 6.5)
+        ));
+        when(analysisService.getDataset()).thenReturn(dataset);
+        when(analysisService.filterProperties(any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8)));
+
+        String etag = mockMvc.perform(get("/market/segments").param("minBedrooms", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=0, must-revalidate, public"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(etag.startsWith("\"" + version + "-"));
+
+        // minBedrooms=3 selects the same rows, so it shares the tag; the service is not asked again
+        mockMvc.perform(get("/market/segments").param("minBedrooms", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        verify(analysisService, times(1)).filterProperties(any(), any(), any(), any(), any(), any());
+
+        when(dataset.version()).thenReturn(VERSIONS.incrementAndGet());
+        mockMvc.perform(get("/market/segments").param("minBedrooms", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        when(analysisService.getSegmentPage(any(), any(), any(), any(), any(), any(), eq("bogus"), any(), any()))
+                .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown sort"));
+        mockMvc.perform(get("/market/segments").param("sort", "bogus"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"));
+    }
+
+    @Test
+    void segments_repeatRequestsAreServedFromEncodedBytesIncludingGzip() throws Exception {
+        DatasetVersion dataset = mock(DatasetVersion.class);
+        when(dataset.version()).thenReturn(VERSIONS.incrementAndGet());
+        when(dataset.table()).thenReturn(table(new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8)));
+        when(analysisService.getDataset()).thenReturn(dataset);
+        List<PropertyRecord> rows = Collections.nCopies(100,
+                new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8));
+        when(analysisService.filterProperties(any(), any(), any(), any(), any(), any())).thenReturn(rows);
+
+        byte[] plain = mockMvc.perform(get("/market/segments").param("maxPrice", "400000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(100))
+                .andReturn().getResponse().getContentAsByteArray();
+        MvcResult zipped = mockMvc.perform(get("/market/segments").param("maxPrice", "400000")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        verify(analysisService, times(1)).filterProperties(any(), any(), any(), any(), any(), any());
+
+        byte[] unzipped = new GZIPInputStream(new ByteArrayInputStream(
+                zipped.getResponse().getContentAsByteArray())).readAllBytes();
+        assertEquals(new String(plain, StandardCharsets.UTF_8), new String(unzipped, StandardCharsets.UTF_8));
+        String gzipTag = zipped.getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(gzipTag.endsWith("-gzip\""));
+
+        // the gzip form has its own tag, honoured only while the client still takes gzip
+        mockMvc.perform(get("/market/segments").param("maxPrice", "400000")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/market/segments").param("maxPrice", "400000")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipTag))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void segments_largerThanTheBodyCacheAreStreamedAndNotCached() throws Exception {
+        // about 2 MB of JSON against a 256 KB cache
+        List<PropertyRecord> rows = Collections.nCopies(15_000,
+                new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8));
+        when(analysisService.filterProperties(any(), any(), any(), any(), any(), any())).thenReturn(rows);
+
+        for (String acceptEncoding : List.of("identity", "gzip")) {
+            mockMvc.perform(get("/market/segments").header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(jsonPath("$.length()").value(15_000));
+        }
+        // nothing was kept, so the repeat went back to the service
+        verify(analysisService, times(2)).filterProperties(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void whatIf_returnsResponseFromService() throws Exception {
+        WhatIfRequest req = new WhatIfRequest();
+        req.setSquareFootage(1500);
+        req.setBedrooms(3);
+        req.setBathrooms(2);
+        req.setYearBuilt(2005);
+        req.setLotSize(4000);
+        req.setDistanceToCityCenter(5);
+        req.setSchoolRating(8);
+
+        WhatIfResponse response = new WhatIfResponse(250000.0, 200000.0);
+        when(analysisService.runWhatIfAsync(any(WhatIfRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        MvcResult started = mockMvc.perform(post("/market/what-if")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.predictedPrice").value(250000.0))
+                .andExpect(jsonPath("$.marketAverage").value(200000.0))
+                .andExpect(jsonPath("$.differenceFromAverage").value(50000.0))
+                .andExpect(jsonPath("$.modelSource").value("estimator"));
+    }
+
+    @Test
+    void whatIfBatch_returnsPerItemResultsFromService() throws Exception {
+        when(analysisService.runWhatIfBatchAsync(anyList())).thenReturn(CompletableFuture.completedFuture(List.of(
+                WhatIfBatchResult.success(0, new WhatIfResponse(250000.0, 200000.0)),
+                WhatIfBatchResult.failure(1, "schoolRating must be between 0 and 10"))));
+
+        MvcResult started = mockMvc.perform(post("/market/what-if/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"squareFootage\":1500},{\"squareFootage\":1500,\"schoolRating\":11}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].result.predictedPrice").value(250000.0))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].error").value("schoolRating must be between 0 and 10"));
+    }
+
+    @Test
+    void exportCsv_streamsFilteredRowsFromServiceTable() throws Exception {
+        when(analysisService.getTable()).thenReturn(table(
+                new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8),
+                new PropertyRecord(150000, 900.5, 1, 1, 1970, 2500, 12.25, 6.5)
+        ));
+
+        MvcResult started = mockMvc.perform(get("/market/export")
+                        .param("type", "csv")
+                        .param("maxPrice", "200000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=market_data.csv"))
+                .andExpect(content().contentType(MediaType.TEXT_PLAIN))
+                .andExpect(content().string(
+                        "price,squareFootage,bedrooms,bathrooms,yearBuilt,lotSize,distanceToCityCenter,schoolRating\n"
+                                + "150000,900.5,1,1,1970,2500,12.25,6.5\n"));
+    }
+
+    @Test
+    void exportCsv_gzipsWhenClientAcceptsIt() throws Exception {
+        when(analysisService.getTable()).thenReturn(table(
+                new PropertyRecord(300000, 1500, 3, 2, 2005, 4000, 5, 8)
+        ));
+
+        MvcResult started = mockMvc.perform(get("/market/export")
+                        .param("type", "csv")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        byte[] gz = result.getResponse().getContentAsByteArray();
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(gz)).readAllBytes(),
+                StandardCharsets.US_ASCII);
+        assertTrue(csv.endsWith("\n300000,1500,3,2,2005,4000,5,8\n"));
+    }
+
+    @Test
+    void exportPdf_returnsPdfBytes() throws Exception {
+        MvcResult started = mockMvc.perform(get("/market/export").param("type", "pdf"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=market_analysis.pdf"))
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF));
+    }
+
+    private static PropertyTable table(PropertyRecord... records) {
+        PropertyColumns.Builder builder = new PropertyColumns.Builder(records.length);
+        for (PropertyRecord p : records) {
+            builder.add(p.getPrice(), p.getSquareFootage(), p.getBedrooms(), p.getBathrooms(),
+                    p.getYearBuilt(), p.getLotSize(), p.getDistanceToCityCenter(), p.getSchoolRating());
+        }
+        return new PropertyTable(builder.build());
+    }
+}
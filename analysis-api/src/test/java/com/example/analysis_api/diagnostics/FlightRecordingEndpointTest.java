@@ -0,0 +1,62 @@
+package com.example.analysis_api.diagnostics;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingEndpointTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void record_returnsARecordingWithTheAnalysisEvents() throws Exception {
+        FlightRecordingEndpoint endpoint = new FlightRecordingEndpoint(Duration.ofMinutes(1));
+
+        CompletableFuture<WebEndpointResponse<Resource>> response =
+                CompletableFuture.supplyAsync(() -> endpoint.record(Duration.ofSeconds(1), null));
+        while (FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .noneMatch(r -> r.getState() == RecordingState.RUNNING)) {
+            Thread.sleep(10);
+        }
+        DatasetLoadEvent.start("parse-csv", 7).end(50);
+        // a second recording is refused while the first runs
+        assertEquals(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS,
+                endpoint.record(Duration.ofSeconds(1), null).getStatus());
+
+        WebEndpointResponse<Resource> recorded = response.join();
+        assertEquals(WebEndpointResponse.STATUS_OK, recorded.getStatus());
+        Path file = dir.resolve("recording.jfr");
+        Files.write(file, recorded.getBody().getContentAsByteArray());
+
+        List<RecordedEvent> loads = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("com.example.analysis.DatasetLoad"))
+                .toList();
+        assertEquals(1, loads.size());
+        assertEquals("parse-csv", loads.get(0).getString("phase"));
+        assertEquals(50, loads.get(0).getLong("rows"));
+    }
+
+    @Test
+    void record_rejectsBadDurationsAndSettings() {
+        FlightRecordingEndpoint endpoint = new FlightRecordingEndpoint(Duration.ofMinutes(1));
+
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record(Duration.ofMinutes(2), null).getStatus());
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record(Duration.ZERO, null).getStatus());
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST,
+                endpoint.record(Duration.ofSeconds(1), "no-such-settings").getStatus());
+    }
+}
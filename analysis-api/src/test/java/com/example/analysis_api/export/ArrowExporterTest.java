@@ -0,0 +1,144 @@
+package com.example.analysis_api.export;
+
+import com.example.analysis_api.store.PropertyColumns;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import com.example.analysis_api.store.RowOrder;
+import org.apache.arrow.flatbuf.Field;
+import org.apache.arrow.flatbuf.FloatingPoint;
+import org.apache.arrow.flatbuf.Int;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.MetadataVersion;
+import org.apache.arrow.flatbuf.Precision;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.arrow.flatbuf.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads the stream back message by message with the Arrow flatbuffer definitions, checking the
+ * framing, the schema and every column value against the table.
+ */
+class ArrowExporterTest {
+
+    @Test
+    void write_streamsSchemaThenColumnBatchesThenEndOfStream() throws IOException {
+        PropertyTable table = table(5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = new ArrowExporter(2).write(table, RowFilter.of(null, null, null, null, null, null),
+                RowOrder.DATASET, Long.MAX_VALUE, out);
+
+        assertEquals(5, written);
+        ByteBuffer stream = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+
+        Message schemaMessage = nextMessage(stream);
+        assertEquals(MetadataVersion.V5, schemaMessage.version());
+        assertEquals(MessageHeader.Schema, schemaMessage.headerType());
+        Schema schema = (Schema) schemaMessage.header(new Schema());
+        String[] names = CsvExporter.HEADER.strip().split(",");
+        assertEquals(names.length, schema.fieldsLength());
+        for (int i = 0; i < names.length; i++) {
+            Field field = schema.fields(i);
+            assertEquals(names[i], field.name());
+            assertFalse(field.nullable());
+            if (i == 2 || i == 4) {
+                assertEquals(Type.Int, field.typeType());
+                Int type = (Int) field.type(new Int());
+                assertEquals(32, type.bitWidth());
+                assertTrue(type.isSigned());
+            } else {
+                assertEquals(Type.FloatingPoint, field.typeType());
+                assertEquals(Precision.DOUBLE, ((FloatingPoint) field.type(new FloatingPoint())).precision());
+            }
+        }
+
+        List<Integer> batchSizes = new ArrayList<>();
+        int row = 0;
+        Message message;
+        while ((message = nextMessage(stream)) != null) {
+            assertEquals(MessageHeader.RecordBatch, message.headerType());
+            RecordBatch batch = (RecordBatch) message.header(new RecordBatch());
+            ByteBuffer body = stream.slice(stream.position(), (int) message.bodyLength()).order(ByteOrder.LITTLE_ENDIAN);
+            stream.position(stream.position() + (int) message.bodyLength());
+
+            int n = (int) batch.length();
+            batchSizes.add(n);
+            assertEquals(names.length, batch.nodesLength());
+            assertEquals(names.length * 2, batch.buffersLength());
+            for (int i = 0; i < n; i++, row++) {
+                assertEquals(table.columns().price()[row], body.getDouble(offset(batch, 0) + i * 8));
+                assertEquals(table.columns().bedrooms()[row], body.getInt(offset(batch, 2) + i * 4));
+                assertEquals(table.columns().yearBuilt()[row], body.getInt(offset(batch, 4) + i * 4));
+                assertEquals(table.columns().schoolRating()[row], body.getDouble(offset(batch, 7) + i * 8));
+            }
+            for (int b = 0; b < batch.buffersLength(); b++) {
+                assertEquals(0, batch.buffers(b).offset() % 8);
+            }
+        }
+        assertEquals(List.of(2, 2, 1), batchSizes);
+        assertFalse(stream.hasRemaining());
+    }
+
+    @Test
+    void write_honoursFilterOrderAndLimit() throws IOException {
+        PropertyTable table = table(10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = new ArrowExporter(ArrowExporter.DEFAULT_BATCH_ROWS).write(table,
+                RowFilter.of(null, null, 2, null, null, null), RowOrder.parse("-price"), 3, out);
+
+        assertEquals(3, written);
+        ByteBuffer stream = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        nextMessage(stream);
+        Message message = nextMessage(stream);
+        RecordBatch batch = (RecordBatch) message.header(new RecordBatch());
+        ByteBuffer body = stream.slice(stream.position(), (int) message.bodyLength()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(3, batch.length());
+        double previous = Double.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            double price = body.getDouble(offset(batch, 0) + i * 8);
+            assertTrue(price <= previous);
+            assertTrue(body.getInt(offset(batch, 2) + i * 4) >= 2);
+            previous = price;
+        }
+    }
+
+    // data buffer of a column; its validity buffer comes first
+    private static int offset(RecordBatch batch, int column) {
+        return (int) batch.buffers(column * 2 + 1).offset();
+    }
+
+    // the next encapsulated message, or null at the end-of-stream marker
+    private static Message nextMessage(ByteBuffer stream) {
+        assertEquals(0xFFFFFFFF, stream.getInt());
+        int length = stream.getInt();
+        if (length == 0) {
+            return null;
+        }
+        assertEquals(0, (8 + length) % 8);
+        ByteBuffer metadata = stream.slice(stream.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+        stream.position(stream.position() + length);
+        return Message.getRootAsMessage(metadata);
+    }
+
+    private static PropertyTable table(int rows) {
+        PropertyColumns.Builder builder = new PropertyColumns.Builder(rows);
+        for (int i = 0; i < rows; i++) {
+            builder.add(100_000 + i * 37_000 % 200_000, 800 + i, 1 + i % 4, 1.5, 1950 + i, 2000, i / 4.0, i % 10 + 0.5);
+        }
+        return new PropertyTable(builder.build());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.analysis_api.export;
+
+import com.example.analysis_api.store.PropertyColumns;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import com.example.analysis_api.store.RowOrder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CborExporterTest {
+
+    private final CborExporter exporter = new CborExporter(256);
+
+    @Test
+    void appendDouble_usesTheShortestExactFloat() {
+        assertArrayEquals(new byte[]{(byte) 0xF9, 0x41, 0x00}, encodeDouble(2.5));
+        assertArrayEquals(new byte[]{(byte) 0xFA, 0x48, 0x34, (byte) 0xAA, 0x00}, encodeDouble(185_000.0));
+        assertEquals(9, encodeDouble(7.3).length);
+        assertEquals((byte) 0xFB, encodeDouble(7.3)[0]);
+        assertEquals(3, encodeDouble(Double.NaN).length);
+    }
+
+    @Test
+    void appendLong_usesMajorTypesZeroAndOne() {
+        assertArrayEquals(new byte[]{0x03}, encodeLong(3));
+        assertArrayEquals(new byte[]{0x19, 0x07, (byte) 0xC6}, encodeLong(1990));
+        assertArrayEquals(new byte[]{0x20}, encodeLong(-1));
+        assertArrayEquals(new byte[]{0x38, 0x63}, encodeLong(-100));
+    }
+
+    @Test
+    void write_producesColumnsAndRowsReadableByAStandardDecoder() throws IOException {
+        PropertyTable table = table();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = new CborExporter(256).write(table, RowFilter.of(null, 400_000.0, null, null, null, null),
+                RowOrder.parse("-price"), Long.MAX_VALUE, out);
+
+        assertEquals(2, written);
+        JsonNode doc = new CBORMapper().readTree(out.toByteArray());
+        assertEquals("price,squareFootage,bedrooms,bathrooms,yearBuilt,lotSize,distanceToCityCenter,schoolRating",
+                joined(doc.get("columns")));
+        JsonNode rows = doc.get("rows");
+        assertEquals(2, rows.size());
+        assertEquals(300_000.0, rows.get(0).get(0).doubleValue());
+        assertEquals(1520.25, rows.get(0).get(1).doubleValue());
+        assertTrue(rows.get(0).get(2).isInt());
+        assertEquals(3, rows.get(0).get(2).intValue());
+        assertEquals(2005, rows.get(0).get(4).intValue());
+        assertEquals(7.3, rows.get(0).get(7).doubleValue());
+        assertEquals(150_000.0, rows.get(1).get(0).doubleValue());
+        assertEquals(12.25, rows.get(1).get(6).doubleValue());
+    }
+
+    @Test
+    void write_stopsAtTheLimitAndStillClosesTheDocument() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = new CborExporter(0).write(table(), RowFilter.of(null, null, null, null, null, null),
+                RowOrder.DATASET, 2, out);
+
+        assertEquals(2, written);
+        JsonNode rows = new CBORMapper().readTree(out.toByteArray()).get("rows");
+        assertEquals(2, rows.size());
+        assertEquals(300_000.0, rows.get(0).get(0).doubleValue());
+        assertEquals(150_000.0, rows.get(1).get(0).doubleValue());
+    }
+
+    private static PropertyTable table() {
+        PropertyColumns.Builder builder = new PropertyColumns.Builder(4);
+        builder.add(300_000, 1520.25, 3, 2, 2005, 4000, 5, 7.3);
+        builder.add(150_000, 900.5, 1, 1, 1970, 2500, 12.25, 6.5);
+        builder.add(910_000, 3100, 5, 3.5, 2019, 9000, 2.5, 9.1);
+        return new PropertyTable(builder.build());
+    }
+
+    private static String joined(JsonNode array) {
+        StringBuilder s = new StringBuilder();
+        for (JsonNode name : array) {
+            s.append(s.isEmpty() ? "" : ",").append(name.textValue());
+        }
+        return s.toString();
+    }
+
+    private byte[] encodeDouble(double value) {
+        exporter.appendDouble(value);
+        return exporter.drainToBytes();
+    }
+
+    private byte[] encodeLong(long value) {
+        exporter.appendLong(value);
+        return exporter.drainToBytes();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.analysis_api.export;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvExporterTest {
+
+    private final CsvExporter exporter = new CsvExporter(1024);
+
+    @Test
+    void appendDouble_printsIntegralValuesWithoutFraction() {
+        assertEquals("185000", format(185000.0));
+        assertEquals("0", format(0.0));
+        assertEquals("-42", format(-42.0));
+    }
+
+    @Test
+    void appendDouble_keepsUpToSixDecimalsAndTrimsZeros() {
+        assertEquals("3.2", format(3.2));
+        assertEquals("2.5", format(2.5));
+        assertEquals("0.000001", format(0.000001));
+        assertEquals("1234.567891", format(1234.5678912));
+        assertEquals("-0.05", format(-0.05));
+        assertEquals("10", format(9.9999999));
+    }
+
+    @Test
+    void appendDouble_fallsBackForHugeAndNonFiniteValues() {
+        assertEquals("1.0E13", format(1.0e13));
+        assertEquals("NaN", format(Double.NaN));
+    }
+
+    private String format(double value) {
+        exporter.appendDouble(value);
+        return exporter.drainToString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.analysis_api.ingest;
+
+import com.example.analysis_api.store.PropertyColumns;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCsvLoaderTest {
+
+    private static final String HEADER = "id,square_footage,bedrooms,bathrooms,year_built,lot_size,"
+            + "distance_to_city_center,school_rating,price\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void load_smallChunksOnManyThreadsMatchSingleThreadedParse() throws Exception {
+        Random random = new Random(7);
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= 2_000; i++) {
+            csv.append(i).append(',')
+                    .append(500 + random.nextInt(4000)).append(',')
+                    .append(random.nextInt(7)).append(',')
+                    .append(1 + random.nextInt(8) * 0.5).append(',')
+                    .append(1900 + random.nextInt(125)).append(',')
+                    .append(random.nextDouble() * 20_000).append(',')
+                    .append(random.nextInt(5_000) / 100.0).append(',')
+                    .append(random.nextInt(100) / 10.0).append(',')
+                    .append(50_000 + random.nextInt(1_000_000)).append('\n');
+        }
+        Path file = dir.resolve("housing.csv");
+        Files.writeString(file, csv);
+
+        ParallelCsvLoader.Result single = new ParallelCsvLoader(1, Integer.MAX_VALUE).load(file);
+        ParallelCsvLoader.Result chunked = new ParallelCsvLoader(4, 997).load(file);
+
+        assertEquals(2_000, single.columns().size());
+        assertEquals(0, chunked.malformedRows());
+        assertColumnsEqual(single.columns(), chunked.columns());
+
+        // and both agree with the JDK's own parser
+        String[] firstRow = csv.toString().split("\n")[1].split(",");
+        assertEquals(Double.parseDouble(firstRow[5]), chunked.columns().lotSize()[0]);
+        assertEquals(Double.parseDouble(firstRow[8]), chunked.columns().price()[0]);
+    }
+
+    @Test
+    void load_reportsMalformedRowsWithFileLineNumbers() throws Exception {
+        String csv = HEADER
+                + "1,1250,2,1,1985,5200,3.2,7.1,185000\n"
+                + "2,1850,three,2.5,1998,7500,5.6,8.2,265000\n"
+                + "3,2100,3,2,2005\n"
+                + "\n"
+                + "4,1650,3,2,1975,6100,4.0,6.5,abc\n"
+                + "5,2400,4,3,2010,8000,8.1,9.0,410000\n";
+        byte[] bytes = csv.getBytes(StandardCharsets.US_ASCII);
+
+        for (int chunkBytes : new int[]{Integer.MAX_VALUE, 40, 1}) {
+            ParallelCsvLoader.Result result = new ParallelCsvLoader(3, chunkBytes).load(bytes);
+
+            assertEquals(2, result.columns().size(), "chunkBytes=" + chunkBytes);
+            assertArrayEquals(new double[]{185000, 410000}, result.columns().price());
+            assertEquals(3, result.malformedRows());
+            assertEquals(List.of(
+                            new ParallelCsvLoader.MalformedRow(3, "invalid bedrooms"),
+                            new ParallelCsvLoader.MalformedRow(4, "expected 9 columns, found 5"),
+                            new ParallelCsvLoader.MalformedRow(6, "invalid price")),
+                    result.samples(), "chunkBytes=" + chunkBytes);
+        }
+    }
+
+    @Test
+    void load_handlesByteOrderMarkCrlfAndMissingFinalNewline() throws Exception {
+        String csv = "﻿" + HEADER.replace("\n", "\r\n")
+                + "1,1250,2,1,1985,5200,3.2,7.1,185000\r\n"
+                + "2,1850,3,2.5,1998,7500,5.6,8.2,265000.75";
+        ParallelCsvLoader.Result result = new ParallelCsvLoader(2, 16).load(csv.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(0, result.malformedRows());
+        assertArrayEquals(new double[]{185000, 265000.75}, result.columns().price());
+        assertArrayEquals(new int[]{2, 3}, result.columns().bedrooms());
+        assertArrayEquals(new double[]{7.1, 8.2}, result.columns().schoolRating());
+    }
+
+    private static void assertColumnsEqual(PropertyColumns expected, PropertyColumns actual) {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.price(), actual.price());
+        assertArrayEquals(expected.squareFootage(), actual.squareFootage());
+        assertArrayEquals(expected.bedrooms(), actual.bedrooms());
+        assertArrayEquals(expected.bathrooms(), actual.bathrooms());
+        assertArrayEquals(expected.yearBuilt(), actual.yearBuilt());
+        assertArrayEquals(expected.lotSize(), actual.lotSize());
+        assertArrayEquals(expected.distanceToCityCenter(), actual.distanceToCityCenter());
+        assertArrayEquals(expected.schoolRating(), actual.schoolRating());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.analysis_api.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DatasetWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private final MarketAnalysisService service = mock(MarketAnalysisService.class);
+    private DatasetWatcher watcher;
+
+    @AfterEach
+    void stop() throws Exception {
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    void reloadsOnlyWhenTheDatasetFileChanges() throws Exception {
+        // counted in the answer rather than verified, as the calls come from the watcher thread
+        Semaphore reloads = new Semaphore(0);
+        when(service.reload()).thenAnswer(invocation -> {
+            reloads.release();
+            return null;
+        });
+        Path csv = Files.writeString(dir.resolve("housing.csv"), "price\n1\n");
+        watcher = watcher(dir, new FileSystemResource(csv));
+        watcher.start();
+
+        Files.writeString(dir.resolve("other.csv"), "price\n2\n");
+        assertFalse(reloads.tryAcquire(500, TimeUnit.MILLISECONDS));
+
+        Files.writeString(csv, "price\n1\n2\n");
+        assertTrue(reloads.tryAcquire(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void refusesALocationOutsideTheWatchedDirectory() throws Exception {
+        Path elsewhere = Files.createDirectory(dir.resolve("elsewhere"));
+        Path csv = Files.writeString(dir.resolve("housing.csv"), "price\n1\n");
+
+        assertThrows(IllegalStateException.class, () -> watcher(elsewhere, new FileSystemResource(csv)).start());
+        assertThrows(IllegalStateException.class,
+                () -> watcher(dir, new ClassPathResource("no/such/housing.csv")).start());
+        verify(service, never()).reload();
+    }
+
+    private DatasetWatcher watcher(Path watchDir, Resource location) {
+        DatasetWatcher watcher = new DatasetWatcher(service);
+        ReflectionTestUtils.setField(watcher, "watchDir", watchDir.toString());
+        ReflectionTestUtils.setField(watcher, "quietMillis", 50L);
+        ReflectionTestUtils.setField(watcher, "location", location);
+        return watcher;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.analysis_api.service;
+
+import com.example.analysis_api.model.WhatIfRequest;
+import com.example.analysis_api.store.PropertyColumns;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalPriceModelTest {
+
+    @Test
+    void fit_recoversLinearPricesAndKeepsConstantFeaturesHarmless() {
+        Random random = new Random(11);
+        PropertyColumns.Builder builder = new PropertyColumns.Builder();
+        for (int i = 0; i < 5_000; i++) {
+            double squareFootage = 600 + random.nextInt(3000);
+            int bedrooms = 1 + random.nextInt(5);
+            double schoolRating = random.nextInt(100) / 10.0;
+            double price = 20_000 + 150 * squareFootage + 10_000 * bedrooms + 8_000 * schoolRating;
+            // bathrooms and lot size never vary
+            builder.add(price, squareFootage, bedrooms, 2, 1990 + random.nextInt(30),
+                    5_000, random.nextInt(300) / 10.0, schoolRating);
+        }
+
+        LocalPriceModel model = LocalPriceModel.fit(builder.build(), 1e-6);
+
+        WhatIfRequest req = new WhatIfRequest(2000, 3, 2, 2000, 5_000, 5, 7);
+        assertEquals(20_000 + 150 * 2000 + 10_000 * 3 + 8_000 * 7, model.predict(req), 1.0);
+        assertEquals(1.0, model.rSquared(), 1e-9);
+        assertEquals(5_000, model.rows());
+    }
+
+    @Test
+    void fit_withoutRowsPredictsZero() {
+        LocalPriceModel model = LocalPriceModel.fit(PropertyColumns.empty(), 1.0);
+
+        assertEquals(0, model.predict(new WhatIfRequest(2000, 3, 2, 2000, 5_000, 5, 7)));
+    }
+}
@@ -1,12 +1,26 @@
 package com.example.analysis_api.service;
 
+import com.example.analysis_api.model.AggregationResult;
+import com.example.analysis_api.model.GroupedStatistics;
+import com.example.analysis_api.model.DistributionBucket;
 import com.example.analysis_api.model.MarketSummary;
+import com.example.analysis_api.model.MeasureStats;
+import com.example.analysis_api.model.PriceQuantiles;
 import com.example.analysis_api.model.PropertyRecord;
+import com.example.analysis_api.model.SegmentPage;
+import com.example.analysis_api.model.WhatIfBatchResult;
 import com.example.analysis_api.model.WhatIfRequest;
 import com.example.analysis_api.model.WhatIfResponse;
+import com.example.analysis_api.store.PropertyTable;
+import com.example.analysis_api.store.RowFilter;
+import com.example.analysis_api.store.SortedIndex;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -16,10 +30,23 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
@@ -73,6 +100,112 @@ class MarketAnalysisServiceTest {
         assertTrue(result.stream().allMatch(p -> p.getBedrooms() >= 3));
     }
 
+    @Test
+    void filterProperties_appliesAllBoundsInclusively() {
+        List<PropertyRecord> result =
+                service.filterProperties(200000.0, 400000.0, 2, 4, 7.0, 9.0);
+
+        assertFalse(result.isEmpty());
+        assertTrue(result.stream().allMatch(p ->
+                p.getPrice() >= 200000 && p.getPrice() <= 400000
+                        && p.getBedrooms() >= 2 && p.getBedrooms() <= 4
+                        && p.getSchoolRating() >= 7.0 && p.getSchoolRating() <= 9.0));
+    }
+
+    @Test
+    void getAveragePriceByBedrooms_matchesFilteredSegment() {
+        List<PropertyRecord> filtered =
+                service.filterProperties(null, 500000.0, null, null, 6.0, null);
+        List<GroupedStatistics> groups =
+                service.getAveragePriceByBedrooms(null, 500000.0, null, null, 6.0, null);
+
+        assertEquals(filtered.size(), groups.stream().mapToLong(GroupedStatistics::getCount).sum());
+        for (GroupedStatistics g : groups) {
+            int bedrooms = Integer.parseInt(g.getLabel());
+            double expected = filtered.stream()
+                    .filter(p -> p.getBedrooms() == bedrooms)
+                    .mapToDouble(PropertyRecord::getPrice)
+                    .average()
+                    .orElseThrow();
+            assertEquals(expected, g.getAveragePrice(), 0.001);
+        }
+    }
+
+    @Test
+    void getSegmentPage_followingCursorsVisitsWholeSegmentOnce() {
+        List<PropertyRecord> expected = service.filterProperties(null, null, 2, null, null, null);
+
+        List<PropertyRecord> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            SegmentPage page = service.getSegmentPage(null, null, 2, null, null, null, "-price", cursor, 7);
+            assertTrue(page.getItems().size() <= 7);
+            seen.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(expected.size(), seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1).getPrice() >= seen.get(i).getPrice());
+        }
+    }
+
+    @Test
+    void getSegmentPage_rejectsTamperedCursorAndUnknownSort() {
+        ResponseStatusException badCursor = assertThrows(ResponseStatusException.class,
+                () -> service.getSegmentPage(null, null, null, null, null, null, null, "not-a-cursor", 5));
+        assertEquals(HttpStatus.BAD_REQUEST, badCursor.getStatusCode());
+
+        ResponseStatusException badSort = assertThrows(ResponseStatusException.class,
+                () -> service.getSegmentPage(null, null, null, null, null, null, "lotSize", null, 5));
+        assertEquals(HttpStatus.BAD_REQUEST, badSort.getStatusCode());
+    }
+
+    @Test
+    void getPriceQuantiles_isExactForSmallSegmentsAndMatchesTheSummaryMedian() {
+        PriceQuantiles all = service.getPriceQuantiles(null, null, null, null, null, null, null);
+
+        assertEquals(PriceQuantiles.EXACT, all.getMethod());
+        assertEquals(service.getMarketSummary().getTotalCount(), all.getCount());
+        assertEquals(List.of("p10", "p25", "p50", "p75", "p90", "p99"), List.copyOf(all.getQuantiles().keySet()));
+        assertEquals(service.getMarketSummary().getMedianPrice(), all.getQuantiles().get("p50"));
+
+        // a bedrooms bound takes the row-selection path; the answer must agree with a plain sort
+        List<Double> prices = new ArrayList<>();
+        for (PropertyRecord p : service.filterProperties(null, null, 3, null, null, null)) {
+            prices.add(p.getPrice());
+        }
+        prices.sort(null);
+        PriceQuantiles segment = service.getPriceQuantiles(null, null, 3, null, null, null, List.of(0.0, 1.0));
+        assertEquals(prices.size(), segment.getCount());
+        assertEquals(prices.get(0), segment.getQuantiles().get("p0"));
+        assertEquals(prices.get(prices.size() - 1), segment.getQuantiles().get("p100"));
+    }
+
+    @Test
+    void getPriceQuantiles_usesSketchAboveExactThreshold() throws Exception {
+        setField(service, "exactQuantileRows", 0);
+
+        PriceQuantiles sketched = service.getPriceQuantiles(null, null, 3, null, null, null, List.of(0.5, 0.999));
+
+        assertEquals(PriceQuantiles.SKETCH, sketched.getMethod());
+        assertTrue(sketched.getRankError() > 0);
+        assertTrue(sketched.getQuantiles().containsKey("p99.9"));
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.getPriceQuantiles(null, null, null, null, null, null, List.of(1.5)));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void nonFiniteFilterBounds_areBadRequests() {
+        ResponseStatusException segments = assertThrows(ResponseStatusException.class,
+                () -> service.filterProperties(Double.NaN, null, null, null, null, null));
+        assertEquals(HttpStatus.BAD_REQUEST, segments.getStatusCode());
+        ResponseStatusException count = assertThrows(ResponseStatusException.class,
+                () -> service.countProperties(null, Double.NaN, null, null, null, null));
+        assertEquals(HttpStatus.BAD_REQUEST, count.getStatusCode());
+    }
+
     @Test
     void runWhatIf_callsEstimatorAndBuildsResponse() throws Exception {
         RestTemplate restTemplate = (RestTemplate) getField(service, "restTemplate");
@@ -154,6 +287,406 @@ class MarketAnalysisServiceTest {
         }
     }
 
+    @Test
+    void runWhatIf_whenBulkheadIsFull_rejectsWithoutCallingEstimator() throws Exception {
+        RestTemplate restTemplate = (RestTemplate) getField(service, "restTemplate");
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        setField(service, "estimatorBulkhead", new Semaphore(0));
+        setField(service, "estimatorBulkheadWait", Duration.ofMillis(10));
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> service.runWhatIfAsync(sampleWhatIfRequest()).join());
+
+        ResponseStatusException rejected = assertInstanceOf(ResponseStatusException.class, ex.getCause());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+        server.verify(); // no request was made
+    }
+
+    @Test
+    void metrics_recordRowsPerQueryEstimatorOutcomesAndDatasetLoads() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service.bindMetrics(registry);
+        service.loadData();
+        RestTemplate restTemplate = (RestTemplate) getField(service, "restTemplate");
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andRespond(withSuccess("{\"predictions\":[250000.0]}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        int matched = service.filterProperties(null, null, 3, null, null, null).size();
+        service.runWhatIf(sampleWhatIfRequest());
+        assertThrows(ResponseStatusException.class, () -> service.runWhatIf(sampleWhatIfRequest()));
+        server.verify();
+
+        double returned = registry.find("analysis.query.rows.returned").summaries().stream()
+                .mapToDouble(DistributionSummary::totalAmount).sum();
+        assertEquals(matched, returned, 0.0);
+        assertEquals(service.getMarketSummary().getTotalCount(),
+                registry.get("analysis.dataset.rows").gauge().value(), 0.0);
+        assertEquals(1, registry.get("analysis.dataset.load").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get("analysis.estimator.calls").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get("analysis.estimator.calls").tag("outcome", "error").timer().count());
+        assertEquals(1, registry.get("analysis.estimator.errors").tag("type", "http").counter().count(), 0.0);
+        assertEquals(0, registry.get("analysis.estimator.in-flight").gauge().value(), 0.0);
+    }
+
+    @Test
+    void runWhatIf_withPredictionCache_reusesNearbyScenariosUntilModelChanges() throws Exception {
+        RestTemplate restTemplate = (RestTemplate) getField(service, "restTemplate");
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        Method fetchModelVersion = MarketAnalysisService.class.getDeclaredMethod("fetchModelVersion");
+        fetchModelVersion.setAccessible(true);
+        // checks the model version before every lookup, on the calling thread
+        PredictionCache cache = new PredictionCache(PredictionCache.parseSteps("squareFootage:10"), 100,
+                Duration.ZERO, () -> {
+                    try {
+                        return (String) fetchModelVersion.invoke(service);
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, Runnable::run);
+        setField(service, "predictionCache", cache);
+
+        server.expect(once(), requestTo("http://localhost:8000/model-info"))
+                .andRespond(withSuccess("{\"model_version\":\"v1\"}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andRespond(withSuccess("{\"predictions\":[250000.0]}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo("http://localhost:8000/model-info"))
+                .andRespond(withSuccess("{\"model_version\":\"v1\"}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo("http://localhost:8000/model-info"))
+                .andRespond(withSuccess("{\"model_version\":\"v2\"}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andRespond(withSuccess("{\"predictions\":[260000.0]}", MediaType.APPLICATION_JSON));
+
+        WhatIfRequest nudged = sampleWhatIfRequest();
+        nudged.setSquareFootage(nudged.getSquareFootage() + 4); // same 10 sq ft bucket
+
+        assertEquals(250000.0, service.runWhatIf(sampleWhatIfRequest()).getPredictedPrice());
+        assertEquals(250000.0, service.runWhatIf(nudged).getPredictedPrice());
+        assertEquals(260000.0, service.runWhatIf(nudged).getPredictedPrice());
+
+        server.verify();
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals("v2", cache.modelVersion());
+    }
+
+    @Test
+    void runWhatIf_inLocalMode_answersFromFittedModelWithoutCallingEstimator() throws Exception {
+        RestTemplate restTemplate = (RestTemplate) getField(service, "restTemplate");
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        setField(service, "estimatorMode", "local");
+
+        WhatIfRequest small = sampleWhatIfRequest();
+        WhatIfRequest large = sampleWhatIfRequest();
+        large.setSquareFootage(3500);
+        WhatIfResponse smallResp = service.runWhatIf(small);
+        WhatIfResponse largeResp = service.runWhatIf(large);
+
+        server.verify(); // no request was made
+        assertEquals(WhatIfResponse.LOCAL, smallResp.getModelSource());
+        assertTrue(smallResp.getPredictedPrice() > 0);
+        assertTrue(largeResp.getPredictedPrice() > smallResp.getPredictedPrice());
+        assertEquals(service.getMarketSummary().getAvgPrice(), smallResp.getMarketAverage(), 0.01);
+    }
+
+    @Test
+    void runWhatIf_localOnTimeout_fallsBackWhenEstimatorFails() throws Exception {
+        RestTemplate restTemplate = (RestTemplate) getField(service, "restTemplate");
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        setField(service, "estimatorMode", "local-on-timeout");
+
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andRespond(withSuccess("{\"predictions\":[250000.0]}", MediaType.APPLICATION_JSON));
+
+        WhatIfResponse fallback = service.runWhatIf(sampleWhatIfRequest());
+        WhatIfResponse remote = service.runWhatIf(sampleWhatIfRequest());
+
+        server.verify();
+        assertEquals(WhatIfResponse.LOCAL, fallback.getModelSource());
+        assertTrue(fallback.getPredictedPrice() > 0);
+        assertEquals(WhatIfResponse.ESTIMATOR, remote.getModelSource());
+        assertEquals(250000.0, remote.getPredictedPrice());
+    }
+
+    @Test
+    void runWhatIfBatch_sendsValidScenariosInChunksAndKeepsOrder() throws Exception {
+        setField(service, "whatIfChunkSize", 2);
+        RestTemplate restTemplate = (RestTemplate) getField(service, "restTemplate");
+        // chunks are sent concurrently, so match them by content rather than arrival order
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+
+        // scenario 2 is invalid and never sent: 0,1 go in the first call, 3,4 in the second
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andExpect(jsonPath("$.instances[1].bedrooms").value(3))
+                .andRespond(withSuccess("{\"predictions\":[100000.0,200000.0]}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andExpect(jsonPath("$.instances[1].bedrooms").value(5))
+                .andRespond(withSuccess("{\"predictions\":[300000.0,400000.0]}", MediaType.APPLICATION_JSON));
+
+        WhatIfRequest invalid = sampleWhatIfRequest();
+        invalid.setSchoolRating(11);
+        WhatIfRequest lastOne = sampleWhatIfRequest();
+        lastOne.setBedrooms(5);
+        List<WhatIfBatchResult> results = service.runWhatIfBatch(List.of(
+                sampleWhatIfRequest(), sampleWhatIfRequest(), invalid, sampleWhatIfRequest(), lastOne));
+
+        server.verify();
+        assertEquals(5, results.size());
+        assertEquals(100000.0, results.get(0).getResult().getPredictedPrice());
+        assertEquals(200000.0, results.get(1).getResult().getPredictedPrice());
+        assertNull(results.get(2).getResult());
+        assertEquals("schoolRating must be between 0 and 10", results.get(2).getError());
+        assertEquals(300000.0, results.get(3).getResult().getPredictedPrice());
+        assertEquals(400000.0, results.get(4).getResult().getPredictedPrice());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+    }
+
+    @Test
+    void runWhatIfBatch_failedChunkOnlyFailsItsOwnScenarios() throws Exception {
+        setField(service, "whatIfChunkSize", 2);
+        RestTemplate restTemplate = (RestTemplate) getField(service, "restTemplate");
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andExpect(jsonPath("$.instances.length()").value(2))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andExpect(jsonPath("$.instances.length()").value(1))
+                .andRespond(withSuccess("{\"predictions\":[300000.0]}", MediaType.APPLICATION_JSON));
+
+        List<WhatIfBatchResult> results = service.runWhatIfBatch(List.of(
+                sampleWhatIfRequest(), sampleWhatIfRequest(), sampleWhatIfRequest()));
+
+        server.verify();
+        assertNotNull(results.get(0).getError());
+        assertNotNull(results.get(1).getError());
+        assertEquals(300000.0, results.get(2).getResult().getPredictedPrice());
+    }
+
+    @Test
+    void runWhatIfBatch_localOnTimeout_answersSlowChunksLocallyAfterTheFallbackTimeout() throws Exception {
+        setField(service, "whatIfChunkSize", 1);
+        setField(service, "estimatorMode", "local-on-timeout");
+        setField(service, "fallbackTimeout", Duration.ofMillis(200));
+        RestTemplate restTemplate = (RestTemplate) getField(service, "restTemplate");
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        CountDownLatch slowChunk = new CountDownLatch(1);
+
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andExpect(jsonPath("$.instances[0].bedrooms").value(3))
+                .andRespond(withSuccess("{\"predictions\":[100000.0]}", MediaType.APPLICATION_JSON));
+        // held until the batch has answered; far longer than the fallback timeout
+        server.expect(once(), requestTo("http://localhost:8000/predict"))
+                .andExpect(jsonPath("$.instances[0].bedrooms").value(5))
+                .andRespond(request -> {
+                    try {
+                        slowChunk.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return withSuccess("{\"predictions\":[900000.0]}", MediaType.APPLICATION_JSON)
+                            .createResponse(request);
+                });
+
+        WhatIfRequest slow = sampleWhatIfRequest();
+        slow.setBedrooms(5);
+        long started = System.nanoTime();
+        List<WhatIfBatchResult> results = service.runWhatIfBatch(List.of(sampleWhatIfRequest(), slow));
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        slowChunk.countDown();
+
+        assertTrue(elapsedMillis < 5_000, "batch waited " + elapsedMillis + " ms");
+        assertEquals(WhatIfResponse.ESTIMATOR, results.get(0).getResult().getModelSource());
+        assertEquals(100000.0, results.get(0).getResult().getPredictedPrice());
+        assertEquals(WhatIfResponse.LOCAL, results.get(1).getResult().getModelSource());
+        assertEquals(1, results.get(1).getIndex());
+        server.verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void filterProperties_narrowerPriceWindowsAreAnsweredFromACachedWiderOne() throws Exception {
+        SegmentRowCache rowCache = (SegmentRowCache) getField(service, "segmentRows");
+
+        List<PropertyRecord> wide = service.filterProperties(150000.0, 400000.0, null, null, null, null);
+        assertEquals(1, rowCache.misses());
+
+        // dragging the slider inwards: each step is contained in the first window
+        for (double min = 160000; min <= 240000; min += 20000) {
+            double lo = min;
+            List<PropertyRecord> narrow = service.filterProperties(lo, 380000.0, null, null, null, null);
+            assertEquals(wide.stream().filter(p -> p.getPrice() >= lo && p.getPrice() <= 380000).count(),
+                    narrow.size());
+        }
+        assertEquals(1, rowCache.misses());
+        assertTrue(rowCache.subsumedHits() > 0);
+    }
+
+    @Test
+    void segmentRowCache_onlyChecksRecentFiltersAsSupersets() throws Exception {
+        SegmentRowCache rowCache = (SegmentRowCache) getField(service, "segmentRows");
+        DatasetVersion current = service.getDataset();
+        PropertyTable table = current.table();
+        SortedIndex prices = table.priceIndex();
+        int n = prices.size();
+
+        RowFilter wide = RowFilter.of(prices.valueAt(1), prices.valueAt(n - 2), null, null, null, null);
+        RowFilter inside = RowFilter.of(prices.valueAt(10), prices.valueAt(n - 10), null, null, null, null);
+        rowCache.select(current, wide);
+
+        // school rating windows, none of which is contained in the wide filter or contains the inside one
+        SortedIndex ratings = table.schoolRatingIndex();
+        Set<RowFilter> others = new LinkedHashSet<>();
+        for (int width = 0; others.size() < SegmentRowCache.MAX_CANDIDATES; width++) {
+            for (int i = 0; i + width < n && others.size() < SegmentRowCache.MAX_CANDIDATES; i++) {
+                others.add(table.canonical(RowFilter.of(null, null, null, null,
+                        ratings.valueAt(i), ratings.valueAt(i + width))));
+            }
+        }
+        others.forEach(filter -> rowCache.select(current, filter));
+        long misses = rowCache.misses();
+
+        // the wide filter is still cached, but no longer among the candidates a miss checks
+        rowCache.select(current, inside);
+        assertEquals(misses + 1, rowCache.misses());
+
+        rowCache.select(current, wide);
+        rowCache.select(current, RowFilter.of(prices.valueAt(11), prices.valueAt(n - 11), null, null, null, null));
+        assertEquals(misses + 1, rowCache.misses());
+    }
+
+    @Test
+    void reload_swapsInNewVersionWhilePinnedReadersKeepTheOldOne(@TempDir Path dir) throws Exception {
+        List<String> lines = Files.readAllLines(new ClassPathResource("data/housing.csv").getFile().toPath());
+        Path csv = dir.resolve("housing.csv");
+        Files.write(csv, lines.subList(0, 11)); // header + 10 rows
+        setField(service, "housingDataResource", new FileSystemResource(csv));
+        service.loadData();
+
+        DatasetVersion before = service.getDataset();
+        assertEquals(10, before.table().size());
+        assertEquals(10, service.getMarketSummary().getTotalCount());
+        String cursor = service.getSegmentPage(null, null, null, null, null, null, null, null, 3).getNextCursor();
+
+        Files.write(csv, lines);
+        DatasetVersion after = service.reload().get(10, TimeUnit.SECONDS);
+
+        assertEquals(before.version() + 1, after.version());
+        assertSame(after, service.getDataset());
+        assertEquals(lines.size() - 1, service.getMarketSummary().getTotalCount());
+        assertEquals(10, before.table().size()); // the old version is untouched
+
+        // a cursor's positions only make sense in the version that issued it
+        ResponseStatusException stale = assertThrows(ResponseStatusException.class,
+                () -> service.getSegmentPage(null, null, null, null, null, null, null, cursor, 3));
+        assertEquals(HttpStatus.GONE, stale.getStatusCode());
+    }
+
+    @Test
+    void reload_keepsCurrentVersionWhenTheNewCsvCannotBeRead(@TempDir Path dir) throws Exception {
+        DatasetVersion before = service.getDataset();
+        setField(service, "housingDataResource", new FileSystemResource(dir.resolve("missing.csv")));
+
+        ExecutionException failed = assertThrows(ExecutionException.class,
+                () -> service.reload().get(10, TimeUnit.SECONDS));
+
+        assertInstanceOf(ResponseStatusException.class, failed.getCause());
+        assertSame(before, service.getDataset());
+    }
+
+    @Test
+    void getDistribution_bucketsAnyColumnWithSeveralMeasures() {
+        List<DistributionBucket> decades = service.getDistribution("yearBuilt", 10.0, null, null,
+                List.of("price", "pricePerSqft"), null, null, 2, null, null, null);
+
+        assertFalse(decades.isEmpty());
+        long total = 0;
+        for (DistributionBucket bucket : decades) {
+            assertEquals(bucket.getLower() + 10, bucket.getUpper());
+            assertEquals("[" + bucket.getLower().intValue() + ", " + bucket.getUpper().intValue() + ")", bucket.getLabel());
+            MeasureStats price = bucket.getMeasures().get("price");
+            assertEquals(bucket.getCount(), price.getCount());
+            assertEquals(price.getSum() / price.getCount(), price.getAverage(), 1e-6);
+            assertTrue(price.getMin() <= price.getAverage() && price.getAverage() <= price.getMax());
+            assertTrue(bucket.getMeasures().containsKey("pricePerSqft"));
+            total += bucket.getCount();
+        }
+        assertEquals(service.countProperties(null, null, 2, null, null, null), total);
+
+        // decimal widths keep decimal edges, and every row falls inside its bucket's bounds
+        List<PropertyRecord> all = service.filterProperties(null, null, null, null, null, null);
+        for (DistributionBucket bucket : service.getDistribution("schoolRating", 0.1, null, null, null,
+                null, null, null, null, null, null)) {
+            assertTrue(BigDecimal.valueOf(bucket.getLower()).scale() <= 1, bucket::getLabel);
+            assertEquals(all.stream().filter(p -> p.getSchoolRating() >= bucket.getLower()
+                    && p.getSchoolRating() < bucket.getUpper()).count(), bucket.getCount(), bucket::getLabel);
+        }
+
+        // exact bedroom values agree with the dedicated endpoint
+        List<DistributionBucket> byBedrooms = service.getDistribution("bedrooms", null, null, null, null,
+                null, null, null, null, null, null);
+        List<GroupedStatistics> expected = service.getAveragePriceByBedrooms(null, null, null, null, null, null);
+        assertEquals(expected.size(), byBedrooms.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLabel(), byBedrooms.get(i).getLabel());
+            assertEquals(expected.get(i).getAveragePrice(),
+                    byBedrooms.get(i).getMeasures().get("price").getAverage(), 1e-6);
+        }
+
+        ResponseStatusException unknown = assertThrows(ResponseStatusException.class,
+                () -> service.getDistribution("color", null, null, null, null, null, null, null, null, null, null));
+        assertEquals(HttpStatus.BAD_REQUEST, unknown.getStatusCode());
+        ResponseStatusException ambiguous = assertThrows(ResponseStatusException.class,
+                () -> service.getDistribution("schoolRating", 1.0, null, List.of(4.0, 7.0), null,
+                        null, null, null, null, null, null));
+        assertEquals(HttpStatus.BAD_REQUEST, ambiguous.getStatusCode());
+    }
+
+    @Test
+    void cube_answersAlignedFiltersLikeAScanAndDefersOnUnalignedOnes() throws Exception {
+        Object[][] filters = {
+                {null, null, null, null, null, null},
+                {null, null, 2, 4, 5.0, null},
+                {333_333.0, null, null, null, null, 7.25}
+        };
+        List<AggregationResult<GroupedStatistics>> fromCube = new ArrayList<>();
+        List<Long> cubeCounts = new ArrayList<>();
+        for (Object[] f : filters) {
+            fromCube.add(service.getAveragePriceByBedrooms((Double) f[0], (Double) f[1], (Integer) f[2],
+                    (Integer) f[3], (Double) f[4], (Double) f[5]));
+            cubeCounts.add(service.countProperties((Double) f[0], (Double) f[1], (Integer) f[2],
+                    (Integer) f[3], (Double) f[4], (Double) f[5]));
+        }
+        assertEquals(MarketAnalysisService.PATH_CUBE, fromCube.get(0).getPath());
+        assertEquals(MarketAnalysisService.PATH_CUBE, fromCube.get(1).getPath());
+        assertEquals(MarketAnalysisService.PATH_CUBE, service.getDistribution("bedrooms", null, null, null, null,
+                null, null, 2, 4, 5.0, null).getPath());
+        assertEquals(MarketAnalysisService.PATH_SCAN, service.getDistribution("yearBuilt", 10.0, null, null, null,
+                null, null, null, null, null, null).getPath());
+
+        setField(service, "cubeEnabled", false);
+        service.loadData();
+        for (int i = 0; i < filters.length; i++) {
+            Object[] f = filters[i];
+            AggregationResult<GroupedStatistics> scanned = service.getAveragePriceByBedrooms((Double) f[0],
+                    (Double) f[1], (Integer) f[2], (Integer) f[3], (Double) f[4], (Double) f[5]);
+            assertEquals(MarketAnalysisService.PATH_SCAN, scanned.getPath());
+            assertEquals(scanned.size(), fromCube.get(i).size());
+            for (int g = 0; g < scanned.size(); g++) {
+                assertEquals(scanned.get(g).getLabel(), fromCube.get(i).get(g).getLabel());
+                assertEquals(scanned.get(g).getCount(), fromCube.get(i).get(g).getCount());
+                assertEquals(scanned.get(g).getAveragePrice(), fromCube.get(i).get(g).getAveragePrice(), 1e-6);
+            }
+            assertEquals(service.countProperties((Double) f[0], (Double) f[1], (Integer) f[2],
+                    (Integer) f[3], (Double) f[4], (Double) f[5]), cubeCounts.get(i));
+        }
+    }
+
     @Test
     void groupedStatistics_ifImplemented_shouldReturnListWithLabelCountAveragePrice() throws Exception {
         // This test is reflection-based so it only runs assertions if you implemented the method.
@@ -0,0 +1,109 @@
+package com.example.analysis_api.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WhatIfCoalescerTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final CountDownLatch releaseFirstCall = new CountDownLatch(1);
+    private WhatIfCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() {
+        releaseFirstCall.countDown();
+        coalescer.close();
+        executor.shutdownNow();
+    }
+
+    // echoes each row's "id" back as its prediction; the first call stays in flight until released
+    private List<?> estimator(List<Map<String, Object>> instances) {
+        boolean first;
+        synchronized (batchSizes) {
+            first = batchSizes.isEmpty();
+            batchSizes.add(instances.size());
+        }
+        if (first) {
+            try {
+                releaseFirstCall.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return instances.stream().map(row -> row.get("id")).toList();
+    }
+
+    @Test
+    void submit_whileEstimatorIsBusy_collectsCallersIntoOneBatch() throws Exception {
+        coalescer = new WhatIfCoalescer(3, Duration.ofSeconds(10), this::estimator, executor);
+
+        CompletableFuture<Double> lone = coalescer.submit(Map.of("id", 0.0)); // idle: sent at once
+        waitForBatches(1);
+        List<CompletableFuture<Double>> queued = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            queued.add(coalescer.submit(Map.of("id", (double) i)));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1.0, queued.get(i).get(5, TimeUnit.SECONDS)); // full batch goes without waiting
+        }
+        releaseFirstCall.countDown();
+
+        assertEquals(0.0, lone.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 3), batchSizes);
+    }
+
+    @Test
+    void submit_whileEstimatorIsBusy_sendsPartialBatchAfterMaxWait() throws Exception {
+        coalescer = new WhatIfCoalescer(64, Duration.ofMillis(50), this::estimator, executor);
+
+        coalescer.submit(Map.of("id", 0.0));
+        waitForBatches(1);
+        long started = System.nanoTime();
+        assertEquals(1.0, coalescer.submit(Map.of("id", 1.0)).get(5, TimeUnit.SECONDS));
+
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals(List.of(1, 1), batchSizes);
+    }
+
+    @Test
+    void submit_whenEstimatorFails_failsEveryCallerInTheBatch() {
+        coalescer = new WhatIfCoalescer(8, Duration.ZERO, instances -> {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Estimator service is unavailable");
+        }, executor);
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> coalescer.submit(Map.of("id", 0.0)).join());
+
+        ResponseStatusException cause = assertInstanceOf(ResponseStatusException.class, ex.getCause());
+        assertEquals(HttpStatus.BAD_GATEWAY, cause.getStatusCode());
+    }
+
+    private void waitForBatches(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            synchronized (batchSizes) {
+                if (batchSizes.size() >= count) {
+                    return;
+                }
+            }
+            Thread.sleep(5);
+        }
+        fail("estimator was not called");
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.analysis_api.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarSnapshotTest {
+
+    private static final ColumnarSnapshot.SourceStamp STAMP = new ColumnarSnapshot.SourceStamp(4096, 1_700_000_000_000L);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeThenRead_roundTripsEveryColumn() throws Exception {
+        PropertyColumns original = new PropertyColumns.Builder(4)
+                .add(185000, 1250, 2, 1, 1985, 5200, 3.2, 7.1)
+                .add(265000, 1850, 3, 2.5, 1998, 7500, 5.6, 8.2)
+                .add(99000.5, 640, 0, 1, 1920, 0, 41.75, 3.0)
+                .build();
+        Path file = dir.resolve("housing.snapshot");
+
+        ColumnarSnapshot.write(original, STAMP, file);
+        PropertyColumns read = ColumnarSnapshot.read(file, STAMP).orElseThrow();
+
+        assertEquals(original.size(), read.size());
+        assertArrayEquals(original.price(), read.price());
+        assertArrayEquals(original.squareFootage(), read.squareFootage());
+        assertArrayEquals(original.bedrooms(), read.bedrooms());
+        assertArrayEquals(original.bathrooms(), read.bathrooms());
+        assertArrayEquals(original.yearBuilt(), read.yearBuilt());
+        assertArrayEquals(original.lotSize(), read.lotSize());
+        assertArrayEquals(original.distanceToCityCenter(), read.distanceToCityCenter());
+        assertArrayEquals(original.schoolRating(), read.schoolRating());
+    }
+
+    @Test
+    void columnsSpanningSeveralMapWindows_roundTrip() throws Exception {
+        PropertyColumns.Builder builder = new PropertyColumns.Builder(7);
+        for (int i = 0; i < 7; i++) {
+            builder.add(100_000 + i, 1000 + i, i, 1 + i, 1950 + i, 5000 + i, i / 10.0, i);
+        }
+        PropertyColumns original = builder.build();
+        Path file = dir.resolve("housing.snapshot");
+
+        // 16-byte windows: two doubles or four ints per mapping
+        ColumnarSnapshot.write(original, STAMP, file, 16);
+        PropertyColumns read = ColumnarSnapshot.read(file, STAMP, 16).orElseThrow();
+
+        assertArrayEquals(original.price(), read.price());
+        assertArrayEquals(original.bedrooms(), read.bedrooms());
+        assertArrayEquals(original.yearBuilt(), read.yearBuilt());
+        assertArrayEquals(original.schoolRating(), read.schoolRating());
+        assertArrayEquals(original.price(), ColumnarSnapshot.read(file, STAMP).orElseThrow().price());
+    }
+
+    @Test
+    void read_rejectsMissingStaleAndTruncatedSnapshots() throws Exception {
+        Path file = dir.resolve("housing.snapshot");
+        assertEquals(Optional.empty(), ColumnarSnapshot.read(file, STAMP));
+
+        PropertyColumns columns = new PropertyColumns.Builder(1).add(1, 2, 3, 4, 5, 6, 7, 8).build();
+        ColumnarSnapshot.write(columns, STAMP, file);
+
+        ColumnarSnapshot.SourceStamp newerCsv = new ColumnarSnapshot.SourceStamp(4096, STAMP.lastModified() + 1);
+        assertEquals(Optional.empty(), ColumnarSnapshot.read(file, newerCsv));
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        assertEquals(Optional.empty(), ColumnarSnapshot.read(file, STAMP));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.analysis_api.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks cube answers against a row aggregation of the same filter, and that filters cutting
+ * through a band are refused.
+ */
+class DataCubeTest {
+
+    private PropertyTable table;
+    private DataCube cube;
+
+    @BeforeEach
+    void setUp() {
+        Random rnd = new Random(7);
+        PropertyColumns.Builder builder = new PropertyColumns.Builder(16);
+        for (int i = 0; i < 5000; i++) {
+            builder.add(
+                    100_000 + rnd.nextInt(900) * 1000,
+                    800 + rnd.nextInt(3000),
+                    1 + rnd.nextInt(6),
+                    1 + rnd.nextInt(4),
+                    1950 + rnd.nextInt(70),
+                    2000 + rnd.nextInt(10000),
+                    rnd.nextInt(300) / 10.0,
+                    rnd.nextInt(101) / 10.0);
+        }
+        table = new PropertyTable(builder.build());
+        cube = DataCube.build(table, 50_000, 1.0);
+    }
+
+    @Test
+    void alignedFilters_matchRowAggregation() {
+        for (RowFilter filter : List.of(
+                RowFilter.of(null, null, null, null, null, null),
+                RowFilter.of(300_000.0, 599_999.0, null, null, null, null),
+                RowFilter.of(null, null, 2, 4, 4.0, 6.95),
+                RowFilter.of(150_000.0, 899_999.0, 3, null, null, 7.99))) {
+            RowFilter canonical = table.canonical(filter);
+            assertTrue(cube.aligned(canonical), filter::toString);
+
+            int[] rows = table.select(canonical);
+            assertEquals(rows.length, cube.count(canonical), filter::toString);
+
+            Aggregation expected = table.aggregate(rows, Metric.BEDROOMS, Bucketing.exact(), List.of(Metric.PRICE));
+            Aggregation actual = cube.priceByBedrooms(canonical);
+            assertEquals(expected.groups(), actual.groups(), filter::toString);
+            for (int g = 0; g < expected.groups(); g++) {
+                assertEquals(expected.keyAt(g), actual.keyAt(g));
+                assertEquals(expected.rowsAt(g), actual.rowsAt(g));
+                assertEquals(expected.sumAt(0, g), actual.sumAt(0, g), 0.001);
+                assertEquals(expected.minAt(0, g), actual.minAt(0, g));
+                assertEquals(expected.maxAt(0, g), actual.maxAt(0, g));
+            }
+        }
+    }
+
+    @Test
+    void boundsInsideABand_areNotAligned() {
+        for (RowFilter filter : List.of(
+                RowFilter.of(310_000.0, null, null, null, null, null),
+                RowFilter.of(null, 620_000.0, null, null, null, null),
+                RowFilter.of(null, null, null, null, 4.5, null))) {
+            RowFilter canonical = table.canonical(filter);
+            assertFalse(cube.aligned(canonical), filter::toString);
+            assertEquals(-1, cube.count(canonical));
+            assertNull(cube.priceByBedrooms(canonical));
+        }
+    }
+
+    @Test
+    void cellCountIsBounded() {
+        assertEquals(6 * 18 * 11, cube.cells());
+        assertThrows(IllegalArgumentException.class, () -> DataCube.build(table, 1, 0.001));
+        assertEquals(0, DataCube.build(PropertyTable.empty(), 50_000, 1.0).cells());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.analysis_api.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KllSketchTest {
+
+    @Test
+    void quantile_staysWithinRankErrorAtBoundedSize() {
+        Random random = new Random(3);
+        int n = 1_000_000;
+        double[] values = new double[n];
+        KllSketch sketch = new KllSketch(200, 42);
+        for (int i = 0; i < n; i++) {
+            values[i] = Math.exp(random.nextGaussian()) * 300_000; // skewed, like prices
+            sketch.update(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(n, sketch.count());
+        assertTrue(sketch.retained() < 3 * 200 + 100, "retained " + sketch.retained());
+        assertEquals(values[0], sketch.quantile(0));
+        assertEquals(values[n - 1], sketch.quantile(1));
+        for (double q : new double[]{0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99}) {
+            double rank = rankOf(values, sketch.quantile(q)) / (double) n;
+            assertEquals(q, rank, 2 * sketch.normalizedRankError(), "q=" + q);
+        }
+    }
+
+    @Test
+    void merge_ofPartsMatchesTheWholeWithinRankError() {
+        int n = 300_000;
+        KllSketch whole = new KllSketch(200, 1);
+        KllSketch[] parts = {new KllSketch(200, 2), new KllSketch(200, 3), new KllSketch(200, 4)};
+        for (int i = 0; i < n; i++) {
+            whole.update(i);
+            parts[i % 3].update(i);
+        }
+        KllSketch merged = new KllSketch(200, 5);
+        for (KllSketch part : parts) {
+            merged.merge(part);
+        }
+
+        assertEquals(n, merged.count());
+        assertEquals(0, merged.min());
+        assertEquals(n - 1, merged.max());
+        for (double q : new double[]{0.1, 0.5, 0.9}) {
+            assertEquals(q * n, merged.quantile(q), 2 * merged.normalizedRankError() * n, "q=" + q);
+        }
+    }
+
+    @Test
+    void quantile_ofSmallInputIsExact() {
+        KllSketch sketch = new KllSketch(200);
+        for (int i = 10; i >= 1; i--) {
+            sketch.update(i);
+        }
+
+        assertEquals(5, sketch.quantile(0.5));
+        assertEquals(9, sketch.quantile(0.9));
+        assertTrue(Double.isNaN(new KllSketch(200).quantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+    }
+
+    private static int rankOf(double[] sorted, double value) {
+        int i = Arrays.binarySearch(sorted, value);
+        return i < 0 ? -i - 1 : i;
+    }
+}
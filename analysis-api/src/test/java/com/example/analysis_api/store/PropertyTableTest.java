@@ -0,0 +1,311 @@
+package com.example.analysis_api.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks index-driven row selection, counting and grouping against a brute-force scan over a
+ * synthetic table, across the index probe, bitmap and sequential scan paths.
+ */
+class PropertyTableTest {
+
+    private PropertyTable table;
+
+    @BeforeEach
+    void setUp() {
+        Random rnd = new Random(42);
+        PropertyColumns.Builder builder = new PropertyColumns.Builder(16);
+        for (int i = 0; i < 5000; i++) {
+            builder.add(
+                    100_000 + rnd.nextInt(900) * 1000,
+                    800 + rnd.nextInt(3000),
+                    1 + rnd.nextInt(6),
+                    1 + rnd.nextInt(4),
+                    1950 + rnd.nextInt(70),
+                    2000 + rnd.nextInt(10000),
+                    rnd.nextInt(300) / 10.0,
+                    rnd.nextInt(101) / 10.0);
+        }
+        table = new PropertyTable(builder.build());
+    }
+
+    @Test
+    void sortedIndex_boundsAreInclusive() {
+        SortedIndex index = table.priceIndex();
+        int from = index.lowerBound(500_000);
+        int to = index.upperBound(500_000);
+
+        assertTrue(to > from);
+        for (int pos = from; pos < to; pos++) {
+            assertEquals(500_000, index.valueAt(pos));
+        }
+        assertTrue(from == 0 || index.valueAt(from - 1) < 500_000);
+        assertTrue(to == index.size() || index.valueAt(to) > 500_000);
+    }
+
+    @Test
+    void select_narrowPriceWindow_matchesBruteForce() {
+        assertSelectMatchesScan(RowFilter.of(300_000.0, 305_000.0, null, null, null, null));
+        assertSelectMatchesScan(RowFilter.of(300_000.0, 305_000.0, 2, 3, 5.0, null));
+    }
+
+    @Test
+    void select_narrowRatingOrBedrooms_matchesBruteForce() {
+        assertSelectMatchesScan(RowFilter.of(null, 700_000.0, null, null, 9.5, 9.8));
+        assertSelectMatchesScan(RowFilter.of(null, null, 6, 6, null, null));
+    }
+
+    @Test
+    void select_wideOrEmptyFilter_matchesBruteForce() {
+        assertSelectMatchesScan(RowFilter.of(null, null, null, null, null, null));
+        assertSelectMatchesScan(RowFilter.of(150_000.0, null, 2, null, 1.0, null));
+        assertSelectMatchesScan(RowFilter.of(2_000_000.0, null, null, null, null, null));
+    }
+
+    @Test
+    void count_usesBitmapCardinalitiesAndMatchesBruteForce() {
+        for (RowFilter filter : List.of(
+                RowFilter.of(null, null, null, null, null, null),
+                RowFilter.of(null, null, 2, 4, null, null),
+                RowFilter.of(null, null, 3, null, 7.0, null),
+                RowFilter.of(null, null, null, null, 7.0, 7.9),
+                RowFilter.of(null, null, null, null, 6.5, 8.25),
+                RowFilter.of(200_000.0, 400_000.0, null, null, null, null),
+                RowFilter.of(200_000.0, 400_000.0, 1, 2, 3.0, 9.0))) {
+            assertEquals(bruteForce(filter).length, table.count(filter), filter::toString);
+        }
+    }
+
+    @Test
+    void bitmapMatch_isExactOnlyWhenBucketsAreFullyCovered() {
+        BitmapIndex ratings = table.schoolRatingBitmaps();
+
+        assertTrue(ratings.match(7.0, 8.9).exact());
+        assertFalse(ratings.match(7.5, 8.9).exact());
+        assertEquals(ratings.rows(7).getCardinality() + ratings.rows(8).getCardinality(),
+                ratings.match(7.0, 8.9).rows().getCardinality());
+    }
+
+    @Test
+    void priceTotalsByBedrooms_matchesBruteForce() {
+        for (RowFilter filter : List.of(
+                RowFilter.of(null, null, null, null, null, null),
+                RowFilter.of(null, null, 2, 5, 6.0, null),
+                RowFilter.of(null, null, null, null, 4.25, 6.75),
+                RowFilter.of(300_000.0, 302_000.0, null, null, null, null),
+                RowFilter.of(150_000.0, 900_000.0, 2, null, 5.0, 9.0))) {
+            GroupTotals totals = table.priceTotalsByBedrooms(filter);
+            PropertyColumns cols = table.columns();
+            int[] rows = bruteForce(filter);
+
+            for (int slot = 0; slot < totals.groups(); slot++) {
+                int bedrooms = totals.keyAt(slot);
+                int[] group = IntStream.of(rows).filter(r -> cols.bedrooms()[r] == bedrooms).toArray();
+                double sum = IntStream.of(group).mapToDouble(r -> cols.price()[r]).sum();
+
+                assertEquals(group.length, totals.countAt(slot), filter::toString);
+                assertEquals(sum, totals.sumAt(slot), 0.001, filter::toString);
+            }
+        }
+    }
+
+    @Test
+    void extremeKeys_costOneSlotEach() {
+        PropertyTable sparse = new PropertyTable(new PropertyColumns.Builder(4)
+                .add(300_000, 1500, 3, 2, 1990, 5000, 5.0, 7.5)
+                .add(400_000, 1800, Integer.MAX_VALUE, 2, 1990, 5000, 5.0, 1e9)
+                .add(500_000, 2100, Integer.MIN_VALUE, 2, 1990, 5000, 5.0, 8.0)
+                .build());
+
+        assertEquals(3, sparse.bedroomsBitmaps().keys());
+        assertEquals(3, sparse.schoolRatingBitmaps().keys());
+        assertEquals(1, sparse.count(RowFilter.of(null, null, null, null, 1e8, null)));
+        GroupTotals totals = sparse.priceTotalsByBedrooms(RowFilter.of(null, null, 0, null, null, null));
+        assertEquals(3, totals.groups());
+        assertEquals(Integer.MAX_VALUE, totals.keyAt(2));
+        assertEquals(400_000, totals.sumAt(2));
+        assertEquals(0, totals.countAt(0));
+        // the rating spans too many bands for a cube, which is refused rather than allocated
+        assertThrows(IllegalArgumentException.class, () -> DataCube.build(sparse, 50_000, 1.0));
+    }
+
+    @Test
+    void aggregate_matchesBruteForceForEachBucketing() {
+        PropertyColumns cols = table.columns();
+        RowFilter filter = RowFilter.of(150_000.0, 900_000.0, 2, null, null, null);
+        int[] rows = bruteForce(filter);
+        List<Metric> measures = List.of(Metric.PRICE, Metric.PRICE_PER_SQFT);
+
+        // decades of year built
+        assertAggregateMatches(table.aggregate(rows, Metric.YEAR_BUILT, Bucketing.width(10, 0), measures),
+                rows, r -> Math.floor(cols.yearBuilt()[r] / 10.0));
+        // school rating bands: < 4, [4, 7), >= 7
+        assertAggregateMatches(table.aggregate(null, Metric.SCHOOL_RATING, Bucketing.boundaries(4, 7), measures),
+                IntStream.range(0, cols.size()).toArray(),
+                r -> cols.schoolRating()[r] < 4 ? 0 : cols.schoolRating()[r] < 7 ? 1 : 2);
+        // exact bedroom counts agree with the bitmap-based totals
+        Aggregation byBedrooms = table.aggregate(rows, Metric.BEDROOMS, Bucketing.exact(), List.of(Metric.PRICE));
+        assertAggregateMatches(byBedrooms, rows, r -> cols.bedrooms()[r]);
+        GroupTotals totals = table.priceTotalsByBedrooms(filter);
+        for (int g = 0; g < byBedrooms.groups(); g++) {
+            int slot = table.bedroomsBitmaps().slotOf((int) byBedrooms.keyAt(g));
+            assertEquals(totals.countAt(slot), byBedrooms.rowsAt(g));
+            assertEquals(totals.sumAt(slot), byBedrooms.sumAt(0, g), 0.001);
+        }
+    }
+
+    @Test
+    void parallelScans_matchSequentialResults() {
+        try (ParallelScan scan = ParallelScan.create(1000, 4, 256)) {
+            PropertyTable parallel = new PropertyTable(table.columns(), scan);
+            assertTrue(scan.partitions(table.size()) > 1);
+
+            for (RowFilter filter : List.of(
+                    RowFilter.of(null, null, null, null, null, null),
+                    RowFilter.of(150_000.0, 900_000.0, 2, null, 5.0, 9.0),
+                    RowFilter.of(null, null, 3, 3, null, null))) {
+                assertArrayEquals(bruteForce(filter), parallel.select(filter), filter::toString);
+                assertEquals(bruteForce(filter).length, parallel.count(filter), filter::toString);
+            }
+            int[] rows = bruteForce(RowFilter.of(null, null, 2, null, null, null));
+            assertArrayEquals(rows, parallel.selectWithin(RowFilter.of(null, null, 2, null, null, null),
+                    IntStream.range(0, table.size()).toArray()));
+
+            List<Metric> measures = List.of(Metric.PRICE, Metric.PRICE_PER_SQFT);
+            Aggregation expected = table.aggregate(rows, Metric.YEAR_BUILT, Bucketing.width(10, 0), measures);
+            Aggregation actual = parallel.aggregate(rows, Metric.YEAR_BUILT, Bucketing.width(10, 0), measures);
+            assertEquals(expected.groups(), actual.groups());
+            for (int g = 0; g < expected.groups(); g++) {
+                assertEquals(expected.keyAt(g), actual.keyAt(g));
+                assertEquals(expected.rowsAt(g), actual.rowsAt(g));
+                for (int m = 0; m < measures.size(); m++) {
+                    assertEquals(expected.countAt(m, g), actual.countAt(m, g));
+                    assertEquals(expected.sumAt(m, g), actual.sumAt(m, g), 1e-6 * expected.sumAt(m, g));
+                    assertEquals(expected.minAt(m, g), actual.minAt(m, g));
+                    assertEquals(expected.maxAt(m, g), actual.maxAt(m, g));
+                }
+            }
+        }
+    }
+
+    @Test
+    void bucketing_labelsAndEdges() {
+        Bucketing decades = Bucketing.width(10, 0);
+        assertEquals(199.0, decades.keyOf(1995));
+        assertEquals("[1990, 2000)", decades.label(199));
+        assertEquals(2000.0, decades.upper(199));
+
+        // edges are exact in the decimal scale of width and origin, and a value on one opens its bucket
+        Bucketing tenths = Bucketing.width(0.1, 0);
+        double key = tenths.keyOf(6.8);
+        assertEquals("[6.8, 6.9)", tenths.label(key));
+        assertEquals(6.8, tenths.lower(key));
+        for (int i = 0; i <= 100; i++) {
+            double v = i / 10.0;
+            assertTrue(tenths.lower(tenths.keyOf(v)) <= v && v < tenths.upper(tenths.keyOf(v)), () -> "" + v);
+        }
+        Bucketing shifted = Bucketing.width(0.25, 0.1);
+        assertEquals("[0.35, 0.6)", shifted.label(shifted.keyOf(0.35)));
+
+        Bucketing bands = Bucketing.boundaries(4, 7.5);
+        assertEquals(1.0, bands.keyOf(4.0)); // an edge opens the interval above it
+        assertEquals("< 4", bands.label(0));
+        assertEquals("[4, 7.5)", bands.label(1));
+        assertEquals(">= 7.5", bands.label(2));
+        assertNull(bands.upper(2));
+
+        assertThrows(IllegalArgumentException.class, () -> Bucketing.boundaries(5, 5));
+        assertThrows(IllegalArgumentException.class, () -> Bucketing.width(0, 0));
+    }
+
+    @Test
+    void canonical_selectsTheSameRowsAndMergesEquivalentSliderPositions() {
+        for (RowFilter filter : List.of(
+                RowFilter.of(null, null, null, null, null, null),
+                RowFilter.of(300_500.0, 305_500.0, null, null, null, null),
+                RowFilter.of(0.0, 2_000_000.0, 0, 99, -1.0, 11.0),
+                RowFilter.of(150_000.0, 900_000.0, 2, 4, 5.05, 9.0),
+                RowFilter.of(300_100.0, 300_900.0, null, null, null, null))) {
+            RowFilter canonical = table.canonical(filter);
+            assertArrayEquals(bruteForce(filter), bruteForce(canonical), filter::toString);
+        }
+
+        // prices are whole thousands, so these windows admit exactly the same values
+        assertEquals(table.canonical(RowFilter.of(300_001.0, 304_999.0, null, null, null, null)),
+                table.canonical(RowFilter.of(300_999.0, 304_000.0, null, null, null, null)));
+        // bounds outside the data are the same as no bounds
+        assertEquals(table.canonical(RowFilter.of(null, null, null, null, null, null)),
+                table.canonical(RowFilter.of(0.0, 2_000_000.0, 0, 99, -1.0, 11.0)));
+        assertTrue(table.canonical(RowFilter.of(300_100.0, 300_900.0, null, null, null, null)).matchesNothing());
+    }
+
+    @Test
+    void of_rejectsNonFiniteBounds() {
+        // an index probe would read NaN as open and a scan as matching nothing, so neither is asked
+        assertThrows(IllegalArgumentException.class, () -> RowFilter.of(Double.NaN, null, null, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> RowFilter.of(null, Double.NaN, null, null, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> RowFilter.of(null, null, null, null, Double.NEGATIVE_INFINITY, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> RowFilter.of(null, null, null, null, null, Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void selectWithin_refinesASupersetOrDefersToTheIndexes() {
+        RowFilter wide = RowFilter.of(200_000.0, 600_000.0, 2, null, null, null);
+        RowFilter narrow = RowFilter.of(250_000.0, 550_000.0, 3, 5, 6.0, null);
+        assertTrue(wide.contains(narrow));
+        assertFalse(narrow.contains(wide));
+
+        int[] candidates = table.select(wide);
+        assertArrayEquals(bruteForce(narrow), table.selectWithin(narrow, candidates));
+
+        // a price window of a few rows is cheaper to probe than re-checking the whole superset
+        RowFilter tiny = RowFilter.of(300_000.0, 300_000.0, null, null, null, null);
+        assertNull(table.selectWithin(tiny, table.select(RowFilter.of(null, null, null, null, null, null))));
+    }
+
+    private void assertSelectMatchesScan(RowFilter filter) {
+        assertArrayEquals(bruteForce(filter), table.select(filter));
+    }
+
+    private void assertAggregateMatches(Aggregation aggregation, int[] rows, IntToDoubleFunction expectedKey) {
+        PropertyColumns cols = table.columns();
+        long total = 0;
+        for (int g = 0; g < aggregation.groups(); g++) {
+            double key = aggregation.keyAt(g);
+            int[] group = IntStream.of(rows).filter(r -> expectedKey.applyAsDouble(r) == key).toArray();
+            assertEquals(group.length, aggregation.rowsAt(g), () -> "group " + key);
+            if (g > 0) {
+                assertTrue(aggregation.keyAt(g - 1) < key, "groups ascend");
+            }
+            for (int m = 0; m < aggregation.measures().size(); m++) {
+                Metric metric = aggregation.measures().get(m);
+                double[] values = IntStream.of(group)
+                        .mapToDouble(r -> metric == Metric.PRICE ? cols.price()[r] : cols.price()[r] / cols.squareFootage()[r])
+                        .toArray();
+                assertEquals(values.length, aggregation.countAt(m, g));
+                assertEquals(DoubleStream.of(values).sum(), aggregation.sumAt(m, g), 1e-6 * Math.max(1, aggregation.sumAt(m, g)));
+                assertEquals(DoubleStream.of(values).min().orElse(Double.NaN), aggregation.minAt(m, g));
+                assertEquals(DoubleStream.of(values).max().orElse(Double.NaN), aggregation.maxAt(m, g));
+            }
+            total += group.length;
+        }
+        assertEquals(rows.length, total, "every row lands in a group");
+    }
+
+    private int[] bruteForce(RowFilter filter) {
+        PropertyColumns cols = table.columns();
+        return IntStream.range(0, cols.size())
+                .filter(row -> filter.matches(cols.price()[row], cols.bedrooms()[row], cols.schoolRating()[row]))
+                .toArray();
+    }
+}